@@ -0,0 +1,34 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+package com.alibaba.dashscope.common;
+
+/** Typical response payloads of text generation, shared by the benchmarks. */
+public final class Payloads {
+  public static final String CONTENT =
+      "Sure! Here is a short answer: the quick brown fox jumps over the lazy dog. "
+          + "我们可以一步一步地分析这个问题，首先确认输入，然后给出结论。";
+
+  /** The HTTP response of a non-streaming call. */
+  public static final String HTTP =
+      "{\"output\":{\"choices\":[{\"finish_reason\":\"stop\",\"message\":{\"role\":\"assistant\","
+          + "\"content\":\""
+          + CONTENT
+          + "\"}}]},\"usage\":{\"total_tokens\":92,\"output_tokens\":40,\"input_tokens\":52,"
+          + "\"prompt_tokens_details\":{\"cached_tokens\":0}},"
+          + "\"request_id\":\"5b7e8d6a-0c1f-9a2b-8f3e-4d5c6b7a8e9f\"}";
+
+  /** The data of an incremental SSE event. */
+  public static final String SSE =
+      "{\"output\":{\"choices\":[{\"message\":{\"content\":\"fox jumps\",\"role\":\"assistant\"},"
+          + "\"finish_reason\":\"null\"}]},\"usage\":{\"total_tokens\":58,\"output_tokens\":6,"
+          + "\"input_tokens\":52},\"request_id\":\"5b7e8d6a-0c1f-9a2b-8f3e-4d5c6b7a8e9f\"}";
+
+  /** A result-generated WebSocket frame. */
+  public static final String WEBSOCKET =
+      "{\"header\":{\"task_id\":\"5b7e8d6a-0c1f-9a2b-8f3e-4d5c6b7a8e9f\","
+          + "\"event\":\"result-generated\",\"attributes\":{}},"
+          + "\"payload\":{\"output\":{\"choices\":[{\"message\":{\"content\":\"fox jumps\","
+          + "\"role\":\"assistant\"},\"finish_reason\":\"null\"}]},"
+          + "\"usage\":{\"total_tokens\":58,\"output_tokens\":6,\"input_tokens\":52}}}";
+
+  private Payloads() {}
+}
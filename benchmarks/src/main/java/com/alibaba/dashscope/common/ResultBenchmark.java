@@ -0,0 +1,87 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+package com.alibaba.dashscope.common;
+
+import com.alibaba.dashscope.aigc.generation.GenerationResult;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.NetworkResponse;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.WebSocketResponse;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Parse the network responses to DashScopeResult, and convert to GenerationResult. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResultBenchmark {
+  private NetworkResponse httpResponse;
+  private NetworkResponse sseResponse;
+  private NetworkResponse webSocketResponse;
+  private DashScopeResult dashScopeResult;
+
+  @Setup
+  public void setup() throws ApiException {
+    Map<String, List<String>> headers = new HashMap<>();
+    headers.put("content-type", Collections.singletonList("application/json"));
+    headers.put("x-request-id", Collections.singletonList("5b7e8d6a-0c1f-9a2b-8f3e-4d5c6b7a8e9f"));
+    headers.put("date", Arrays.asList("Mon, 01 Jan 2024 00:00:00 GMT"));
+    httpResponse =
+        NetworkResponse.builder()
+            .headers(headers)
+            .message(Payloads.HTTP)
+            .httpStatusCode(200)
+            .build();
+    sseResponse =
+        NetworkResponse.builder()
+            .headers(headers)
+            .message(Payloads.SSE)
+            .event("result")
+            .httpStatusCode(200)
+            .build();
+    webSocketResponse = NetworkResponse.builder().message(Payloads.WEBSOCKET).build();
+    dashScopeResult = new DashScopeResult().fromResponse(Protocol.HTTP, httpResponse);
+  }
+
+  @Benchmark
+  public DashScopeResult fromHttpResponse() throws ApiException {
+    return new DashScopeResult().fromResponse(Protocol.HTTP, httpResponse);
+  }
+
+  @Benchmark
+  public DashScopeResult fromSseResponse() throws ApiException {
+    return new DashScopeResult().fromResponse(Protocol.HTTP, sseResponse);
+  }
+
+  @Benchmark
+  public DashScopeResult fromWebSocketResponse() throws ApiException {
+    return new DashScopeResult().fromResponse(Protocol.WEBSOCKET, webSocketResponse);
+  }
+
+  @Benchmark
+  public DashScopeResult fromWebSocketFrame() {
+    return new DashScopeResult()
+        .fromWebSocketResponse(WebSocketResponse.fromJson(Payloads.WEBSOCKET));
+  }
+
+  @Benchmark
+  public GenerationResult generationResult() {
+    return GenerationResult.fromDashScopeResult(dashScopeResult);
+  }
+}
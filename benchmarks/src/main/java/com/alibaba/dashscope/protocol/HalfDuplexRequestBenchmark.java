@@ -0,0 +1,103 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+package com.alibaba.dashscope.protocol;
+
+import com.alibaba.dashscope.aigc.generation.GenerationParam;
+import com.alibaba.dashscope.common.Function;
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.OutputMode;
+import com.alibaba.dashscope.common.Role;
+import com.alibaba.dashscope.common.Task;
+import com.alibaba.dashscope.common.TaskGroup;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.okhttp.JsonRequestBody;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Build the HTTP request of a generation call, and write its JSON body. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HalfDuplexRequestBenchmark {
+  // the number of history messages.
+  @Param({"2", "64"})
+  public int messages;
+
+  private HalfDuplexRequest request;
+
+  @Setup
+  public void setup() {
+    List<Message> history = new ArrayList<>();
+    history.add(
+        Message.builder()
+            .role(Role.SYSTEM.getValue())
+            .content("You are a helpful assistant.")
+            .build());
+    for (int i = 1; i < messages; ++i) {
+      history.add(
+          Message.builder()
+              .role(i % 2 == 1 ? Role.USER.getValue() : Role.ASSISTANT.getValue())
+              .content("第" + i + "轮对话: the quick brown fox jumps over the lazy dog.")
+              .build());
+    }
+    GenerationParam param =
+        GenerationParam.builder()
+            .apiKey("sk-benchmark")
+            .model("qwen-plus")
+            .messages(history)
+            .resultFormat(GenerationParam.ResultFormat.MESSAGE)
+            .temperature(0.7f)
+            .topP(0.8)
+            .build();
+    ApiServiceOption option =
+        ApiServiceOption.builder()
+            .protocol(Protocol.HTTP)
+            .httpMethod(HttpMethod.POST)
+            .streamingMode(StreamingMode.OUT)
+            .outputMode(OutputMode.ACCUMULATE)
+            .taskGroup(TaskGroup.AIGC.getValue())
+            .task(Task.TEXT_GENERATION.getValue())
+            .function(Function.GENERATION.getValue())
+            .build();
+    request = new HalfDuplexRequest(param, option);
+  }
+
+  @Benchmark
+  public HttpRequest getHttpRequest() throws NoApiKeyException, ApiException {
+    return request.getHttpRequest();
+  }
+
+  /** Build the request and write the body as the http client does. */
+  @Benchmark
+  public long writeHttpBody() throws NoApiKeyException, ApiException, IOException {
+    HttpRequest httpRequest = request.getHttpRequest();
+    Buffer sink = new Buffer();
+    if (httpRequest.getJsonBody() != null) {
+      new JsonRequestBody(null, httpRequest.getJsonBody(), httpRequest.isSerializeExplicitNulls())
+          .writeTo(sink);
+    } else {
+      sink.write(((String) httpRequest.getBody()).getBytes(StandardCharsets.UTF_8));
+    }
+    long size = sink.size();
+    sink.clear();
+    return size;
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.Payloads;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Dispatch a result-generated text frame to the response emitter. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WebSocketClientBenchmark {
+  private OkHttpWebSocketClient client;
+
+  @Setup
+  public void setup(Blackhole blackhole) {
+    client = new OkHttpWebSocketClient(new OkHttpClient(), false);
+    Flowable.<DashScopeResult>create(
+            emitter -> client.responseEmitter = emitter, BackpressureStrategy.BUFFER)
+        .subscribe(blackhole::consume);
+  }
+
+  @Benchmark
+  public void onMessage() {
+    client.onMessage(null, Payloads.WEBSOCKET);
+  }
+}
@@ -0,0 +1,79 @@
+package com.alibaba.dashscope.tokenizers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Qwen tokenizer encode and decode on short, long and CJK text. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenizerBenchmark {
+  private static final String SHORT = "You are a helpful assistant. What's the weather today?";
+  private static final String PARAGRAPH =
+      "Large language models are trained on huge corpora of text, and the tokenizer splits the "
+          + "input into pieces before byte pair encoding merges them into tokens. Numbers like "
+          + "3.14159 or 2024-01-01, code such as `for (int i = 0; i < n; ++i) {}` and URLs like "
+          + "https://dashscope.aliyuncs.com/api/v1 are all handled by the same regex.\n\n";
+  private static final String CJK_PARAGRAPH =
+      "通义千问是阿里云研发的大语言模型，能够理解和生成自然语言，支持多轮对话、文本创作、代码编写等任务。" + "分词器先用正则表达式把输入切分成片段，再用字节对编码合并成词元。\n";
+
+  @Param({"short", "long", "cjk"})
+  public String input;
+
+  private Tokenizer tokenizer;
+  private String text;
+  private List<Integer> tokens;
+
+  @Setup
+  public void setup() {
+    tokenizer = TokenizerFactory.qwen();
+    switch (input) {
+      case "short":
+        text = SHORT;
+        break;
+      case "long":
+        text = repeat(PARAGRAPH, 8192);
+        break;
+      default:
+        text = repeat(CJK_PARAGRAPH, 8192);
+    }
+    tokens = tokenizer.encodeOrdinary(text);
+  }
+
+  @Benchmark
+  public List<Integer> encode() throws Exception {
+    return tokenizer.encode(text, "all");
+  }
+
+  @Benchmark
+  public int countTokens() {
+    return tokenizer.countTokens(text);
+  }
+
+  @Benchmark
+  public String decode() {
+    return tokenizer.decode(tokens);
+  }
+
+  private static String repeat(String s, int minLength) {
+    StringBuilder sb = new StringBuilder(minLength + s.length());
+    while (sb.length() < minLength) {
+      sb.append(s);
+    }
+    return sb.toString();
+  }
+}
@@ -20,6 +20,7 @@ import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
 import com.alibaba.dashscope.tools.ToolCallBase;
 import com.alibaba.dashscope.tools.ToolCallFunction;
+import com.alibaba.dashscope.utils.FutureUtils;
 import com.alibaba.dashscope.utils.ParamUtils;
 import com.alibaba.dashscope.utils.StringUtils;
 import io.reactivex.Flowable;
@@ -27,6 +28,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -122,6 +124,23 @@ public final class Generation {
     return GenerationResult.fromDashScopeResult(syncApi.call(param));
   }
 
+  /**
+   * Call the server to get the whole result without blocking a thread, only http protocol.
+   *
+   * @param param The input param of class `GenerationParam`.
+   * @return The future result, cancel it to cancel the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<GenerationResult> callAsync(HalfDuplexServiceParam param)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    param.validate();
+    serviceOption.setIsSSE(false);
+    serviceOption.setStreamingMode(StreamingMode.NONE);
+    return FutureUtils.map(syncApi.callAsync(param), GenerationResult::fromDashScopeResult);
+  }
+
   /**
    * Call the server to get the result in the callback function.
    *
@@ -13,6 +13,8 @@ import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
 import com.alibaba.dashscope.task.AsyncTaskListParam;
+import com.alibaba.dashscope.utils.FutureUtils;
+import java.util.concurrent.CompletableFuture;
 
 public final class ImageSynthesis {
   /** default task, function & taskGroup */
@@ -165,6 +167,32 @@ public final class ImageSynthesis {
     return ImageSynthesisResult.fromDashScopeResult(asyncApi.call(param, serviceOption));
   }
 
+  /**
+   * Submit the task and wait for the result without blocking a thread, the task is queried by the
+   * scheduled requests.
+   *
+   * @param param The input param of class `ImageSynthesisParam`.
+   * @return The future image synthesis result, cancel it to stop waiting, the task on the server is
+   *     not canceled.
+   * @throws NoApiKeyException Can not find api key.
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   */
+  public CompletableFuture<ImageSynthesisResult> callAsync(ImageSynthesisParam param)
+      throws ApiException, NoApiKeyException {
+    // add local file support
+    try {
+      param.checkAndUpload();
+    } catch (UploadFileException e) {
+      throw new ApiException(e);
+    }
+    ApiServiceOption serviceOption = createServiceOptions;
+    if (param.getModel().contains("imageedit") || param.getModel().contains("wan2.5-i2i")) {
+      serviceOption.setTask("image2image");
+    }
+    return FutureUtils.map(
+        asyncApi.callAsync(param, serviceOption), ImageSynthesisResult::fromDashScopeResult);
+  }
+
   /**
    * @param param The input param of class `SketchImageSynthesisParam`
    * @return The image synthesis result `ImageSynthesisResult`
@@ -10,6 +10,7 @@ import com.alibaba.dashscope.exception.UploadFileException;
 import com.alibaba.dashscope.protocol.*;
 import com.alibaba.dashscope.tools.ToolCallBase;
 import com.alibaba.dashscope.tools.ToolCallFunction;
+import com.alibaba.dashscope.utils.FutureUtils;
 import com.alibaba.dashscope.utils.OSSUploadCertificate;
 import com.alibaba.dashscope.utils.ParamUtils;
 import com.alibaba.dashscope.utils.PreprocessMessageInput;
@@ -19,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -107,6 +109,26 @@ public final class MultiModalConversation {
     return MultiModalConversationResult.fromDashScopeResult(syncApi.call(param));
   }
 
+  /**
+   * Call the server to get the whole result without blocking a thread, the local files are uploaded
+   * before the call returns.
+   *
+   * @param param The input param of class `MultiModalConversationParam`.
+   * @return The future result, cancel it to cancel the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   * @throws UploadFileException File upload failed.
+   */
+  public CompletableFuture<MultiModalConversationResult> callAsync(
+      MultiModalConversationParam param)
+      throws ApiException, NoApiKeyException, UploadFileException {
+    serviceOption.setIsSSE(false);
+    serviceOption.setStreamingMode(StreamingMode.NONE);
+    preprocessInput(param);
+    return FutureUtils.map(
+        syncApi.callAsync(param), MultiModalConversationResult::fromDashScopeResult);
+  }
+
   /**
    * Call the server to get the result in the callback function.
    *
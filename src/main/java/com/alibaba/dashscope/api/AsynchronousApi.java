@@ -13,21 +13,30 @@ import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
 import com.alibaba.dashscope.task.AsyncTaskListParam;
 import com.alibaba.dashscope.task.AsyncTaskParam;
+import com.alibaba.dashscope.utils.SdkThreads;
 import com.alibaba.dashscope.utils.StringUtils;
 import com.google.gson.JsonObject;
 import java.net.HttpURLConnection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 /** Support DashScope async task CRUD. */
 public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
+  private static final int INITIAL_WAIT_MILLISECONDS = 1000;
+  private static final int MAX_WAIT_MILLISECONDS = 5 * 1000;
+  private static final int INCREMENT_STEPS = 3;
   final HalfDuplexClient client;
   ConnectionOptions connectionOptions;
+  final RetryPolicy retryPolicy;
 
   /** Create default http client. */
   public AsynchronousApi() {
     this.client = ClientProviders.getHalfDuplexClient("https");
     this.connectionOptions = null;
+    this.retryPolicy = RetryPolicy.getDefault();
   }
 
   /**
@@ -38,6 +47,10 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
   public AsynchronousApi(ConnectionOptions connectionOptions) {
     this.client = ClientProviders.getHalfDuplexClient(connectionOptions, "https");
     this.connectionOptions = connectionOptions;
+    this.retryPolicy =
+        connectionOptions.getRetryPolicy() == null
+            ? RetryPolicy.getDefault()
+            : connectionOptions.getRetryPolicy();
   }
 
   /**
@@ -70,6 +83,130 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
     return client.send(req);
   }
 
+  /**
+   * Submit the task and wait for it completed without blocking a thread, the task is queried by the
+   * scheduled requests with the same interval as wait.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOption The service option.
+   * @return The future task result, cancel it to stop the submitting or the querying, the task on
+   *     the server is not canceled.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   */
+  public CompletableFuture<DashScopeResult> callAsync(ParamT param, ServiceOption serviceOption)
+      throws ApiException, NoApiKeyException {
+    CompletableFuture<DashScopeResult> submit =
+        client.sendAsync(new HalfDuplexRequest(param, serviceOption));
+    TaskPoller poller = new TaskPoller(param.getApiKey(), serviceOption.getBaseHttpUrl(), submit);
+    submit.whenComplete(
+        (taskInfo, error) -> {
+          if (error != null) {
+            poller.future.completeExceptionally(error);
+            return;
+          }
+          try {
+            poller.start(getTaskId(taskInfo));
+          } catch (Throwable e) {
+            poller.future.completeExceptionally(e);
+          }
+        });
+    return poller.future;
+  }
+
+  /** Query the task by the scheduled async requests until it is finished. */
+  private final class TaskPoller {
+    private final CompletableFuture<DashScopeResult> future = new CompletableFuture<>();
+    private final AtomicReference<Future<?>> current;
+    private final String apiKey;
+    private final String baseUrl;
+    private HalfDuplexRequest req;
+    private int waitMilliseconds = INITIAL_WAIT_MILLISECONDS;
+    private int step;
+    private int failures;
+
+    TaskPoller(String apiKey, String baseUrl, Future<?> submit) {
+      this.apiKey = apiKey;
+      this.baseUrl = baseUrl;
+      this.current = new AtomicReference<>(submit);
+      future.whenComplete(
+          (result, error) -> {
+            if (future.isCancelled()) {
+              current.get().cancel(false);
+            }
+          });
+    }
+
+    void start(String taskId) {
+      AsyncTaskOption serviceOption =
+          AsyncTaskOption.builder()
+              .protocol(Protocol.HTTP)
+              .httpMethod(HttpMethod.GET)
+              .url(StringUtils.format("/tasks/%s", taskId))
+              .baseHttpUrl(baseUrl)
+              .build();
+      AsyncTaskParam getParam = AsyncTaskParam.builder().taskId(taskId).apiKey(apiKey).build();
+      req = new HalfDuplexRequest(getParam, serviceOption);
+      poll();
+    }
+
+    private void poll() {
+      if (future.isDone()) {
+        return;
+      }
+      CompletableFuture<DashScopeResult> query;
+      try {
+        query = client.sendAsync(req);
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+        return;
+      }
+      setCurrent(query);
+      query.whenComplete(
+          (taskResult, error) -> {
+            // whenComplete drops the exceptions of the action, the caller would wait forever.
+            try {
+              onQueryComplete(taskResult, error);
+            } catch (Throwable e) {
+              future.completeExceptionally(e);
+            }
+          });
+    }
+
+    private void onQueryComplete(DashScopeResult taskResult, Throwable error) {
+      if (error != null) {
+        if (isUnavailable(error)) {
+          // keep waiting the task, back off instead of querying again at once.
+          schedule(retryPolicy.getBackoffMillis(++failures));
+        } else {
+          future.completeExceptionally(error);
+        }
+        return;
+      }
+      failures = 0;
+      if (isTaskFinished(taskResult)) {
+        future.complete(taskResult);
+      } else {
+        step += 1;
+        waitMilliseconds = nextWaitMilliseconds(waitMilliseconds, step);
+        schedule(waitMilliseconds);
+      }
+    }
+
+    private void schedule(long delayMillis) {
+      if (!future.isDone()) {
+        setCurrent(SdkThreads.schedule(this::poll, delayMillis));
+      }
+    }
+
+    private void setCurrent(Future<?> next) {
+      current.set(next);
+      if (future.isCancelled()) {
+        next.cancel(false);
+      }
+    }
+  }
+
   /**
    * Wait for async task completed and return task result.
    *
@@ -100,10 +237,10 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
     AsyncTaskParam getParam =
         AsyncTaskParam.builder().taskId(taskId).apiKey(apiKey).headers(customHeaders).build();
     HalfDuplexRequest req = new HalfDuplexRequest(getParam, serviceOption);
-    int waitMilliseconds = 1000;
-    int maxWaitMilliseconds = 5 * 1000;
-    int incrementSteps = 3;
+    int waitMilliseconds = INITIAL_WAIT_MILLISECONDS;
     int step = 0;
+    // the unavailable responses in a row, the client retries are used up.
+    int failures = 0;
     long startTime = System.currentTimeMillis();
     long timeoutMillis = timeoutSeconds > 0 ? timeoutSeconds * 1000L : -1L;
     while (true) {
@@ -123,50 +260,69 @@ public final class AsynchronousApi<ParamT extends HalfDuplexParamBase> {
       }
       try {
         DashScopeResult taskResult = client.send(req);
-        JsonObject output = (JsonObject) taskResult.getOutput();
-        String taskStatus =
-            output.get(TASK_STATUS) == null ? null : output.get(TASK_STATUS).getAsString();
-        if (TaskStatus.FAILED.getValue().equals(taskStatus)
-            || TaskStatus.CANCELED.getValue().equals(taskStatus)
-            || TaskStatus.UNKNOWN.getValue().equals(taskStatus)) {
-          return taskResult;
-        } else if (TaskStatus.SUCCEEDED.getValue().equals(taskStatus)) {
+        failures = 0;
+        if (isTaskFinished(taskResult)) {
           return taskResult;
-        } else {
-          // we start by querying once every second, and double the query interval after
-          // every 3(increment_steps) intervals, until we hit the max waiting interval of 5(seconds）
-          // TODO: investigate if we can use long-poll (server side return immediately when ready)
-          step += 1;
-          if (waitMilliseconds < maxWaitMilliseconds && step % incrementSteps == 0) {
-            waitMilliseconds =
-                waitMilliseconds * 2 > maxWaitMilliseconds
-                    ? maxWaitMilliseconds
-                    : waitMilliseconds * 2;
-          }
-          long sleepMs = waitMilliseconds;
-          if (timeoutMillis > 0) {
-            long remaining = timeoutMillis - (System.currentTimeMillis() - startTime);
-            if (remaining <= 0) {
-              continue;
-            }
-            if (remaining < sleepMs) {
-              sleepMs = remaining;
-            }
-          }
-          try {
-            Thread.sleep(sleepMs);
-          } catch (InterruptedException ignored) {
-          }
         }
+        // TODO: investigate if we can use long-poll (server side return immediately when ready)
+        step += 1;
+        waitMilliseconds = nextWaitMilliseconds(waitMilliseconds, step);
+        sleep(waitMilliseconds, startTime, timeoutMillis);
       } catch (ApiException e) {
-        if (e.getStatus().getStatusCode() != HttpURLConnection.HTTP_UNAVAILABLE
-            && e.getStatus().getStatusCode() != HttpURLConnection.HTTP_GATEWAY_TIMEOUT) {
+        if (!isUnavailable(e)) {
           throw e;
         }
+        // keep waiting the task, back off instead of querying again at once.
+        sleep(retryPolicy.getBackoffMillis(++failures), startTime, timeoutMillis);
       }
     }
   }
 
+  /**
+   * We start by querying once every second, and double the query interval after every 3
+   * (INCREMENT_STEPS) intervals, until we hit the max waiting interval of 5 seconds.
+   */
+  private static int nextWaitMilliseconds(int waitMilliseconds, int step) {
+    if (waitMilliseconds < MAX_WAIT_MILLISECONDS && step % INCREMENT_STEPS == 0) {
+      return Math.min(waitMilliseconds * 2, MAX_WAIT_MILLISECONDS);
+    }
+    return waitMilliseconds;
+  }
+
+  private static boolean isTaskFinished(DashScopeResult taskResult) {
+    JsonObject output = (JsonObject) taskResult.getOutput();
+    String taskStatus =
+        output.get(TASK_STATUS) == null ? null : output.get(TASK_STATUS).getAsString();
+    return TaskStatus.FAILED.getValue().equals(taskStatus)
+        || TaskStatus.CANCELED.getValue().equals(taskStatus)
+        || TaskStatus.UNKNOWN.getValue().equals(taskStatus)
+        || TaskStatus.SUCCEEDED.getValue().equals(taskStatus);
+  }
+
+  private static boolean isUnavailable(Throwable error) {
+    return error instanceof ApiException
+        && (((ApiException) error).getStatus().getStatusCode() == HttpURLConnection.HTTP_UNAVAILABLE
+            || ((ApiException) error).getStatus().getStatusCode()
+                == HttpURLConnection.HTTP_GATEWAY_TIMEOUT);
+  }
+
+  /** Sleep the polling interval, but not beyond the timeout. */
+  private static void sleep(long sleepMs, long startTime, long timeoutMillis) {
+    if (timeoutMillis > 0) {
+      long remaining = timeoutMillis - (System.currentTimeMillis() - startTime);
+      if (remaining <= 0) {
+        return;
+      }
+      if (remaining < sleepMs) {
+        sleepMs = remaining;
+      }
+    }
+    try {
+      Thread.sleep(sleepMs);
+    } catch (InterruptedException ignored) {
+    }
+  }
+
   /**
    * Wait for async task completed and return task result.
    *
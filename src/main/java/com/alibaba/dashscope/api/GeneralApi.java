@@ -13,6 +13,7 @@ import com.alibaba.dashscope.protocol.HalfDuplexClient;
 import com.alibaba.dashscope.protocol.HalfDuplexRequest;
 import com.alibaba.dashscope.protocol.ServiceOption;
 import io.reactivex.Flowable;
+import java.util.concurrent.CompletableFuture;
 
 /** Support DashScope async task CRUD. */
 public final class GeneralApi<ParamT extends HalfDuplexParamBase> {
@@ -50,6 +51,21 @@ public final class GeneralApi<ParamT extends HalfDuplexParamBase> {
     return client.send(req);
   }
 
+  /**
+   * Call the server to get the whole result without blocking a thread.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @param serviceOptions The service option.
+   * @return The future result, cancel it to cancel the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   */
+  public CompletableFuture<DashScopeResult> callAsync(ParamT param, ServiceOption serviceOptions)
+      throws ApiException, NoApiKeyException {
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOptions);
+    return client.sendAsync(req);
+  }
+
   /**
    * Call the server to get the result in the callback function.
    *
@@ -44,6 +44,15 @@ public final class SynchronizeFullDuplexApi<ParamT extends FullDuplexServicePara
     }
   }
 
+  /**
+   * Get the bytes of the streaming data waiting to be sent, the queue depth of the task.
+   *
+   * @return The queued bytes.
+   */
+  public long getSendQueueSize() {
+    return client != null ? client.getSendQueueSize() : 0;
+  }
+
   /**
    * Create custom http client
    *
@@ -13,6 +13,7 @@ import com.alibaba.dashscope.protocol.HalfDuplexClient;
 import com.alibaba.dashscope.protocol.HalfDuplexRequest;
 import com.alibaba.dashscope.protocol.ServiceOption;
 import io.reactivex.Flowable;
+import java.util.concurrent.CompletableFuture;
 
 /** Dashscope synchronize half duplex request processing, both http and websocket support. */
 public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase> {
@@ -58,6 +59,20 @@ public final class SynchronizeHalfDuplexApi<ParamT extends HalfDuplexParamBase>
     return client.send(req);
   }
 
+  /**
+   * Call the server to get the whole result without blocking a thread.
+   *
+   * @param param The input param, should be the subclass of `Param`.
+   * @return The future result, cancel it to cancel the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   */
+  public CompletableFuture<DashScopeResult> callAsync(ParamT param)
+      throws ApiException, NoApiKeyException {
+    HalfDuplexRequest req = new HalfDuplexRequest(param, serviceOptions);
+    return client.sendAsync(req);
+  }
+
   /**
    * Call the server to get the result in the callback function.
    *
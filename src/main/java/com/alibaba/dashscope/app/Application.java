@@ -9,7 +9,9 @@ import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.ApiServiceOption;
 import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.FutureUtils;
 import io.reactivex.Flowable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Title Ap completion calls.<br>
@@ -60,6 +62,25 @@ public class Application {
     return ApplicationResult.fromDashScopeResult(syncApi.call(param));
   }
 
+  /**
+   * app completion call for http request without blocking a thread
+   *
+   * @param param app completion params
+   * @return future app completion result, cancel it to cancel the request
+   * @throws ApiException failed to build the request, the request failures complete the future
+   * @throws NoApiKeyException can not find api key
+   * @throws InputRequiredException missing required inputs
+   */
+  public CompletableFuture<ApplicationResult> callAsync(ApplicationParam param)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    param.validate();
+    setRequestOption(serviceOption, param.getAppId());
+    serviceOption.setIsSSE(false);
+    serviceOption.setStreamingMode(StreamingMode.NONE);
+
+    return FutureUtils.map(syncApi.callAsync(param), ApplicationResult::fromDashScopeResult);
+  }
+
   /**
    * app completion call for http request by sse stream
    *
@@ -4,6 +4,7 @@ package com.alibaba.dashscope.audio.asr.recognition;
 
 import com.alibaba.dashscope.api.SynchronizeFullDuplexApi;
 import com.alibaba.dashscope.audio.asr.recognition.timestamp.Sentence;
+import com.alibaba.dashscope.audio.protocol.AudioPacing;
 import com.alibaba.dashscope.common.*;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.InputRequiredException;
@@ -18,7 +19,6 @@ import io.reactivex.BackpressureStrategy;
 import io.reactivex.Emitter;
 import io.reactivex.Flowable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -29,7 +29,6 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.slf4j.Slf4j;
-import lombok.val;
 
 @Slf4j
 public final class Recognition {
@@ -313,6 +312,18 @@ public final class Recognition {
   }
 
   public String call(RecognitionParam param, File file) {
+    return call(param, file, AudioPacing.getDefault());
+  }
+
+  /**
+   * Recognize a local audio file, the audio is sent by the pacing.
+   *
+   * @param param The recognition param, the format and sample rate pace the audio.
+   * @param file The local audio file.
+   * @param pacing How fast the audio is sent, e.g. AudioPacing.asFastAsPossible().
+   * @return The recognized sentences in json.
+   */
+  public String call(RecognitionParam param, File file, AudioPacing pacing) {
     this.reset();
     if (param == null) {
       throw new ApiException(
@@ -330,29 +341,10 @@ public final class Recognition {
     AtomicReference<Throwable> finalError = new AtomicReference<>(null);
     List<Sentence> sentenceList = new ArrayList<>();
     Flowable<ByteBuffer> audioFrames =
-        Flowable.create(
-            emitter -> {
-              new Thread(
-                      () -> {
-                        try {
-                          try (val channel = new FileInputStream(file).getChannel()) {
-                            ByteBuffer buffer = ByteBuffer.allocate(4096 * 4);
-                            while (channel.read(buffer) != -1 && !cancel.get()) {
-                              buffer.flip();
-                              emitter.onNext(buffer);
-                              buffer = ByteBuffer.allocate(4096 * 4);
-                              Thread.sleep(100);
-                            }
-                          }
-                          emitter.onComplete();
-                          this.stopStreamTimeStamp = System.currentTimeMillis();
-                        } catch (Exception e) {
-                          emitter.onError(e);
-                        }
-                      })
-                  .start();
-            },
-            BackpressureStrategy.BUFFER);
+        pacing
+            .read(file, param.getFormat(), param.getSampleRate())
+            .takeWhile(buffer -> !cancel.get())
+            .doOnComplete(() -> this.stopStreamTimeStamp = System.currentTimeMillis());
     preRequestId = UUID.randomUUID().toString();
     try {
       duplexApi
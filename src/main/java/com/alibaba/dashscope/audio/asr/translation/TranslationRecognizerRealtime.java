@@ -5,6 +5,7 @@ package com.alibaba.dashscope.audio.asr.translation;
 import com.alibaba.dashscope.api.SynchronizeFullDuplexApi;
 import com.alibaba.dashscope.audio.asr.translation.results.TranslationRecognizerResult;
 import com.alibaba.dashscope.audio.asr.translation.results.TranslationRecognizerResultPack;
+import com.alibaba.dashscope.audio.protocol.AudioPacing;
 import com.alibaba.dashscope.common.*;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.InputRequiredException;
@@ -17,7 +18,6 @@ import io.reactivex.BackpressureStrategy;
 import io.reactivex.Emitter;
 import io.reactivex.Flowable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.Queue;
@@ -30,7 +30,6 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.experimental.SuperBuilder;
 import lombok.extern.slf4j.Slf4j;
-import lombok.val;
 
 @Slf4j
 public final class TranslationRecognizerRealtime {
@@ -315,6 +314,19 @@ public final class TranslationRecognizerRealtime {
    * @param file Local audio file
    */
   public TranslationRecognizerResultPack call(TranslationRecognizerParam param, File file) {
+    return call(param, file, AudioPacing.getDefault());
+  }
+
+  /**
+   * Speech Translation and Recognition from local file, the audio is sent by the pacing.
+   *
+   * @param param Configuration for speech translation and recognition, including audio format,
+   *     source language, target languages, etc.
+   * @param file Local audio file
+   * @param pacing How fast the audio is sent, e.g. AudioPacing.asFastAsPossible().
+   */
+  public TranslationRecognizerResultPack call(
+      TranslationRecognizerParam param, File file, AudioPacing pacing) {
     this.reset();
     if (param == null) {
       throw new ApiException(
@@ -330,29 +342,10 @@ public final class TranslationRecognizerRealtime {
     AtomicBoolean cancel = new AtomicBoolean(false);
     TranslationRecognizerResultPack results = new TranslationRecognizerResultPack();
     Flowable<ByteBuffer> audioFrames =
-        Flowable.create(
-            emitter -> {
-              new Thread(
-                      () -> {
-                        try {
-                          try (val channel = new FileInputStream(file).getChannel()) {
-                            ByteBuffer buffer = ByteBuffer.allocate(4096 * 4);
-                            while (channel.read(buffer) != -1 && !cancel.get()) {
-                              buffer.flip();
-                              emitter.onNext(buffer);
-                              buffer = ByteBuffer.allocate(4096 * 4);
-                              Thread.sleep(100);
-                            }
-                          }
-                          emitter.onComplete();
-                          this.stopStreamTimeStamp = System.currentTimeMillis();
-                        } catch (Exception e) {
-                          emitter.onError(e);
-                        }
-                      })
-                  .start();
-            },
-            BackpressureStrategy.BUFFER);
+        pacing
+            .read(file, param.getFormat(), param.getSampleRate())
+            .takeWhile(buffer -> !cancel.get())
+            .doOnComplete(() -> this.stopStreamTimeStamp = System.currentTimeMillis());
     preRequestId = UUID.randomUUID().toString();
     try {
       duplexApi
@@ -0,0 +1,209 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.audio.protocol;
+
+import com.alibaba.dashscope.utils.SdkThreads;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableEmitter;
+import io.reactivex.schedulers.Schedulers;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * How fast the audio of a file is sent to the recognizers. The file is read by a file channel, a
+ * chunk at a time, without a thread per file: as fast as the websocket send queue accepts, or paced
+ * at a multiple of the real time. The paced chunks are timed by the SDK timer and read on the
+ * RxJava io scheduler.
+ *
+ * <p>The real time is computed from the sample rate for the pcm and wav formats, 16 bit mono. The
+ * bitrate of the compressed formats is unknown, they are sent 16KB per 100ms.
+ */
+@Slf4j
+@Getter
+@Builder
+public final class AudioPacing {
+  /** The pacing modes. */
+  public enum Mode {
+    /** As fast as the server accepts, limited by the send queue backpressure only. */
+    AS_FAST_AS_POSSIBLE,
+    /** At realTimeFactor times the real time of the audio. */
+    REAL_TIME,
+  }
+
+  // the chunk and period of the formats without known bitrate.
+  private static final int UNKNOWN_FORMAT_CHUNK_SIZE = 4096 * 4;
+  private static final long UNKNOWN_FORMAT_PERIOD_MILLIS = 100;
+
+  /** The pacing mode. */
+  @Builder.Default private Mode mode = Mode.REAL_TIME;
+
+  /** The multiple of the real time in the REAL_TIME mode, 5 sends 1s of audio per 200ms. */
+  @Builder.Default private double realTimeFactor = 5;
+
+  /** The audio duration of a chunk, for the formats of known bitrate. */
+  @Builder.Default private Duration chunkDuration = Duration.ofMillis(100);
+
+  /**
+   * Get the default pacing, 5 times the real time.
+   *
+   * @return The default pacing.
+   */
+  public static AudioPacing getDefault() {
+    return AudioPacing.builder().build();
+  }
+
+  /**
+   * Send as fast as the server accepts.
+   *
+   * @return The pacing.
+   */
+  public static AudioPacing asFastAsPossible() {
+    return AudioPacing.builder().mode(Mode.AS_FAST_AS_POSSIBLE).build();
+  }
+
+  /**
+   * Send at a multiple of the real time.
+   *
+   * @param realTimeFactor The multiple of the real time, 1 for the real time.
+   * @return The pacing.
+   */
+  public static AudioPacing realTime(double realTimeFactor) {
+    return AudioPacing.builder().mode(Mode.REAL_TIME).realTimeFactor(realTimeFactor).build();
+  }
+
+  /**
+   * Get the bytes per second of the audio.
+   *
+   * @param format The audio format, e.g. pcm.
+   * @param sampleRate The sample rate.
+   * @return The bytes per second, -1 if the bitrate of the format is unknown.
+   */
+  public static long getBytesPerSecond(String format, int sampleRate) {
+    if ("pcm".equalsIgnoreCase(format) || "wav".equalsIgnoreCase(format)) {
+      return sampleRate * 2L;
+    }
+    return -1;
+  }
+
+  /**
+   * Read the audio of a file by the pacing, the file is opened on subscribe.
+   *
+   * @param file The audio file.
+   * @param format The audio format.
+   * @param sampleRate The sample rate.
+   * @return The audio chunks.
+   */
+  public Flowable<ByteBuffer> read(File file, String format, int sampleRate) {
+    long bytesPerSecond = getBytesPerSecond(format, sampleRate);
+    int chunkSize =
+        bytesPerSecond > 0
+            ? (int) Math.max(1, bytesPerSecond * chunkDuration.toMillis() / 1000)
+            : UNKNOWN_FORMAT_CHUNK_SIZE;
+    if (mode == Mode.AS_FAST_AS_POSSIBLE) {
+      // read a chunk per request, the subscriber requests while the send queue is short.
+      return Flowable.generate(
+          () -> FileChannel.open(file.toPath(), StandardOpenOption.READ),
+          (channel, emitter) -> {
+            ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+            if (channel.read(buffer) < 0) {
+              emitter.onComplete();
+            } else {
+              buffer.flip();
+              emitter.onNext(buffer);
+            }
+            return channel;
+          },
+          FileChannel::close);
+    }
+    if (realTimeFactor <= 0) {
+      throw new IllegalArgumentException("realTimeFactor must be positive, got " + realTimeFactor);
+    }
+    long periodNanos =
+        bytesPerSecond > 0
+            ? (long) (chunkDuration.toNanos() / realTimeFactor)
+            : TimeUnit.MILLISECONDS.toNanos(UNKNOWN_FORMAT_PERIOD_MILLIS);
+    return Flowable.create(
+        emitter -> new PacedReader(file, chunkSize, periodNanos, emitter).start(),
+        BackpressureStrategy.BUFFER);
+  }
+
+  /**
+   * Read a chunk per period, the next chunk is due by the start time. A tick of the SDK timer runs
+   * the blocking read and the emit on the io scheduler.
+   */
+  private static final class PacedReader implements Runnable {
+    private final File file;
+    private final int chunkSize;
+    private final long periodNanos;
+    private final FlowableEmitter<ByteBuffer> emitter;
+    private FileChannel channel;
+    private long startNanos;
+    private long chunks;
+
+    private PacedReader(
+        File file, int chunkSize, long periodNanos, FlowableEmitter<ByteBuffer> emitter) {
+      this.file = file;
+      this.chunkSize = chunkSize;
+      this.periodNanos = periodNanos;
+      this.emitter = emitter;
+    }
+
+    void start() throws IOException {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      emitter.setCancellable(this::close);
+      startNanos = System.nanoTime();
+      run();
+    }
+
+    @Override
+    public void run() {
+      if (!emitter.isCancelled()) {
+        Schedulers.io().scheduleDirect(this::readChunk);
+      }
+    }
+
+    private void readChunk() {
+      if (emitter.isCancelled()) {
+        return;
+      }
+      try {
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        if (channel.read(buffer) < 0) {
+          close();
+          emitter.onComplete();
+          return;
+        }
+        buffer.flip();
+        emitter.onNext(buffer);
+      } catch (IOException e) {
+        close();
+        // a cancel closes the channel under the read.
+        if (!emitter.isCancelled()) {
+          emitter.onError(e);
+        }
+        return;
+      }
+      chunks += 1;
+      long delayNanos = startNanos + chunks * periodNanos - System.nanoTime();
+      // the delay is from the start time, the rounding to milliseconds does not add up.
+      SdkThreads.schedule(this, Math.max(0, TimeUnit.NANOSECONDS.toMillis(delayNanos)));
+    }
+
+    private void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.debug("Close audio file failed: {}", e.getMessage());
+      }
+    }
+  }
+}
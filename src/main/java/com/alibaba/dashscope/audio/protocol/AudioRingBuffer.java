@@ -0,0 +1,94 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.audio.protocol;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed size audio sink read by a player thread. The websocket thread never waits: when the
+ * player falls behind, the oldest audio is overwritten and counted in getDroppedBytes.
+ */
+public final class AudioRingBuffer implements AudioSink {
+  private final byte[] buffer;
+  // the next byte to read and the bytes to read, guarded by this.
+  private int head;
+  private int size;
+  private long droppedBytes;
+
+  /**
+   * Create a ring buffer.
+   *
+   * @param capacity The capacity in bytes, e.g. 2 seconds of audio.
+   */
+  public AudioRingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive, got " + capacity);
+    }
+    this.buffer = new byte[capacity];
+  }
+
+  @Override
+  public synchronized void write(ByteBuffer frame) {
+    int length = frame.remaining();
+    if (length > buffer.length) {
+      // only the last capacity bytes fit.
+      droppedBytes += length - buffer.length;
+      frame.position(frame.position() + length - buffer.length);
+      length = buffer.length;
+    }
+    int overflow = size + length - buffer.length;
+    if (overflow > 0) {
+      head = (head + overflow) % buffer.length;
+      size -= overflow;
+      droppedBytes += overflow;
+    }
+    int tail = (head + size) % buffer.length;
+    int first = Math.min(length, buffer.length - tail);
+    frame.get(buffer, tail, first);
+    frame.get(buffer, 0, length - first);
+    size += length;
+  }
+
+  /**
+   * Read the buffered audio, without waiting.
+   *
+   * @param dst The destination, filled up to its remaining bytes.
+   * @return The bytes read, 0 if nothing is buffered.
+   */
+  public synchronized int read(ByteBuffer dst) {
+    int length = Math.min(size, dst.remaining());
+    int first = Math.min(length, buffer.length - head);
+    dst.put(buffer, head, first);
+    dst.put(buffer, 0, length - first);
+    head = (head + length) % buffer.length;
+    size -= length;
+    return length;
+  }
+
+  /**
+   * Get the buffered bytes.
+   *
+   * @return The bytes available to read.
+   */
+  public synchronized int available() {
+    return size;
+  }
+
+  /**
+   * Get the bytes overwritten before they were read.
+   *
+   * @return The dropped bytes.
+   */
+  public synchronized long getDroppedBytes() {
+    return droppedBytes;
+  }
+
+  /**
+   * Get the capacity.
+   *
+   * @return The capacity in bytes.
+   */
+  public int getCapacity() {
+    return buffer.length;
+  }
+}
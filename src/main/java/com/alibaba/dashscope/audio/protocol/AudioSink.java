@@ -0,0 +1,57 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.audio.protocol;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import okio.Buffer;
+import okio.Sink;
+
+/**
+ * Receives the synthesized audio frames as they arrive, on the websocket thread. The frames are
+ * read-only views of the received websocket messages, valid after the call, a sink keeping a frame
+ * does not copy it.
+ *
+ * <p>Write to a file, a socket or a player without holding the full audio, see
+ * SpeechSynthesizer.setAudioSink and SpeechSynthesizer.setAccumulateAudio.
+ */
+@FunctionalInterface
+public interface AudioSink {
+  /**
+   * Write an audio frame.
+   *
+   * @param frame The frame, read-only.
+   * @throws IOException If the frame can not be written. The synthesis task is canceled, the
+   *     callback gets the error once and the blocking calls throw it.
+   */
+  void write(ByteBuffer frame) throws IOException;
+
+  /**
+   * A sink writing the frames to a channel, e.g. a FileChannel.
+   *
+   * @param channel The channel, it is not closed by the sink.
+   * @return The sink.
+   */
+  static AudioSink of(WritableByteChannel channel) {
+    return frame -> {
+      while (frame.hasRemaining()) {
+        channel.write(frame);
+      }
+    };
+  }
+
+  /**
+   * A sink writing the frames to an okio sink, the frame is copied to the okio segments.
+   *
+   * @param sink The okio sink, it is not closed by the sink.
+   * @return The sink.
+   */
+  static AudioSink of(Sink sink) {
+    return frame -> {
+      Buffer buffer = new Buffer();
+      buffer.write(frame);
+      sink.write(buffer, buffer.size());
+    };
+  }
+}
@@ -39,9 +39,23 @@ public class SpeechSynthesisResult {
   }
 
   public static SpeechSynthesisResult fromDashScopeResult(DashScopeResult dashScopeResult) {
+    return fromDashScopeResult(dashScopeResult, true);
+  }
+
+  /**
+   * Convert the result of the websocket.
+   *
+   * @param dashScopeResult The websocket result.
+   * @param copyAudioFrame Whether to copy the audio frame to a writable buffer with an accessible
+   *     array, otherwise the audio frame is a read-only view of the received message.
+   * @return The speech synthesis result.
+   */
+  public static SpeechSynthesisResult fromDashScopeResult(
+      DashScopeResult dashScopeResult, boolean copyAudioFrame) {
     SpeechSynthesisResult result = new SpeechSynthesisResult();
     if (dashScopeResult.getOutput() instanceof ByteBuffer) {
-      result.audioFrame = cloneBuffer((ByteBuffer) dashScopeResult.getOutput());
+      ByteBuffer frame = (ByteBuffer) dashScopeResult.getOutput();
+      result.audioFrame = copyAudioFrame ? cloneBuffer(frame) : frame.asReadOnlyBuffer();
     } else if (dashScopeResult.getOutput() instanceof JsonObject) {
       result.output = (JsonObject) dashScopeResult.getOutput();
     }
@@ -49,6 +49,7 @@ public final class SpeechSynthesizer {
           .taskGroup(TaskGroup.AUDIO.getValue())
           .task(Task.TEXT_TO_SPEECH.getValue())
           .function(Function.SPEECH_SYNTHESIZER.getValue())
+          .binaryOutput(true)
           .build();
   @Getter private final SynchronizeHalfDuplexApi<SpeechSynthesisParam> syncApi;
 
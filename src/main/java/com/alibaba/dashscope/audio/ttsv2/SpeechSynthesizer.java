@@ -3,6 +3,7 @@
 package com.alibaba.dashscope.audio.ttsv2;
 
 import com.alibaba.dashscope.api.SynchronizeFullDuplexApi;
+import com.alibaba.dashscope.audio.protocol.AudioSink;
 import com.alibaba.dashscope.audio.tts.SpeechSynthesisResult;
 import com.alibaba.dashscope.common.*;
 import com.alibaba.dashscope.exception.ApiException;
@@ -10,16 +11,15 @@ import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
 import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.SdkThreads;
 import com.google.gson.JsonObject;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Emitter;
 import io.reactivex.Flowable;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.Channels;
-import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
@@ -53,7 +53,21 @@ public final class SpeechSynthesizer {
   private SpeechSynthesisParam parameters;
 
   @Getter private ByteBuffer audioData;
-  private ByteArrayOutputStream outputStream;
+  // the audio frames of the call, joined to audioData on complete.
+  private List<ByteBuffer> audioFrames;
+
+  /** Receives the audio frames as they arrive, before the callback. */
+  @Getter @Setter private AudioSink audioSink;
+
+  /**
+   * Whether to keep the full audio for the return value of call and getAudioData. Disable it with
+   * an audioSink to not hold the audio of long syntheses in memory.
+   */
+  @Getter @Setter private boolean accumulateAudio = true;
+
+  // the sink error that failed the current task, thrown by the blocking calls.
+  private volatile ApiException sinkError;
+
   private String preRequestId = null;
   private boolean isFirst = true;
   private AtomicBoolean canceled = new AtomicBoolean(false);
@@ -95,6 +109,7 @@ public final class SpeechSynthesizer {
             .function(Function.SPEECH_SYNTHESIZER.getValue())
             .baseWebSocketUrl(baseUrl)
             .passTaskStarted(true)
+            .binaryOutput(true)
             .build();
     duplexApi =
         new SynchronizeFullDuplexApi<>(defaultAudioOptionsIfNull(connectionOptions), serviceOption);
@@ -120,6 +135,7 @@ public final class SpeechSynthesizer {
             .function(Function.SPEECH_SYNTHESIZER.getValue())
             .baseWebSocketUrl(baseUrl)
             .passTaskStarted(true)
+            .binaryOutput(true)
             .build();
     duplexApi =
         new SynchronizeFullDuplexApi<>(defaultAudioOptionsIfNull(connectionOptions), serviceOption);
@@ -138,6 +154,7 @@ public final class SpeechSynthesizer {
             .task(Task.TEXT_TO_SPEECH.getValue())
             .function(Function.SPEECH_SYNTHESIZER.getValue())
             .passTaskStarted(true)
+            .binaryOutput(true)
             .build();
     duplexApi = new SynchronizeFullDuplexApi<>(defaultAudioOptionsIfNull(null), serviceOption);
     this.callback = null;
@@ -187,6 +204,7 @@ public final class SpeechSynthesizer {
             .function(Function.SPEECH_SYNTHESIZER.getValue())
             .baseWebSocketUrl(baseUrl)
             .passTaskStarted(true)
+            .binaryOutput(true)
             .build();
     duplexApi = new SynchronizeFullDuplexApi<>(defaultAudioOptionsIfNull(null), serviceOption);
     this.callback = callback;
@@ -216,6 +234,7 @@ public final class SpeechSynthesizer {
             .task(Task.TEXT_TO_SPEECH.getValue())
             .function(Function.SPEECH_SYNTHESIZER.getValue())
             .passTaskStarted(true)
+            .binaryOutput(true)
             .build();
     duplexApi = new SynchronizeFullDuplexApi<>(defaultAudioOptionsIfNull(null), serviceOption);
     this.callback = callback;
@@ -277,6 +296,9 @@ public final class SpeechSynthesizer {
                         + recvAudioLength
                         + " ms, current_rtf: "
                         + currentRtf);
+                if (audioSink != null) {
+                  audioSink.write(result.getAudioFrame().asReadOnlyBuffer());
+                }
               }
             });
   }
@@ -298,12 +320,12 @@ public final class SpeechSynthesizer {
                 this.parameters,
                 Flowable.create(
                     emitter -> {
-                      new Thread(
-                              () -> {
-                                emitter.onNext(new TextStreamItem(text));
-                                emitter.onComplete();
-                              })
-                          .start();
+                      SdkThreads.start(
+                          "dashscope-tts-text",
+                          () -> {
+                            emitter.onNext(new TextStreamItem(text));
+                            emitter.onComplete();
+                          });
                     },
                     BackpressureStrategy.BUFFER),
                 preRequestId,
@@ -330,10 +352,27 @@ public final class SpeechSynthesizer {
                         + recvAudioLength
                         + " ms, current_rtf: "
                         + currentRtf);
+                if (audioSink != null) {
+                  audioSink.write(result.getAudioFrame().asReadOnlyBuffer());
+                }
               }
             });
   }
 
+  /** Copy the frames to the audio of the call, once, with an exact array. */
+  private static ByteBuffer joinAudioFrames(List<ByteBuffer> frames) {
+    int size = 0;
+    for (ByteBuffer frame : frames) {
+      size += frame.remaining();
+    }
+    ByteBuffer audio = ByteBuffer.allocate(size);
+    for (ByteBuffer frame : frames) {
+      audio.put(frame);
+    }
+    audio.flip();
+    return audio;
+  }
+
   /**
    * Start voice transcription: Establish a connection with the server, send a voice transcription
    * request, and synchronously receive confirmation from the server.
@@ -348,10 +387,10 @@ public final class SpeechSynthesizer {
           new InputRequiredException("Parameter invalid: ResultCallback is null"));
     }
     // 新的session开始，重置所有buffer
-    outputStream = new ByteArrayOutputStream();
+    audioFrames = accumulateAudio ? new ArrayList<>() : null;
     audioData = null;
+    sinkError = null;
     //        timestamps.clear();
-    WritableByteChannel channel = Channels.newChannel(outputStream);
 
     Flowable<TextStreamItem> textFrames =
         Flowable.create(
@@ -397,8 +436,9 @@ public final class SpeechSynthesizer {
               if (canceled.get()) {
                 return;
               }
+              // the frames of the blocking call are not seen by the user, they are not copied.
               SpeechSynthesisResult speechSynthesisResult =
-                  SpeechSynthesisResult.fromDashScopeResult(message);
+                  SpeechSynthesisResult.fromDashScopeResult(message, asyncCall);
 
               try {
                 /*
@@ -435,14 +475,18 @@ public final class SpeechSynthesizer {
                           + recvAudioLength
                           + " ms, current_rtf: "
                           + currentRtf);
-                  if (!asyncCall) {
+                  ByteBuffer frame = (ByteBuffer) message.getOutput();
+                  if (audioSink != null) {
                     try {
-                      channel.write(speechSynthesisResult.getAudioFrame());
-                    } catch (IOException e) {
-                      log.error(
-                          "Failed to write audio: {}", speechSynthesisResult.getAudioFrame(), e);
+                      audioSink.write(frame.asReadOnlyBuffer());
+                    } catch (Exception e) {
+                      failOnSinkError(e);
+                      return;
                     }
                   }
+                  if (!asyncCall && audioFrames != null) {
+                    audioFrames.add(frame.asReadOnlyBuffer());
+                  }
                 }
               } catch (Exception e) {
                 log.error("Failed to parse response: {}", message, e);
@@ -460,11 +504,17 @@ public final class SpeechSynthesizer {
               synchronized (SpeechSynthesizer.this) {
                 state = SpeechSynthesisState.IDLE;
               }
-              audioData = ByteBuffer.wrap(outputStream.toByteArray());
-              try {
-                outputStream.close();
-              } catch (IOException e) {
-                log.error("Failed to close channel: {}", e);
+              if (sinkError != null) {
+                // the error is reported already, the audio is incomplete.
+                audioFrames = null;
+                if (stopLatch.get() != null) {
+                  stopLatch.get().countDown();
+                }
+                return;
+              }
+              if (audioFrames != null) {
+                audioData = joinAudioFrames(audioFrames);
+                audioFrames = null;
               }
               callback.onComplete();
               if (stopLatch.get() != null) {
@@ -474,6 +524,16 @@ public final class SpeechSynthesizer {
 
             @Override
             public void onError(Exception e) {
+              if (sinkError != null) {
+                synchronized (SpeechSynthesizer.this) {
+                  state = SpeechSynthesisState.IDLE;
+                }
+                audioFrames = null;
+                if (stopLatch.get() != null) {
+                  stopLatch.get().countDown();
+                }
+                return;
+              }
               if (canceled.get()) {
                 return;
               }
@@ -504,6 +564,19 @@ public final class SpeechSynthesizer {
     }
   }
 
+  /**
+   * Fail the task on an error of the audio sink: cancel the task, report the error to the callback
+   * once and drop the later events. The blocking calls throw the error.
+   */
+  private void failOnSinkError(Exception e) {
+    log.error("Failed to write the audio to the sink", e);
+    ApiException apiException = new ApiException(e);
+    apiException.setStackTrace(e.getStackTrace());
+    sinkError = apiException;
+    streamingCancel();
+    callback.onError(apiException);
+  }
+
   /**
    * Send text in a streaming manner
    *
@@ -541,6 +614,9 @@ public final class SpeechSynthesizer {
     log.debug("streamingComplete with timeout: " + completeTimeoutMillis);
     synchronized (this) {
       if (state != SpeechSynthesisState.TTS_STARTED) {
+        if (sinkError != null) {
+          throw sinkError;
+        }
         throw new ApiException(
             new RuntimeException(
                 "State invalid: expect stream input tts state is started but " + state.getValue()));
@@ -570,6 +646,9 @@ public final class SpeechSynthesizer {
         log.error("Interrupted while waiting for streaming complete");
       }
     }
+    if (sinkError != null) {
+      throw sinkError;
+    }
   }
 
   /**
@@ -705,7 +784,8 @@ public final class SpeechSynthesizer {
    *     than zero, it will wait for the corresponding number of milliseconds; otherwise, it will
    *     wait indefinitely.
    * @return If a callback is not set during initialization, the complete audio is returned as the
-   *     function's return value. Otherwise, the return value is null.
+   *     function's return value. Otherwise, or if accumulateAudio is disabled, the return value is
+   *     null.
    */
   public ByteBuffer call(String text, long timeoutMillis) throws RuntimeException {
     if (this.callback == null) {
@@ -776,7 +856,8 @@ public final class SpeechSynthesizer {
    *
    * @param text utf-8 encoded text
    * @return If a callback is not set during initialization, the complete audio is returned as the
-   *     function's return value. Otherwise, the return value is null.
+   *     function's return value. Otherwise, or if accumulateAudio is disabled, the return value is
+   *     null.
    */
   public ByteBuffer call(String text) {
     return call(text, 0);
@@ -26,6 +26,9 @@ public abstract class HalfDuplexParamBase {
 
   @GsonExclude @Builder.Default private Boolean enableEncrypt = false;
 
+  /** Whether the results carry the response headers, false to skip the headers. */
+  @GsonExclude @Builder.Default private boolean includeResponseHeaders = true;
+
   /** The extra parameters. */
   @GsonExclude @Singular protected Map<String, Object> parameters;
 
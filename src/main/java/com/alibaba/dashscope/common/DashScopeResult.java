@@ -6,15 +6,19 @@ import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.protocol.HalfDuplexRequest;
 import com.alibaba.dashscope.protocol.NetworkResponse;
 import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.WebSocketResponse;
+import com.alibaba.dashscope.protocol.WebSocketResponseHeader;
+import com.alibaba.dashscope.protocol.WebSocketResponsePayload;
 import com.alibaba.dashscope.utils.ApiKeywords;
 import com.alibaba.dashscope.utils.EncryptionUtils;
 import com.alibaba.dashscope.utils.JsonUtils;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.extern.slf4j.Slf4j;
@@ -34,7 +38,7 @@ public class DashScopeResult extends Result {
   @SuppressWarnings("unchecked")
   protected <T extends Result> T fromResponse(Protocol protocol, NetworkResponse response)
       throws ApiException {
-    this.setHeaders(changeHeaders(response.getHeaders()));
+    this.setHeaders(headersOf(response));
     if (protocol == Protocol.WEBSOCKET) {
       if (response.getBinary() == null) {
         String message = response.getMessage();
@@ -79,7 +83,7 @@ public class DashScopeResult extends Result {
     if (!isFlattenResult) {
       return fromResponse(protocol, response);
     }
-    this.setHeaders(changeHeaders(response.getHeaders()));
+    this.setHeaders(headersOf(response));
     if (protocol == Protocol.WEBSOCKET) {
       if (response.getBinary() == null) {
         this.output = parseJson(response.getMessage(), "Failed to parse WebSocket message");
@@ -98,7 +102,7 @@ public class DashScopeResult extends Result {
   public <T extends Result> T fromResponse(
       Protocol protocol, NetworkResponse response, boolean isFlattenResult, HalfDuplexRequest req)
       throws ApiException {
-    this.setHeaders(changeHeaders(response.getHeaders()));
+    this.setHeaders(headersOf(response));
     if ((response.getHeaders().containsKey("X-DashScope-OutputEncrypted".toLowerCase())
             || req.isEncryptRequest())
         && protocol == Protocol.HTTP) {
@@ -138,6 +142,35 @@ public class DashScopeResult extends Result {
     return fromResponse(protocol, response, isFlattenResult);
   }
 
+  /**
+   * Build the result from a decoded WebSocket frame, see {@link WebSocketResponse#fromJson}, so the
+   * frame text is not parsed again. Same as fromResponse of the frame text, not flatten.
+   *
+   * @param response The decoded frame.
+   * @return This result.
+   */
+  public DashScopeResult fromWebSocketResponse(WebSocketResponse response) {
+    WebSocketResponseHeader header = response.header;
+    if (header != null) {
+      if (header.taskId != null) {
+        this.setRequestId(header.taskId);
+      }
+      this.setStatusCode(header.statusCode != null ? header.statusCode : 200);
+      this.setCode(header.code != null ? header.code : "");
+      this.setMessage(header.message != null ? header.message : "");
+    }
+    WebSocketResponsePayload payload = response.payload;
+    if (payload != null) {
+      if (payload.output != null) {
+        this.output = payload.output.isJsonNull() ? null : payload.output;
+      }
+      if (payload.usage != null) {
+        this.setUsage(payload.usage.isJsonNull() ? null : payload.usage);
+      }
+    }
+    return this;
+  }
+
   private void fromWebSocketMessage(String message) {
     JsonObject jsonObject = parseJson(message, "Failed to parse WebSocket message");
     if (jsonObject == null) {
@@ -234,20 +267,44 @@ public class DashScopeResult extends Result {
     this.setMessage(PublicErrorDef.INTERNAL_ERROR.getErrorMsg());
   }
 
-  private Map<String, Object> changeHeaders(Map<String, List<String>> headers) {
+  /**
+   * Convert the response headers to the result headers, multiple values are joined by ",". A stream
+   * converts the headers once and shares the result by the resultHeaders of the NetworkResponse,
+   * each result gets a modifiable copy of it.
+   *
+   * @param headers The response headers.
+   * @return The unmodifiable result headers, null if no headers.
+   */
+  public static Map<String, Object> toResultHeaders(Map<String, List<String>> headers) {
+    Map<String, Object> resultHeaders = changeHeaders(headers);
+    return resultHeaders == null ? null : Collections.unmodifiableMap(resultHeaders);
+  }
+
+  private static Map<String, Object> headersOf(NetworkResponse response) {
+    Map<String, Object> resultHeaders = response.getResultHeaders();
+    if (resultHeaders != null) {
+      // the headers are opted out, no map is allocated per event.
+      if (resultHeaders.isEmpty()) {
+        return null;
+      }
+      // a shallow copy, the callers may modify the headers of their result.
+      return new LinkedHashMap<>(resultHeaders);
+    }
+    return changeHeaders(response.getHeaders());
+  }
+
+  private static Map<String, Object> changeHeaders(Map<String, List<String>> headers) {
     if (headers == null || headers.isEmpty()) {
       return null;
     }
-    return headers.entrySet().stream()
-        .filter(entry -> entry.getKey() != null)
-        .collect(
-            Collectors.toMap(
-                Map.Entry::getKey,
-                entry -> {
-                  List<String> values = entry.getValue();
-                  return (values == null || values.isEmpty()) ? "" : String.join(",", values);
-                },
-                (v1, v2) -> v1,
-                java.util.LinkedHashMap::new));
+    Map<String, Object> resultHeaders = new LinkedHashMap<>();
+    for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+      if (entry.getKey() != null) {
+        List<String> values = entry.getValue();
+        resultHeaders.putIfAbsent(
+            entry.getKey(), (values == null || values.isEmpty()) ? "" : String.join(",", values));
+      }
+    }
+    return resultHeaders;
   }
 }
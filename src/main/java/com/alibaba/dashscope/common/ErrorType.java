@@ -19,6 +19,9 @@ public enum ErrorType {
   UNKNOWN_ERROR("unknown_error"),
 
   NETWORK_ERROR("network error"),
+
+  /** The request is rejected by the client, e.g. the streaming executor is saturated. */
+  REQUEST_REJECTED("request_rejected"),
   ;
 
   private final String value;
@@ -15,6 +15,8 @@ import com.alibaba.dashscope.protocol.ApiServiceOption;
 import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.FutureUtils;
+import java.util.concurrent.CompletableFuture;
 
 public class TextEmbedding {
   private final SynchronizeHalfDuplexApi<TextEmbeddingParam> syncApi;
@@ -91,4 +93,17 @@ public class TextEmbedding {
   public TextEmbeddingResult call(TextEmbeddingParam param) throws ApiException, NoApiKeyException {
     return TextEmbeddingResult.fromDashScopeResult(syncApi.call(param));
   }
+
+  /**
+   * Call the server to get the whole result without blocking a thread.
+   *
+   * @param param The input param of class `TextEmbeddingParam`.
+   * @return The future result, cancel it to cancel the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   */
+  public CompletableFuture<TextEmbeddingResult> callAsync(TextEmbeddingParam param)
+      throws ApiException, NoApiKeyException {
+    return FutureUtils.map(syncApi.callAsync(param), TextEmbeddingResult::fromDashScopeResult);
+  }
 }
@@ -133,6 +133,7 @@ public class MultiModalDialog {
             .task(Task.MULTIMODAL_GENERATION.getValue())
             .function(Function.GENERATION.getValue())
             .passTaskStarted(true)
+            .binaryOutput(true)
             .build();
 
     this.requestParam = param;
@@ -161,6 +162,7 @@ public class MultiModalDialog {
             .task(Task.MULTIMODAL_GENERATION.getValue())
             .function(Function.GENERATION.getValue())
             .passTaskStarted(true)
+            .binaryOutput(true)
             .build();
     this.connectionOptions = connectionOptions;
     this.connectionOptions.setUseDefaultClient(false);
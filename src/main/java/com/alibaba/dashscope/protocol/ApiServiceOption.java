@@ -38,6 +38,8 @@ public final class ApiServiceOption implements ServiceOption {
 
   @Default private String baseWebSocketUrl = null;
   @Default private boolean passTaskStarted = false;
+  // if WEBSOCKET, the service returns binary frames, e.g. audio.
+  @Default private boolean binaryOutput = false;
 
   @Override
   public String httpUrl() {
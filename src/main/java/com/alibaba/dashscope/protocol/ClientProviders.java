@@ -35,11 +35,22 @@ public class ClientProviders {
         return new OkHttpWebSocketClient(OkHttpClientFactory.getOkHttpClient(), false);
       }
     } else {
+      HalfDuplexClient client;
       if (protocol.toLowerCase().startsWith("http")) {
-        return new OkHttpHttpClient(OkHttpClientFactory.getNewOkHttpClient(options));
+        client =
+            new OkHttpHttpClient(
+                OkHttpClientFactory.getNewOkHttpClient(options),
+                options.getRetryPolicy(),
+                options.getHedgingPolicy());
       } else {
-        return new OkHttpWebSocketClient(OkHttpClientFactory.getNewOkHttpClient(options), false);
+        client =
+            new OkHttpWebSocketClient(
+                OkHttpClientFactory.getNewOkHttpClient(options), false, options);
       }
+      if (options.getRateLimiter() != null) {
+        client = new RateLimitedHalfDuplexClient(client, options.getRateLimiter());
+      }
+      return client;
     }
   }
 
@@ -57,11 +68,15 @@ public class ClientProviders {
     } else {
       if (connectionOptions.isUseDefaultClient()) {
         return new OkHttpWebSocketClient(
-            OkHttpClientFactory.getNewOkHttpClient(connectionOptions), passTaskStarted);
+            OkHttpClientFactory.getNewOkHttpClient(connectionOptions),
+            passTaskStarted,
+            connectionOptions);
       } else {
         // create custom client for audio models
         return new OkHttpWebSocketClientForAudio(
-            OkHttpClientFactory.getNewOkHttpClient(connectionOptions), passTaskStarted);
+            OkHttpClientFactory.getNewOkHttpClient(connectionOptions),
+            passTaskStarted,
+            connectionOptions);
       }
     }
   }
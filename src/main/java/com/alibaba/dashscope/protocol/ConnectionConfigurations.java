@@ -39,6 +39,37 @@ public final class ConnectionConfigurations {
   private static final String MAXIMUM_ASYNC_REQUESTS_PER_HOST_ENV =
       "DASHSCOPE_MAXIMUM_ASYNC_REQUESTS_PER_HOST";
 
+  /**
+   * Use HTTP/2 for https requests, negotiated by ALPN, the concurrent requests to a host share a
+   * few connections. The servers and proxies without HTTP/2 fall back to HTTP/1.1. Ref:
+   * https://square.github.io/okhttp/features/connections/
+   */
+  private static final String HTTP2_ENABLED_ENV = "DASHSCOPE_HTTP2_ENABLED";
+
+  /**
+   * Use cleartext HTTP/2 (h2c) without negotiation, for a local http:// stand-in of the service
+   * only, https requests fail in this mode.
+   */
+  private static final String HTTP2_PRIOR_KNOWLEDGE_ENV = "DASHSCOPE_HTTP2_PRIOR_KNOWLEDGE";
+
+  /** The maximum concurrent async requests(streams) per host in HTTP/2 mode. */
+  private static final String MAXIMUM_STREAMS_PER_HOST_ENV = "DASHSCOPE_MAXIMUM_STREAMS_PER_HOST";
+
+  /**
+   * The connections opened to the http base url when the default client is created, and kept alive
+   * with HEAD requests every keep-alive interval. 0 to disable.
+   */
+  private static final String PREWARM_CONNECTIONS_ENV = "DASHSCOPE_PREWARM_CONNECTIONS";
+
+  /** The keep-alive interval of the prewarmed connections, half the idle timeout by default. */
+  private static final String KEEP_ALIVE_INTERVAL_ENV = "DASHSCOPE_KEEP_ALIVE_INTERVAL";
+
+  /**
+   * Run the blocking SDK work, e.g. the audio senders and the http dispatcher, on virtual threads.
+   * It takes effect on Java 21 or later only, by the multi-release jar.
+   */
+  private static final String VIRTUAL_THREADS_ENABLED_ENV = "DASHSCOPE_VIRTUAL_THREADS_ENABLED";
+
   private static final String WRITE_TIMEOUT_ENV = "DASHSCOPE_WRITE_TIMEOUT";
   private static final String READ_TIMEOUT_ENV = "DASHSCOPE_READ_TIMEOUT";
   private static final String CONNECTION_TIMEOUT_ENV = "DASHSCOPE_CONNECTION_TIMEOUT";
@@ -50,6 +81,8 @@ public final class ConnectionConfigurations {
   private static final Integer DEFAULT_CONNECTION_POOL_SIZE = 32;
   private static final Integer DEFAULT_MAXIMUM_ASYNC_REQUESTS = 32;
   private static final Integer DEFAULT_MAXIMUM_ASYNC_REQUESTS_PER_HOST = 32;
+  private static final Integer DEFAULT_MAXIMUM_STREAMS_PER_HOST = 256;
+  private static final Integer DEFAULT_PREWARM_CONNECTIONS = 0;
 
   private Duration connectTimeout;
   private Duration writeTimeout;
@@ -59,6 +92,12 @@ public final class ConnectionConfigurations {
   private Integer connectionPoolSize;
   private Integer maximumAsyncRequests;
   private Integer maximumAsyncRequestsPerHost;
+  private Boolean http2Enabled;
+  private Boolean http2PriorKnowledge;
+  private Integer maximumStreamsPerHost;
+  private Integer prewarmConnections;
+  private Duration keepAliveInterval;
+  private Boolean virtualThreadsEnabled;
 
   public Duration getConnectTimeout() {
     return getDuration(connectTimeout, DEFAULT_CONNECT_TIMEOUT, CONNECTION_TIMEOUT_ENV);
@@ -113,6 +152,61 @@ public final class ConnectionConfigurations {
     }
   }
 
+  public Boolean getHttp2Enabled() {
+    if (http2Enabled != null) {
+      return http2Enabled;
+    }
+    return Boolean.parseBoolean(System.getenv(HTTP2_ENABLED_ENV));
+  }
+
+  public Boolean getHttp2PriorKnowledge() {
+    if (http2PriorKnowledge != null) {
+      return http2PriorKnowledge;
+    }
+    return Boolean.parseBoolean(System.getenv(HTTP2_PRIOR_KNOWLEDGE_ENV));
+  }
+
+  public Integer getMaximumStreamsPerHost() {
+    try {
+      if (maximumStreamsPerHost != null) {
+        return maximumStreamsPerHost;
+      }
+      Integer n = Integer.parseInt(System.getenv(MAXIMUM_STREAMS_PER_HOST_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_MAXIMUM_STREAMS_PER_HOST;
+    }
+  }
+
+  public Integer getPrewarmConnections() {
+    try {
+      if (prewarmConnections != null) {
+        return prewarmConnections;
+      }
+      Integer n = Integer.parseInt(System.getenv(PREWARM_CONNECTIONS_ENV));
+      return n;
+    } catch (NumberFormatException e) {
+      return DEFAULT_PREWARM_CONNECTIONS;
+    }
+  }
+
+  public Duration getKeepAliveInterval() {
+    return getDuration(
+        keepAliveInterval, getConnectionIdleTimeout().dividedBy(2), KEEP_ALIVE_INTERVAL_ENV);
+  }
+
+  public Boolean getVirtualThreadsEnabled() {
+    if (virtualThreadsEnabled != null) {
+      return virtualThreadsEnabled;
+    }
+    return Boolean.parseBoolean(System.getenv(VIRTUAL_THREADS_ENABLED_ENV));
+  }
+
+  /** Whether the requests use HTTP/2, negotiated or with prior knowledge. */
+  public boolean isHttp2() {
+    return getHttp2Enabled() || getHttp2PriorKnowledge();
+  }
+
   private Duration getDuration(Duration target, Duration defaultValue, String env) {
     if (target == null) {
       try {
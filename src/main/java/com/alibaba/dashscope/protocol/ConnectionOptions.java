@@ -2,6 +2,8 @@
 
 package com.alibaba.dashscope.protocol;
 
+import com.alibaba.dashscope.protocol.okhttp.WebSocketConnectionPool;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketMultiplexer;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.time.Duration;
@@ -33,6 +35,53 @@ public final class ConnectionOptions {
   private Duration readTimeout;
   private boolean useDefaultClient = true;
 
+  /**
+   * The client profile registered by OkHttpClientFactory.registerClientProfile, the client shares
+   * the dispatcher and connection pool of the profile. Null or not registered to use the default
+   * client.
+   */
+  private String clientProfile;
+
+  /** The retry policy of the requests, null to use the default policy of the client. */
+  private RetryPolicy retryPolicy;
+
+  /**
+   * The hedging policy of the blocking non streaming http requests, null to not hedge. Use it for
+   * the calls without side effects, a hedged request may be processed twice.
+   */
+  private HedgingPolicy hedgingPolicy;
+
+  /**
+   * The client side rate limiter of the half duplex requests, share it between the apis to share
+   * the limits. Null to send without limit.
+   */
+  private RateLimiter rateLimiter;
+
+  /**
+   * The executor of the full duplex streaming data senders, share it between the clients to share
+   * the threads. Null to use the default executor.
+   */
+  private StreamingExecutor streamingExecutor;
+
+  /**
+   * The pool of the idle websockets reused by the full duplex tasks, share it between the
+   * synthesizers and recognizers to skip the handshake of the short tasks. Null to open a
+   * connection per client.
+   */
+  private WebSocketConnectionPool webSocketConnectionPool;
+
+  /**
+   * Run the full duplex tasks over the shared websockets of the multiplexer, set either it or the
+   * connection pool. Null to not share the websockets between the clients.
+   */
+  private WebSocketMultiplexer webSocketMultiplexer;
+
+  /**
+   * The high-water mark in bytes of the websocket send queue, the full duplex streaming data is not
+   * requested while more bytes are queued. Null to use the default, 1MB.
+   */
+  private Long sendQueueHighWaterMark;
+
   public Duration getConnectTimeout() {
     return getDuration(connectTimeout, DEFAULT_CONNECT_TIMEOUT, CONNECTION_TIMEOUT_ENV);
   }
@@ -28,4 +28,13 @@ public interface FullDuplexClient {
   boolean close(int code, String reason);
 
   void cancel();
+
+  /**
+   * Get the bytes waiting to be sent by the client.
+   *
+   * @return The queued bytes, 0 if the client does not queue.
+   */
+  default long getSendQueueSize() {
+    return 0;
+  }
 }
@@ -38,6 +38,10 @@ public class FullDuplexRequest {
     return serviceOption.getStreamingMode();
   }
 
+  public boolean isBinaryOutput() {
+    return serviceOption.isBinaryOutput();
+  }
+
   public OutputMode getOutputMode() {
     return serviceOption.getOutputMode();
   }
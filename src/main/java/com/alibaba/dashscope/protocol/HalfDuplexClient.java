@@ -7,6 +7,7 @@ import com.alibaba.dashscope.common.ResultCallback;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import io.reactivex.Flowable;
+import java.util.concurrent.CompletableFuture;
 
 public interface HalfDuplexClient {
   /**
@@ -24,6 +25,40 @@ public interface HalfDuplexClient {
   void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
       throws NoApiKeyException, ApiException;
 
+  /**
+   * Send the request without blocking a thread.
+   *
+   * @param req the user input data and parameters.
+   * @return The future result, cancel it to cancel the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   */
+  default CompletableFuture<DashScopeResult> sendAsync(HalfDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    CompletableFuture<DashScopeResult> future = new CompletableFuture<>();
+    send(
+        req,
+        new ResultCallback<DashScopeResult>() {
+          private DashScopeResult result;
+
+          @Override
+          public void onEvent(DashScopeResult message) {
+            result = message;
+          }
+
+          @Override
+          public void onComplete() {
+            future.complete(result);
+          }
+
+          @Override
+          public void onError(Exception e) {
+            future.completeExceptionally(e);
+          }
+        });
+    return future;
+  }
+
   /*
    * Multiple outputs, for http sse and websocket streamOut mode.
    */
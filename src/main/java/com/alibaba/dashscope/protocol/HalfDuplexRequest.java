@@ -39,10 +39,18 @@ public class HalfDuplexRequest {
     return param.getApiKey();
   }
 
+  public String getModel() {
+    return param.getModel();
+  }
+
   public StreamingMode getStreamingMode() {
     return serviceOption.getStreamingMode();
   }
 
+  public boolean isBinaryOutput() {
+    return serviceOption.isBinaryOutput();
+  }
+
   public OutputMode getOutputMode() {
     return serviceOption.getOutputMode();
   }
@@ -75,6 +83,10 @@ public class HalfDuplexRequest {
     return serviceOption.getHttpMethod();
   }
 
+  public boolean isIncludeResponseHeaders() {
+    return param.isIncludeResponseHeaders();
+  }
+
   public Boolean isEncryptRequest() {
     return param.getEnableEncrypt();
   }
@@ -136,7 +148,8 @@ public class HalfDuplexRequest {
       return HttpRequest.builder()
           .url(getHttpUrl())
           .headers(requestHeaders)
-          .body(serializeHttpBody(body))
+          .jsonBody(body)
+          .serializeExplicitNulls(param.shouldSerializeExplicitNulls())
           .httpMethod(getHttpMethod())
           .build();
     } else {
@@ -144,13 +157,6 @@ public class HalfDuplexRequest {
     }
   }
 
-  private String serializeHttpBody(JsonObject body) {
-    if (body == null) {
-      return null;
-    }
-    return param.shouldSerializeExplicitNulls() ? body.toString() : JsonUtils.toJson(body);
-  }
-
   public JsonObject getWebSocketPayload() {
     JsonObject request = new JsonObject();
     request.addProperty(ApiKeywords.MODEL, param.getModel());
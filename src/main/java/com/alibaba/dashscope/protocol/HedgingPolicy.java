@@ -0,0 +1,191 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+
+/**
+ * The hedging policy of the blocking non streaming requests: if the response does not arrive in the
+ * hedge delay, a duplicate request is sent, the first response wins and the other request is
+ * cancelled. The delay is a percentile of the recent latencies, so only the slow tail is hedged.
+ *
+ * <p>A hedged request may be processed and billed twice, use it for the calls without side effects,
+ * e.g. embedding and rerank. The budget limits the hedged requests to a ratio of all the requests.
+ */
+@Getter
+@Builder
+public final class HedgingPolicy {
+  /** The latency percentile used as the hedge delay, in (0, 1). */
+  @Builder.Default private double percentile = 0.95;
+
+  /** The hedge delay is not less than this. */
+  @Builder.Default private Duration minDelay = Duration.ofMillis(10);
+
+  /** The hedge delay is not more than this. */
+  @Builder.Default private Duration maxDelay = Duration.ofSeconds(10);
+
+  /** The requests are not hedged until this number of latencies are recorded. */
+  @Builder.Default private int minSamples = 20;
+
+  /** The number of recent latencies the percentile is computed from. */
+  @Builder.Default private int window = 512;
+
+  /** The maximum ratio of the hedged requests, e.g. 0.05 for 5%. */
+  @Builder.Default private double maxHedgeRatio = 0.05;
+
+  /** The hedges can be accumulated by the budget. */
+  @Builder.Default private double maxHedgeTokens = 10;
+
+  @Getter(AccessLevel.NONE)
+  private final LatencyWindow latencies = new LatencyWindow();
+
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong requests = new AtomicLong();
+
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong hedgedRequests = new AtomicLong();
+
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong primaryWins = new AtomicLong();
+
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong hedgeWins = new AtomicLong();
+
+  @Getter(AccessLevel.NONE)
+  private final HedgeBudget budget = new HedgeBudget();
+
+  /** The hedging statistics, for tuning the policy. */
+  @Data
+  @Builder
+  public static class Stats {
+    /** The requests sent by the policy. */
+    private long requests;
+
+    /** The requests a hedge was sent for. */
+    private long hedgedRequests;
+
+    /** The requests won by the first attempt. */
+    private long primaryWins;
+
+    /** The requests won by the hedge. */
+    private long hedgeWins;
+
+    /** The current hedge delay in milliseconds, -1 if not enough latencies recorded. */
+    private long hedgeDelayMillis;
+  }
+
+  /**
+   * Start a request, it adds the budget of the hedges.
+   *
+   * @return The hedge delay in milliseconds, -1 to not hedge.
+   */
+  public long onRequest() {
+    requests.incrementAndGet();
+    budget.deposit();
+    return getHedgeDelayMillis();
+  }
+
+  /**
+   * Try to take a hedge from the budget.
+   *
+   * @return true if the hedge can be sent.
+   */
+  public boolean tryHedge() {
+    if (!budget.withdraw()) {
+      return false;
+    }
+    hedgedRequests.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Record the winner of a request.
+   *
+   * @param hedge Whether the hedge won.
+   * @param latencyNanos The latency of the request, from the start of the first attempt.
+   */
+  public void onResponse(boolean hedge, long latencyNanos) {
+    (hedge ? hedgeWins : primaryWins).incrementAndGet();
+    latencies.add(latencyNanos);
+  }
+
+  /**
+   * Get the current hedge delay.
+   *
+   * @return The delay in milliseconds, -1 if not enough latencies recorded.
+   */
+  public long getHedgeDelayMillis() {
+    long nanos = latencies.getPercentileNanos();
+    if (nanos < 0) {
+      return -1;
+    }
+    long millis = Duration.ofNanos(nanos).toMillis();
+    return Math.min(maxDelay.toMillis(), Math.max(minDelay.toMillis(), millis));
+  }
+
+  /**
+   * Get the hedging statistics.
+   *
+   * @return The statistics.
+   */
+  public Stats getStats() {
+    return Stats.builder()
+        .requests(requests.get())
+        .hedgedRequests(hedgedRequests.get())
+        .primaryWins(primaryWins.get())
+        .hedgeWins(hedgeWins.get())
+        .hedgeDelayMillis(getHedgeDelayMillis())
+        .build();
+  }
+
+  /** Each request deposits maxHedgeRatio, a hedge withdraws 1. */
+  private final class HedgeBudget {
+    private double tokens;
+
+    synchronized void deposit() {
+      tokens = Math.min(maxHedgeTokens, tokens + maxHedgeRatio);
+    }
+
+    synchronized boolean withdraw() {
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+  }
+
+  /** The recent latencies, the percentile is recomputed every few samples. */
+  private final class LatencyWindow {
+    private static final int RECOMPUTE_INTERVAL = 16;
+    private long[] samples;
+    private long count;
+    private int next;
+    private long percentileNanos = -1;
+
+    synchronized void add(long latencyNanos) {
+      if (samples == null) {
+        samples = new long[Math.max(window, 1)];
+      }
+      samples[next] = latencyNanos;
+      next = (next + 1) % samples.length;
+      ++count;
+      if (count >= minSamples && (count - minSamples) % RECOMPUTE_INTERVAL == 0) {
+        int size = (int) Math.min(count, samples.length);
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        percentileNanos = sorted[Math.min(size - 1, (int) Math.floor(percentile * size))];
+      }
+    }
+
+    synchronized long getPercentileNanos() {
+      return percentileNanos;
+    }
+  }
+}
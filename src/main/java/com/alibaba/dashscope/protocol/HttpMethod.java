@@ -3,7 +3,18 @@
 package com.alibaba.dashscope.protocol;
 
 public enum HttpMethod {
-  POST,
-  GET,
-  DELETE;
+  POST(false),
+  GET(true),
+  DELETE(true);
+
+  private final boolean idempotent;
+
+  HttpMethod(boolean idempotent) {
+    this.idempotent = idempotent;
+  }
+
+  /** Whether the request can be sent again after it may have been processed, RFC 9110 9.2.2. */
+  public boolean isIdempotent() {
+    return idempotent;
+  }
 }
@@ -2,6 +2,8 @@
 
 package com.alibaba.dashscope.protocol;
 
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonElement;
 import java.util.Map;
 import lombok.Data;
 import lombok.experimental.SuperBuilder;
@@ -14,5 +16,34 @@ public class HttpRequest {
   private String url;
   private Map<String, String> headers;
   private Map<String, Object> parameters;
+  /** The request body string, see getBody. */
   private Object body;
+  /**
+   * The json tree of the body, the http client writes it to the request directly, without the body
+   * string. It takes precedence over the body.
+   */
+  private JsonElement jsonBody;
+  /** Keep the explicit json null members when writing the json tree. */
+  private boolean serializeExplicitNulls;
+
+  /**
+   * Get the request body string, the json tree body is serialized on the first call.
+   *
+   * @return The body string, null if no body.
+   */
+  public Object getBody() {
+    if (body == null && jsonBody != null) {
+      body = serializeExplicitNulls ? jsonBody.toString() : JsonUtils.toJson(jsonBody);
+    }
+    return body;
+  }
+
+  /**
+   * Whether the request has a body.
+   *
+   * @return True if the body string or the json tree is set.
+   */
+  public boolean hasBody() {
+    return body != null || jsonBody != null;
+  }
 }
@@ -27,4 +27,10 @@ public class NetworkResponse {
 
   /** The HTTP status code */
   private Integer httpStatusCode;
+
+  /**
+   * The headers already converted for the result, shared by all events of a stream. If null, the
+   * headers are converted for each result.
+   */
+  private Map<String, Object> resultHeaders;
 }
@@ -0,0 +1,234 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.utils.ApiKey;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Limit the requests of a client by the rate limiter, the requests over the limit wait in the local
+ * queue. The blocking send waits on the caller thread, the callback and stream requests are sent
+ * when the permit is granted, no thread waits.
+ */
+final class RateLimitedHalfDuplexClient implements HalfDuplexClient {
+  private final HalfDuplexClient client;
+  private final RateLimiter rateLimiter;
+
+  RateLimitedHalfDuplexClient(HalfDuplexClient client, RateLimiter rateLimiter) {
+    this.client = client;
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public DashScopeResult send(HalfDuplexRequest req) throws NoApiKeyException, ApiException {
+    RateLimiter.Permit permit = rateLimiter.acquire(getKey(req), false);
+    try {
+      DashScopeResult result = client.send(req);
+      permit.onSuccess();
+      return result;
+    } catch (ApiException e) {
+      permit.onError(e);
+      throw e;
+    } finally {
+      permit.release();
+    }
+  }
+
+  @Override
+  public void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    whenGranted(
+        rateLimiter.acquireAsync(getKey(req), false),
+        (permit, error) -> {
+          if (error != null) {
+            callback.onError(new ApiException(error));
+            return;
+          }
+          try {
+            client.send(req, new PermitCallback(permit, callback));
+          } catch (NoApiKeyException | ApiException e) {
+            permit.release();
+            callback.onError(e);
+          }
+        });
+  }
+
+  @Override
+  public CompletableFuture<DashScopeResult> sendAsync(HalfDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    CompletableFuture<RateLimiter.Permit> permits = rateLimiter.acquireAsync(getKey(req), false);
+    CompletableFuture<DashScopeResult> future = new CompletableFuture<>();
+    AtomicReference<CompletableFuture<DashScopeResult>> call = new AtomicReference<>();
+    future.whenComplete(
+        (result, error) -> {
+          if (future.isCancelled()) {
+            permits.cancel(false);
+            CompletableFuture<DashScopeResult> current = call.get();
+            if (current != null) {
+              current.cancel(false);
+            }
+          }
+        });
+    whenGranted(
+        permits,
+        (permit, error) -> {
+          if (error != null) {
+            future.completeExceptionally(error);
+            return;
+          }
+          CompletableFuture<DashScopeResult> current;
+          try {
+            current = client.sendAsync(req);
+          } catch (NoApiKeyException | ApiException e) {
+            permit.release();
+            future.completeExceptionally(e);
+            return;
+          }
+          call.set(current);
+          current.whenComplete(
+              (result, e) -> {
+                if (e == null) {
+                  permit.onSuccess();
+                  future.complete(result);
+                } else {
+                  permit.onError(e);
+                  future.completeExceptionally(e);
+                }
+                permit.release();
+              });
+          if (future.isCancelled()) {
+            current.cancel(false);
+          }
+        });
+    return future;
+  }
+
+  @Override
+  public Flowable<DashScopeResult> streamOut(HalfDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    String key = getKey(req);
+    return Flowable.defer(
+        () -> {
+          CompletableFuture<RateLimiter.Permit> future = rateLimiter.acquireAsync(key, true);
+          AtomicBoolean subscribed = new AtomicBoolean();
+          return Single.<RateLimiter.Permit>create(
+                  emitter ->
+                      whenGranted(
+                          future,
+                          (permit, error) -> {
+                            if (error != null) {
+                              emitter.tryOnError(new ApiException(error));
+                            } else {
+                              emitter.onSuccess(permit);
+                            }
+                          }))
+              .doOnDispose(
+                  () -> {
+                    // cancelled while waiting, or granted but the stream is not subscribed.
+                    if (!future.cancel(false) && !subscribed.get()) {
+                      future.thenAccept(RateLimiter.Permit::release);
+                    }
+                  })
+              .flatMapPublisher(
+                  permit -> {
+                    subscribed.set(true);
+                    return client
+                        .streamOut(req)
+                        .doOnComplete(permit::onSuccess)
+                        .doOnError(permit::onError)
+                        .doFinally(permit::release);
+                  });
+        });
+  }
+
+  @Override
+  public void streamOut(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
+      throws NoApiKeyException, ApiException {
+    whenGranted(
+        rateLimiter.acquireAsync(getKey(req), true),
+        (permit, error) -> {
+          if (error != null) {
+            callback.onError(new ApiException(error));
+            return;
+          }
+          try {
+            client.streamOut(req, new PermitCallback(permit, callback));
+          } catch (NoApiKeyException | ApiException e) {
+            permit.release();
+            callback.onError(e);
+          }
+        });
+  }
+
+  @Override
+  public boolean close(int code, String reason) {
+    return client.close(code, reason);
+  }
+
+  /**
+   * Run the action when the permit is granted, a queued request is sent off the limiter thread, the
+   * websocket send may block.
+   */
+  private static void whenGranted(
+      CompletableFuture<RateLimiter.Permit> future,
+      BiConsumer<RateLimiter.Permit, Throwable> action) {
+    if (future.isDone()) {
+      future.whenComplete(action);
+    } else {
+      future.whenCompleteAsync(action);
+    }
+  }
+
+  private String getKey(HalfDuplexRequest req) throws NoApiKeyException {
+    String apiKey =
+        rateLimiter.getKeyType() == RateLimiter.KeyType.MODEL
+            ? null
+            : ApiKey.getApiKey(req.getApiKey());
+    return rateLimiter.getKey(req.getModel(), apiKey);
+  }
+
+  /** Report the result to the permit and release it when the request is done. */
+  private static final class PermitCallback extends ResultCallback<DashScopeResult> {
+    private final RateLimiter.Permit permit;
+    private final ResultCallback<DashScopeResult> callback;
+
+    PermitCallback(RateLimiter.Permit permit, ResultCallback<DashScopeResult> callback) {
+      this.permit = permit;
+      this.callback = callback;
+    }
+
+    @Override
+    public void onOpen(Status status) {
+      callback.onOpen(status);
+    }
+
+    @Override
+    public void onEvent(DashScopeResult message) {
+      callback.onEvent(message);
+    }
+
+    @Override
+    public void onComplete() {
+      permit.onSuccess();
+      permit.release();
+      callback.onComplete();
+    }
+
+    @Override
+    public void onError(Exception e) {
+      permit.onError(e);
+      permit.release();
+      callback.onError(e);
+    }
+  }
+}
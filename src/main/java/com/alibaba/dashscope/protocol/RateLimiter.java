@@ -0,0 +1,355 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.utils.SdkThreads;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Client side rate limiter of the requests, a token bucket per model or api key limits the requests
+ * per second and the concurrent streams. The requests over the limit wait in a local FIFO queue
+ * instead of being rejected by the server.
+ *
+ * <p>The rate adapts to the server throttling (AIMD): a throttled response (429 or a Throttling
+ * error code) halves the rate, each successful response increases it a little, up to the configured
+ * rate.
+ *
+ * <p>Set it by ConnectionOptions.rateLimiter, share one limiter between the apis to share the
+ * limits.
+ */
+@Getter
+@Builder
+public final class RateLimiter {
+  /** How the requests are grouped to the buckets. */
+  public enum KeyType {
+    MODEL,
+    API_KEY,
+    MODEL_AND_API_KEY,
+  }
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  /** The default requests per second of a bucket. */
+  @Builder.Default private double qps = 10;
+
+  /** The tokens accumulated when idle, 0 for one second of the rate. */
+  @Builder.Default private double burst = 0;
+
+  /** The default maximum concurrent streams of a bucket. */
+  @Builder.Default private int maxConcurrentStreams = Integer.MAX_VALUE;
+
+  /** The rate is never decreased under this. */
+  @Builder.Default private double minQps = 0.1;
+
+  /** The rate is multiplied by this when throttled. */
+  @Builder.Default private double decreaseFactor = 0.5;
+
+  /** The rate increase per second of successful requests. */
+  @Builder.Default private double additiveIncrease = 1;
+
+  /** How the requests are grouped to the buckets. */
+  @Builder.Default private KeyType keyType = KeyType.MODEL;
+
+  @Getter(AccessLevel.NONE)
+  private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+  @Getter(AccessLevel.NONE)
+  private final Map<String, double[]> limits = new ConcurrentHashMap<>();
+
+  /**
+   * Set the limits of a key, replace the default limits.
+   *
+   * @param key The model or api key, by the key type, or both joined by '/'.
+   * @param qps The requests per second.
+   * @param maxConcurrentStreams The maximum concurrent streams.
+   */
+  public void setLimit(String key, double qps, int maxConcurrentStreams) {
+    if (qps <= 0 || maxConcurrentStreams <= 0) {
+      throw new IllegalArgumentException("The qps and maxConcurrentStreams must be positive");
+    }
+    limits.put(key, new double[] {qps, maxConcurrentStreams});
+    Bucket bucket = buckets.get(key);
+    if (bucket != null) {
+      bucket.setLimit(qps, maxConcurrentStreams);
+    }
+  }
+
+  /**
+   * Get the bucket key of a request.
+   *
+   * @param model The model of the request.
+   * @param apiKey The api key of the request.
+   * @return The key.
+   */
+  public String getKey(String model, String apiKey) {
+    switch (keyType) {
+      case API_KEY:
+        return String.valueOf(apiKey);
+      case MODEL_AND_API_KEY:
+        return model + "/" + apiKey;
+      default:
+        return String.valueOf(model);
+    }
+  }
+
+  /**
+   * Get the current adapted rate of a key.
+   *
+   * @param key The bucket key.
+   * @return The requests per second.
+   */
+  public double getRate(String key) {
+    return bucket(key).getRate();
+  }
+
+  /**
+   * Acquire a permit without blocking, the future is completed when the request can be sent, in the
+   * request order. Cancel the future to leave the queue.
+   *
+   * @param key The bucket key.
+   * @param stream Whether the request is a stream, it also takes a concurrent stream.
+   * @return The future permit, release it when the request is done.
+   */
+  public CompletableFuture<Permit> acquireAsync(String key, boolean stream) {
+    return bucket(key).acquire(stream);
+  }
+
+  /**
+   * Acquire a permit, wait until the request can be sent.
+   *
+   * @param key The bucket key.
+   * @param stream Whether the request is a stream, it also takes a concurrent stream.
+   * @return The permit, release it when the request is done.
+   * @throws ApiException Interrupted while waiting.
+   */
+  public Permit acquire(String key, boolean stream) throws ApiException {
+    CompletableFuture<Permit> future = acquireAsync(key, stream);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      if (!future.cancel(false)) {
+        future.join().release();
+      }
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      throw new ApiException(e.getCause());
+    }
+  }
+
+  /**
+   * Whether the failure is the server throttling.
+   *
+   * @param error The failure of the request.
+   * @return true if throttled.
+   */
+  public static boolean isThrottled(Throwable error) {
+    if (!(error instanceof ApiException)) {
+      return false;
+    }
+    Status status = ((ApiException) error).getStatus();
+    return status != null
+        && (status.getStatusCode() == 429
+            || (status.getCode() != null && status.getCode().startsWith("Throttling")));
+  }
+
+  private Bucket bucket(String key) {
+    return buckets.computeIfAbsent(
+        key,
+        k -> {
+          double[] limit = limits.get(k);
+          return limit == null
+              ? new Bucket(qps, maxConcurrentStreams)
+              : new Bucket(limit[0], (int) limit[1]);
+        });
+  }
+
+  /** The permit of a request, report the result and release it when the request is done. */
+  public static final class Permit {
+    private final Bucket bucket;
+    private final boolean stream;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    private Permit(Bucket bucket, boolean stream) {
+      this.bucket = bucket;
+      this.stream = stream;
+    }
+
+    /** The request succeeded, increase the rate. */
+    public void onSuccess() {
+      bucket.increase();
+    }
+
+    /**
+     * The request failed, decrease the rate if it is throttled.
+     *
+     * @param error The failure.
+     */
+    public void onError(Throwable error) {
+      if (isThrottled(error)) {
+        bucket.decrease();
+      }
+    }
+
+    /** Release the concurrent stream of the permit, only the first call takes effect. */
+    public void release() {
+      if (stream && released.compareAndSet(false, true)) {
+        bucket.releaseStream();
+      }
+    }
+  }
+
+  private final class Bucket {
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private double maxRate;
+    private double rate;
+    private double tokens;
+    private long refillNanos;
+    private long decreaseNanos;
+    private int maxStreams;
+    private int streams;
+    private boolean drainScheduled;
+
+    Bucket(double maxRate, int maxStreams) {
+      this.maxRate = maxRate;
+      this.rate = maxRate;
+      this.maxStreams = maxStreams;
+      this.tokens = capacity();
+      this.refillNanos = System.nanoTime();
+      this.decreaseNanos = refillNanos - NANOS_PER_SECOND;
+    }
+
+    synchronized double getRate() {
+      return rate;
+    }
+
+    void setLimit(double maxRate, int maxStreams) {
+      List<Waiter> granted;
+      synchronized (this) {
+        this.maxRate = maxRate;
+        this.rate = Math.min(rate, maxRate);
+        this.maxStreams = maxStreams;
+        granted = drain();
+      }
+      granted.forEach(Waiter::complete);
+    }
+
+    CompletableFuture<Permit> acquire(boolean stream) {
+      Waiter waiter = new Waiter(stream);
+      List<Waiter> granted;
+      synchronized (this) {
+        waiters.add(waiter);
+        granted = drain();
+      }
+      granted.forEach(Waiter::complete);
+      return waiter.future;
+    }
+
+    void releaseStream() {
+      List<Waiter> granted;
+      synchronized (this) {
+        --streams;
+        granted = drain();
+      }
+      granted.forEach(Waiter::complete);
+    }
+
+    synchronized void increase() {
+      // rate successes per second, each adds additiveIncrease / rate.
+      rate = Math.min(maxRate, rate + additiveIncrease / rate);
+    }
+
+    synchronized void decrease() {
+      long now = System.nanoTime();
+      // the requests sent before the decrease may be throttled too, decrease once for them.
+      if (now - decreaseNanos >= Math.max(NANOS_PER_SECOND, NANOS_PER_SECOND / rate)) {
+        refill(now);
+        rate = Math.max(Math.min(minQps, maxRate), rate * decreaseFactor);
+        tokens = Math.min(tokens, capacity());
+        decreaseNanos = now;
+      }
+    }
+
+    private double capacity() {
+      return Math.max(1, burst > 0 ? burst : rate);
+    }
+
+    private void refill(long now) {
+      tokens = Math.min(capacity(), tokens + (now - refillNanos) * rate / NANOS_PER_SECOND);
+      refillNanos = now;
+    }
+
+    /** Grant the waiters in order, the caller completes the granted waiters out of the lock. */
+    private List<Waiter> drain() {
+      refill(System.nanoTime());
+      List<Waiter> granted = new ArrayList<>();
+      Waiter waiter;
+      while ((waiter = waiters.peek()) != null) {
+        if (waiter.future.isDone()) { // cancelled.
+          waiters.poll();
+          continue;
+        }
+        if (waiter.stream && streams >= maxStreams) {
+          break; // wait for a stream released.
+        }
+        if (tokens < 1) {
+          scheduleDrain((long) Math.ceil((1 - tokens) * NANOS_PER_SECOND / rate));
+          break;
+        }
+        tokens -= 1;
+        if (waiter.stream) {
+          ++streams;
+        }
+        granted.add(waiters.poll());
+      }
+      return granted;
+    }
+
+    private void scheduleDrain(long delayNanos) {
+      if (drainScheduled) {
+        return;
+      }
+      drainScheduled = true;
+      // rounded up to milliseconds, an early drain would find no token and schedule again.
+      SdkThreads.schedule(
+          () -> {
+            List<Waiter> granted;
+            synchronized (this) {
+              drainScheduled = false;
+              granted = drain();
+            }
+            granted.forEach(Waiter::complete);
+          },
+          TimeUnit.NANOSECONDS.toMillis(delayNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+    }
+
+    private final class Waiter {
+      final boolean stream;
+      final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+      Waiter(boolean stream) {
+        this.stream = stream;
+      }
+
+      void complete() {
+        Permit permit = new Permit(Bucket.this, stream);
+        if (!future.complete(permit)) { // cancelled after granted.
+          permit.release();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,58 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+/**
+ * Token bucket that throttles the retries when most requests fail, so the retries do not multiply
+ * the load of an overloaded server (retry storm). Same as the gRPC retry throttling: a failed
+ * attempt takes a token, a successful one returns tokenRatio tokens, and the retries are allowed
+ * only while more than half of the tokens are left. Ref:
+ * https://github.com/grpc/proposal/blob/master/A6-client-retries.md#throttling-retry-attempts-and-hedged-rpcs
+ */
+public final class RetryBudget {
+  private static final RetryBudget SHARED = new RetryBudget(20, 0.1);
+
+  private final double maxTokens;
+  private final double tokenRatio;
+  private double tokens;
+
+  /**
+   * Create a budget.
+   *
+   * @param maxTokens The bucket size, the retries stop after maxTokens / 2 failures in a row.
+   * @param tokenRatio The tokens returned by a success, e.g. 0.1 allows a retry per 10 successes.
+   */
+  public RetryBudget(int maxTokens, double tokenRatio) {
+    if (maxTokens <= 0 || tokenRatio <= 0) {
+      throw new IllegalArgumentException("maxTokens and tokenRatio must be positive");
+    }
+    this.maxTokens = maxTokens;
+    this.tokenRatio = tokenRatio;
+    this.tokens = maxTokens;
+  }
+
+  /** The budget shared by all the clients by default. */
+  public static RetryBudget shared() {
+    return SHARED;
+  }
+
+  /**
+   * Record a failed attempt and check the budget.
+   *
+   * @return Whether the failed attempt can be retried.
+   */
+  public synchronized boolean onFailure() {
+    tokens = Math.max(0, tokens - 1);
+    return tokens > maxTokens / 2;
+  }
+
+  /** Record a successful attempt. */
+  public synchronized void onSuccess() {
+    tokens = Math.min(maxTokens, tokens + tokenRatio);
+  }
+
+  /** The tokens left. */
+  public synchronized double getTokens() {
+    return tokens;
+  }
+}
@@ -0,0 +1,201 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The retry policy of the requests: which failures are retried, the exponential backoff with
+ * jitter, the Retry-After header, and the retry budget shared by the clients.
+ *
+ * <p>The requests rejected before processing (connection failures, 429 and 503) are retried for all
+ * methods, the other failures only for the idempotent methods, a POST may have been processed. The
+ * async calls schedule the retry, no thread is blocked during the backoff.
+ *
+ * <p>The http requests are not retried by default, a retried generation may be billed twice. Opt in
+ * by ConnectionOptions.retryPolicy or the env DASHSCOPE_MAX_RETRIES.
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class RetryPolicy {
+  /** The maximum retries of a request, 0 to disable the retries. */
+  private static final String MAX_RETRIES_ENV = "DASHSCOPE_MAX_RETRIES";
+
+  private static final int DEFAULT_MAX_RETRIES = 0;
+
+  /** Do not retry. */
+  public static final RetryPolicy NONE = RetryPolicy.builder().maxRetries(0).build();
+
+  private static final RetryPolicy DEFAULT = RetryPolicy.builder().build();
+
+  /** The maximum retries of a request, 0 to disable the retries, the default. */
+  @Builder.Default private int maxRetries = getEnvMaxRetries();
+
+  /** The backoff of the first retry. */
+  @Builder.Default private Duration initialBackoff = Duration.ofMillis(500);
+
+  /** The maximum backoff, a longer Retry-After is not waited, the failure is returned. */
+  @Builder.Default private Duration maxBackoff = Duration.ofSeconds(20);
+
+  /** The backoff multiplier of each retry. */
+  @Builder.Default private double multiplier = 2;
+
+  /** The random part of the backoff, the delay is in [backoff * (1 - jitter), backoff]. */
+  @Builder.Default private double jitter = 0.5;
+
+  /** The status codes retried for all methods, the server rejects them without processing. */
+  @Builder.Default private Set<Integer> retryableStatusCodes = setOf(429, 503);
+
+  /** The status codes retried for the idempotent methods only. */
+  @Builder.Default private Set<Integer> idempotentRetryableStatusCodes = setOf(500, 502, 504);
+
+  /** Wait at least the Retry-After of the response. */
+  @Builder.Default private boolean respectRetryAfter = true;
+
+  /** The retry budget, shared by all the clients by default. */
+  @Builder.Default private RetryBudget budget = RetryBudget.shared();
+
+  /**
+   * The default policy, no retry unless the maximum retries are set by env DASHSCOPE_MAX_RETRIES.
+   */
+  public static RetryPolicy getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Get the delay before retrying a failed response.
+   *
+   * @param attempt The number of the failed attempt, from 1.
+   * @param method The request method.
+   * @param statusCode The response status code.
+   * @param retryAfter The Retry-After header of the response, seconds or http date, may be null.
+   * @return The delay in milliseconds, or -1 if the request should not be retried.
+   */
+  public long getRetryDelayMillis(
+      int attempt, HttpMethod method, int statusCode, String retryAfter) {
+    boolean retryable =
+        retryableStatusCodes.contains(statusCode)
+            || (isIdempotent(method) && idempotentRetryableStatusCodes.contains(statusCode));
+    if (!retryable || !tryRetry(attempt)) {
+      return -1;
+    }
+    long delay = getBackoffMillis(attempt);
+    if (respectRetryAfter && retryAfter != null) {
+      long retryAfterMillis = parseRetryAfterMillis(retryAfter);
+      if (retryAfterMillis > maxBackoff.toMillis()) {
+        return -1;
+      }
+      delay = Math.max(delay, retryAfterMillis);
+    }
+    return delay;
+  }
+
+  /**
+   * Get the delay before retrying a request failed without response.
+   *
+   * @param attempt The number of the failed attempt, from 1.
+   * @param method The request method.
+   * @param error The failure.
+   * @return The delay in milliseconds, or -1 if the request should not be retried.
+   */
+  public long getRetryDelayMillis(int attempt, HttpMethod method, Throwable error) {
+    boolean retryable =
+        isConnectFailure(error) || (isIdempotent(method) && error instanceof IOException);
+    if (!retryable || !tryRetry(attempt)) {
+      return -1;
+    }
+    return getBackoffMillis(attempt);
+  }
+
+  /**
+   * Get the delay before retrying a failure which is always safe to retry, e.g. a websocket
+   * connection failed.
+   *
+   * @param attempt The number of the failed attempt, from 1.
+   * @return The delay in milliseconds, or -1 if the retries are used up.
+   */
+  public long getRetryDelayMillis(int attempt) {
+    return tryRetry(attempt) ? getBackoffMillis(attempt) : -1;
+  }
+
+  /** Record a successful request, it refills the retry budget. */
+  public void onSuccess() {
+    if (maxRetries > 0) {
+      budget.onSuccess();
+    }
+  }
+
+  /**
+   * Get the exponential backoff of the attempt with jitter, not limited by the retries and budget.
+   *
+   * @param attempt The number of the failed attempt, from 1.
+   * @return The backoff in milliseconds.
+   */
+  public long getBackoffMillis(int attempt) {
+    double backoff = initialBackoff.toMillis() * Math.pow(multiplier, attempt - 1);
+    backoff = Math.min(backoff, maxBackoff.toMillis());
+    return (long) (backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+  }
+
+  private boolean tryRetry(int attempt) {
+    if (maxRetries <= 0) {
+      return false;
+    }
+    // every failure takes a token, even the last one, so the budget sees all the failures.
+    return budget.onFailure() && attempt <= maxRetries;
+  }
+
+  private static boolean isIdempotent(HttpMethod method) {
+    return method != null && method.isIdempotent();
+  }
+
+  /** The connection is not established, the request is not sent. */
+  private static boolean isConnectFailure(Throwable error) {
+    return error instanceof ConnectException
+        || error instanceof UnknownHostException
+        || error instanceof NoRouteToHostException
+        || (error instanceof SocketTimeoutException
+            && "connect timed out".equals(error.getMessage()));
+  }
+
+  static long parseRetryAfterMillis(String retryAfter) {
+    try {
+      return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+    } catch (NumberFormatException e) {
+      try {
+        ZonedDateTime date =
+            ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+        return Math.max(0, date.toInstant().toEpochMilli() - System.currentTimeMillis());
+      } catch (DateTimeParseException ignored) {
+        return 0;
+      }
+    }
+  }
+
+  private static int getEnvMaxRetries() {
+    try {
+      return Integer.parseInt(System.getenv(MAX_RETRIES_ENV));
+    } catch (NumberFormatException e) {
+      return DEFAULT_MAX_RETRIES;
+    }
+  }
+
+  private static Set<Integer> setOf(Integer... codes) {
+    return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(codes)));
+  }
+}
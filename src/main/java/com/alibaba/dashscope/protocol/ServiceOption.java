@@ -55,4 +55,14 @@ public interface ServiceOption {
   public default boolean getIsFlatten() {
     return false;
   }
+
+  /**
+   * Whether the websocket service returns binary frames, e.g. the synthesized audio. The binary
+   * frames carry no task_id, these tasks do not share a websocket with concurrent tasks.
+   *
+   * @return if the service returns binary frames
+   */
+  public default boolean isBinaryOutput() {
+    return false;
+  }
 }
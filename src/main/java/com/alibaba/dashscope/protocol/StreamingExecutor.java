@@ -0,0 +1,238 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol;
+
+import com.alibaba.dashscope.common.ErrorType;
+import com.alibaba.dashscope.common.Status;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.utils.SdkThreads;
+import com.alibaba.dashscope.utils.StringUtils;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The executor of the full duplex senders, a sender sends the streaming data of a session to the
+ * websocket and may block on the socket writes. The sessions over the maximum threads wait in the
+ * queue or fail fast, by the rejection policy.
+ *
+ * <p>Set it by ConnectionOptions.streamingExecutor, the clients without it share the default
+ * executor.
+ */
+@Slf4j
+@Getter
+@Builder
+public final class StreamingExecutor {
+  /** What to do with the sessions over the maximum threads. */
+  public enum RejectionPolicy {
+    /** Wait in the queue of maxQueueSize, reject when the queue is full. */
+    QUEUE,
+    /** Reject at once. */
+    FAIL_FAST,
+  }
+
+  private static final StreamingExecutor DEFAULT = createDefault();
+
+  /** The maximum sender threads, not limited on virtual threads. */
+  @Builder.Default private int maxThreads = 100;
+
+  /** The maximum sessions waiting for a thread, for the QUEUE policy. */
+  @Builder.Default private int maxQueueSize = 1024;
+
+  /** What to do with the sessions over the maximum threads. */
+  @Builder.Default private RejectionPolicy rejectionPolicy = RejectionPolicy.QUEUE;
+
+  /** Run a virtual thread per session, on Java 21 or later. */
+  @Builder.Default private boolean virtualThreads = SdkThreads.isVirtualThreadsEnabled();
+
+  /**
+   * The user executor of the senders, it replaces the SDK threads and the limits above, and it is
+   * not shut down by the SDK.
+   */
+  private ExecutorService executor;
+
+  @Getter(AccessLevel.NONE)
+  private final Sessions sessions = new Sessions();
+
+  /** The gauges of the executor. */
+  @Data
+  @Builder
+  public static class Stats {
+    /** The sessions sending the streaming data. */
+    private int activeSessions;
+
+    /** The sessions waiting for a thread. */
+    private int queueDepth;
+
+    /** The sessions sent. */
+    private long completedSessions;
+
+    /** The sessions rejected. */
+    private long rejectedSessions;
+  }
+
+  /**
+   * Get the default executor shared by the clients.
+   *
+   * @return The default executor.
+   */
+  public static StreamingExecutor getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Run the sender of a session.
+   *
+   * @param task The sender.
+   * @return The future of the sender, cancel it to skip a queued sender.
+   * @throws ApiException The session is rejected.
+   */
+  public CompletableFuture<Void> execute(Runnable task) throws ApiException {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    sessions.queued.incrementAndGet();
+    try {
+      sessions.getExecutorService().execute(() -> sessions.run(task, future));
+    } catch (RejectedExecutionException e) {
+      sessions.queued.decrementAndGet();
+      sessions.rejected.incrementAndGet();
+      String message =
+          StringUtils.format(
+              "The streaming executor is saturated, %d active sessions, %d queued, "
+                  + "increase maxThreads or maxQueueSize of the StreamingExecutor",
+              sessions.active.get(), sessions.queued.get());
+      throw new ApiException(
+          Status.builder()
+              .statusCode(-1)
+              .code(ErrorType.REQUEST_REJECTED.getValue())
+              .message(message)
+              .build(),
+          e);
+    }
+    return future;
+  }
+
+  /**
+   * Get the gauges of the executor.
+   *
+   * @return The gauges.
+   */
+  public Stats getStats() {
+    return Stats.builder()
+        .activeSessions(sessions.active.get())
+        .queueDepth(sessions.queued.get())
+        .completedSessions(sessions.completed.get())
+        .rejectedSessions(sessions.rejected.get())
+        .build();
+  }
+
+  /**
+   * Shutdown the SDK threads gracefully, wait up to 60 seconds for the senders. The user executor
+   * is not shut down.
+   */
+  public void shutdown() {
+    ExecutorService executorService = sessions.getCreated();
+    if (executorService == null || executorService.isShutdown()) {
+      return;
+    }
+    log.debug("Shutting down streaming request executor...");
+    executorService.shutdown();
+    try {
+      if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
+        log.warn("Streaming request executor did not terminate in 60 seconds, forcing shutdown...");
+        executorService.shutdownNow();
+        if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
+          log.error("Streaming request executor did not terminate");
+        }
+      }
+    } catch (InterruptedException ie) {
+      executorService.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    log.info("Streaming request executor shut down completed");
+  }
+
+  private static StreamingExecutor createDefault() {
+    StreamingExecutor executor = StreamingExecutor.builder().build();
+    // auto close when jvm shutdown
+    Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdown));
+    return executor;
+  }
+
+  /** The sessions of the executor, the SDK threads are created on the first session. */
+  private final class Sessions {
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private ExecutorService created;
+
+    synchronized ExecutorService getCreated() {
+      return created;
+    }
+
+    synchronized ExecutorService getExecutorService() {
+      if (executor != null) {
+        return executor;
+      }
+      if (created == null) {
+        created = create();
+      }
+      return created;
+    }
+
+    private ExecutorService create() {
+      String prefix = "WS-STREAMING-REQ-Worker-";
+      if (virtualThreads && SdkThreads.isVirtualThreadsSupported()) {
+        return SdkThreads.newExecutor(prefix, maxThreads, true);
+      }
+      BlockingQueue<Runnable> queue =
+          rejectionPolicy == RejectionPolicy.QUEUE && maxQueueSize > 0
+              ? new LinkedBlockingQueue<>(maxQueueSize)
+              : new SynchronousQueue<>();
+      ThreadPoolExecutor pool =
+          new ThreadPoolExecutor(
+              maxThreads,
+              maxThreads,
+              60L,
+              TimeUnit.SECONDS,
+              queue,
+              SdkThreads.newThreadFactory(prefix, false));
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+
+    void run(Runnable task, CompletableFuture<Void> future) {
+      queued.decrementAndGet();
+      if (future.isDone()) { // cancelled while queued.
+        return;
+      }
+      active.incrementAndGet();
+      Throwable error = null;
+      try {
+        task.run();
+      } catch (Throwable e) {
+        error = e;
+      }
+      // update the gauges before the future completes.
+      active.decrementAndGet();
+      completed.incrementAndGet();
+      if (error == null) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(error);
+      }
+    }
+  }
+}
@@ -2,7 +2,47 @@
 
 package com.alibaba.dashscope.protocol;
 
+import com.alibaba.dashscope.utils.ApiKeywords;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+
 public class WebSocketResponse {
   public WebSocketResponseHeader header;
   public WebSocketResponsePayload payload;
+
+  /**
+   * Decode a text frame in one pass, the header fields are read directly and only the output and
+   * usage are kept as json tree. Missing header or payload is null, as decoding by Gson.
+   *
+   * @param text The text frame.
+   * @return The decoded response.
+   * @throws JsonSyntaxException The frame is not a json object.
+   */
+  public static WebSocketResponse fromJson(String text) throws JsonSyntaxException {
+    WebSocketResponse response = new WebSocketResponse();
+    try (JsonReader reader = new JsonReader(new StringReader(text))) {
+      // lenient as Gson.fromJson.
+      reader.setLenient(true);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        if (reader.peek() == JsonToken.NULL) {
+          reader.nextNull();
+        } else if (ApiKeywords.HEADER.equals(name)) {
+          response.header = WebSocketResponseHeader.read(reader);
+        } else if (ApiKeywords.PAYLOAD.equals(name)) {
+          response.payload = WebSocketResponsePayload.read(reader);
+        } else {
+          reader.skipValue();
+        }
+      }
+      reader.endObject();
+    } catch (IOException | IllegalStateException | NumberFormatException e) {
+      throw new JsonSyntaxException(e);
+    }
+    return response;
+  }
 }
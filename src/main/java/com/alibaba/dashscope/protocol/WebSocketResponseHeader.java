@@ -2,19 +2,70 @@
 
 package com.alibaba.dashscope.protocol;
 
+import com.alibaba.dashscope.utils.ApiKeywords;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import lombok.Data;
 
 @Data
 public class WebSocketResponseHeader {
+  private static final Map<String, WebSocketEventType> EVENTS = new HashMap<>();
+
+  static {
+    for (WebSocketEventType event : WebSocketEventType.values()) {
+      EVENTS.put(event.getValue(), event);
+    }
+  }
+
   @SerializedName("task_id")
   public String taskId;
 
   public WebSocketEventType event;
 
+  @SerializedName("status_code")
+  public Integer statusCode;
+
   @SerializedName("error_code")
   public String code;
 
   @SerializedName("error_message")
   public String message;
+
+  static WebSocketResponseHeader read(JsonReader reader) throws IOException {
+    WebSocketResponseHeader header = new WebSocketResponseHeader();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (reader.peek() == JsonToken.NULL) {
+        reader.nextNull();
+        continue;
+      }
+      switch (name) {
+        case ApiKeywords.TASKID:
+          header.taskId = reader.nextString();
+          break;
+        case ApiKeywords.EVENT:
+          // unknown event is null, as decoding by Gson.
+          header.event = EVENTS.get(reader.nextString());
+          break;
+        case ApiKeywords.STATUS_CODE:
+          header.statusCode = reader.nextInt();
+          break;
+        case ApiKeywords.ERROR_CODE:
+          header.code = reader.nextString();
+          break;
+        case ApiKeywords.ERROR_MESSAGE:
+          header.message = reader.nextString();
+          break;
+        default:
+          reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return header;
+  }
 }
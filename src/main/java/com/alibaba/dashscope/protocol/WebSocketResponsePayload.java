@@ -2,10 +2,31 @@
 
 package com.alibaba.dashscope.protocol;
 
+import com.alibaba.dashscope.utils.ApiKeywords;
+import com.alibaba.dashscope.utils.JsonUtils;
 import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import java.io.IOException;
 
 public class WebSocketResponsePayload {
   // JsonElement for JsonNull
   public JsonElement output;
   public JsonElement usage;
+
+  static WebSocketResponsePayload read(JsonReader reader) throws IOException {
+    WebSocketResponsePayload payload = new WebSocketResponsePayload();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (ApiKeywords.OUTPUT.equals(name)) {
+        payload.output = JsonUtils.parseReader(reader);
+      } else if (ApiKeywords.USAGE.equals(name)) {
+        payload.usage = JsonUtils.parseReader(reader);
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return payload;
+  }
 }
@@ -0,0 +1,26 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** A snapshot of the connection pool and dispatcher occupancy of a client. */
+@Data
+@Builder
+public class ConnectionPoolStats {
+  /** The open connections, in use and idle. */
+  private int connectionCount;
+
+  /** The idle connections, ready for the next request. */
+  private int idleConnectionCount;
+
+  /** The running async calls, streaming calls included. */
+  private int runningCallsCount;
+
+  /** The async calls waiting for the dispatcher limits. */
+  private int queuedCallsCount;
+
+  /** The maximum concurrent async calls per host. */
+  private int maxRequestsPerHost;
+}
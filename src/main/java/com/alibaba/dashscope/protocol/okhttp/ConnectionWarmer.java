@@ -0,0 +1,165 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.utils.SdkThreads;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Open connections to a host before the first call, and keep them in the pool while the service is
+ * idle. The concurrent HEAD requests each take a connection, the connections are returned to the
+ * pool when the responses are closed, any response status is fine. A connection idle longer than
+ * the pool idle timeout is evicted, so the keep-alive interval should be shorter than it.
+ */
+@Slf4j
+public final class ConnectionWarmer implements AutoCloseable {
+  private final OkHttpClient client;
+  private final Request request;
+  private final int connections;
+  private KeepAlive keepAlive;
+
+  /**
+   * Create the warmer.
+   *
+   * @param client The client whose pool is warmed.
+   * @param url The url of the host, e.g. the http base url.
+   * @param connections The number of concurrent requests, at most the connections opened.
+   */
+  public ConnectionWarmer(OkHttpClient client, String url, int connections) {
+    if (connections <= 0) {
+      throw new IllegalArgumentException("connections must be positive, got " + connections);
+    }
+    this.client = client;
+    this.request = new Request.Builder().url(url).head().build();
+    this.connections = connections;
+  }
+
+  /**
+   * Send the concurrent requests once.
+   *
+   * @return The future of the number of requests succeeded, completed when all requests are done.
+   */
+  public CompletableFuture<Integer> warm() {
+    CompletableFuture<Integer> future = new CompletableFuture<>();
+    AtomicInteger pending = new AtomicInteger(connections);
+    AtomicInteger succeeded = new AtomicInteger();
+    Callback callback =
+        new Callback() {
+          @Override
+          public void onFailure(Call call, IOException e) {
+            log.debug("Warm up connection to {} failed: {}", request.url().host(), e.getMessage());
+            done();
+          }
+
+          @Override
+          public void onResponse(Call call, Response response) {
+            response.close();
+            succeeded.incrementAndGet();
+            done();
+          }
+
+          private void done() {
+            if (pending.decrementAndGet() == 0) {
+              future.complete(succeeded.get());
+            }
+          }
+        };
+    for (int i = 0; i < connections; ++i) {
+      client.newCall(request).enqueue(callback);
+    }
+    return future;
+  }
+
+  /**
+   * Warm the connections now and then every interval, until closed. A round is scheduled on the SDK
+   * timer when the previous one is done or has waited the connect timeout, so a slow host does not
+   * pile the requests up.
+   *
+   * @param interval The keep-alive interval.
+   * @return This warmer.
+   */
+  public synchronized ConnectionWarmer start(Duration interval) {
+    if (keepAlive != null) {
+      throw new IllegalStateException("The connection warmer is already started");
+    }
+    keepAlive = new KeepAlive(interval.toMillis());
+    keepAlive.schedule(0);
+    return this;
+  }
+
+  /** Stop the keep-alive requests, the connections are left to the pool. */
+  @Override
+  public synchronized void close() {
+    if (keepAlive != null) {
+      keepAlive.close();
+      keepAlive = null;
+    }
+  }
+
+  /** The keep-alive rounds of a start, ended by close. */
+  private final class KeepAlive {
+    private final long intervalMillis;
+    private boolean closed;
+    private ScheduledFuture<?> next;
+
+    private KeepAlive(long intervalMillis) {
+      this.intervalMillis = intervalMillis;
+    }
+
+    private synchronized void schedule(long delayMillis) {
+      if (!closed) {
+        next = SdkThreads.schedule(this::round, delayMillis);
+      }
+    }
+
+    private synchronized void close() {
+      closed = true;
+      if (next != null) {
+        next.cancel(false);
+      }
+    }
+
+    private void round() {
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+      }
+      // the next round is scheduled once, by the end of the round or by the timeout.
+      AtomicBoolean done = new AtomicBoolean();
+      CompletableFuture<Integer> round = warm();
+      long timeoutMillis = client.connectTimeoutMillis();
+      ScheduledFuture<?> timeout =
+          timeoutMillis > 0
+              ? SdkThreads.schedule(
+                  () -> {
+                    if (done.compareAndSet(false, true)) {
+                      log.debug("Warm up connections to {} timed out", request.url().host());
+                      schedule(intervalMillis);
+                    }
+                  },
+                  timeoutMillis)
+              : null;
+      round.whenComplete(
+          (succeeded, e) -> {
+            if (done.compareAndSet(false, true)) {
+              if (timeout != null) {
+                timeout.cancel(false);
+              }
+              schedule(intervalMillis);
+            }
+          });
+    }
+  }
+}
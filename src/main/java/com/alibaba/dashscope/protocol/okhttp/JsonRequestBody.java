@@ -0,0 +1,102 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonElement;
+import java.io.IOException;
+import java.io.Writer;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+
+/**
+ * Write the json tree as UTF-8 to an okio buffer once, without building the json string and its
+ * UTF-8 bytes. The body is sent with its Content-Length, some proxies and gateways reject the
+ * chunked requests, and the retries write the same buffer again by sharing its segments.
+ */
+public final class JsonRequestBody extends RequestBody {
+  private final MediaType contentType;
+  private final JsonElement body;
+  private final boolean serializeNulls;
+  // the UTF-8 body, written on the first use.
+  private Buffer serialized;
+
+  /**
+   * Create the body.
+   *
+   * @param contentType The content type.
+   * @param body The json tree.
+   * @param serializeNulls Keep the explicit json null members.
+   */
+  public JsonRequestBody(MediaType contentType, JsonElement body, boolean serializeNulls) {
+    this.contentType = contentType;
+    this.body = body;
+    this.serializeNulls = serializeNulls;
+  }
+
+  @Override
+  public MediaType contentType() {
+    return contentType;
+  }
+
+  @Override
+  public long contentLength() throws IOException {
+    return serialize().size();
+  }
+
+  @Override
+  public void writeTo(BufferedSink sink) throws IOException {
+    Buffer buffer = serialize();
+    // the copy shares the segments, the bytes are not copied.
+    sink.write(buffer.copy(), buffer.size());
+  }
+
+  private synchronized Buffer serialize() throws IOException {
+    if (serialized == null) {
+      Buffer buffer = new Buffer();
+      JsonUtils.writeJson(body, new SinkWriter(buffer), serializeNulls);
+      serialized = buffer;
+    }
+    return serialized;
+  }
+
+  /**
+   * Encode the chars to the sink as UTF-8. Unlike OutputStreamWriter, it does not copy every string
+   * written by JsonWriter. Closing the writer does not close the sink.
+   */
+  private static final class SinkWriter extends Writer {
+    private final BufferedSink sink;
+
+    SinkWriter(BufferedSink sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+      if (c < 0x80) {
+        sink.writeByte(c);
+      } else {
+        sink.writeUtf8CodePoint(c);
+      }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      sink.writeUtf8(str, off, off + len);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      sink.writeUtf8(new String(cbuf, off, len));
+    }
+
+    @Override
+    public void flush() {
+      // the buffer needs no flush.
+    }
+
+    @Override
+    public void close() {}
+  }
+}
@@ -0,0 +1,404 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.protocol.WebSocketEventType;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.SdkThreads;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+import okio.Utf8;
+
+/**
+ * A websocket shared by the tasks of the multiplexer. Each task sees its own WebSocket, the inbound
+ * text frames are routed to the task by header.task_id, the outbound frames of the tasks wait in
+ * the task queues and are sent in turn, a frame per task, so a fast task does not delay the others.
+ *
+ * <p>The binary frames carry no task_id, an inbound binary frame is routed to the oldest running
+ * task of the socket. The tasks with binary output run alone on a socket, see WebSocketMultiplexer.
+ *
+ * <p>A task closed before its task-finished or task-failed event still runs on the server. It is
+ * abandoned: its frames are dropped and no task is attached to the socket until the server ends it,
+ * so its late audio does not reach the next task. The socket is closed if it does not end in time.
+ */
+@Slf4j
+final class MultiplexedWebSocket extends WebSocketListener {
+  // the bytes queued in the okhttp websocket, the frames over it wait in the task queues.
+  private static final long MAX_SOCKET_QUEUE_BYTES = 256 * 1024;
+  // the bytes queued by a task, the limit of the okhttp websocket.
+  private static final long MAX_TASK_QUEUE_BYTES = 16 * 1024 * 1024;
+  private static final long DRAIN_INTERVAL_MILLIS = 5;
+  // the time an abandoned task is waited to end on the server before the socket is closed.
+  private static final long ABANDONED_TASK_TIMEOUT_MILLIS = 60_000;
+
+  private final WebSocketMultiplexer multiplexer;
+  private final String key;
+  // the tasks in attach order, guarded by this.
+  private final List<Task> tasks = new ArrayList<>();
+  private final Map<String, Task> tasksById = new HashMap<>();
+  private volatile WebSocket webSocket;
+  private boolean open;
+  private boolean closed;
+  private boolean drainScheduled;
+  // the abandoned tasks not ended by the server, the socket takes no task meanwhile.
+  private int abandonedTasks;
+  private int nextTask;
+  private long idleSinceNanos;
+
+  MultiplexedWebSocket(WebSocketMultiplexer multiplexer, String key) {
+    this.multiplexer = multiplexer;
+    this.key = key;
+    this.idleSinceNanos = System.nanoTime();
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  void connect(OkHttpClient client, Request request) {
+    webSocket = client.newWebSocket(request, this);
+  }
+
+  synchronized int getTaskCount() {
+    return tasks.size();
+  }
+
+  /** Whether a task can be attached now. */
+  synchronized boolean isAvailable(int maxTasks) {
+    return !closed && abandonedTasks == 0 && tasks.size() < maxTasks;
+  }
+
+  /** Idle since the time, or -1 if there are tasks. */
+  synchronized long getIdleSinceNanos() {
+    return tasks.isEmpty() ? idleSinceNanos : -1;
+  }
+
+  /**
+   * Attach a task, the open event is sent to the listener at once if the socket is open.
+   *
+   * @return The task, null if the socket is closed, full or waits for an abandoned task.
+   */
+  Task attach(WebSocketListener listener, Request request, int maxTasks) {
+    Task task;
+    boolean isOpen;
+    synchronized (this) {
+      if (!isAvailable(maxTasks)) {
+        return null;
+      }
+      task = new Task(listener, request);
+      tasks.add(task);
+      isOpen = open;
+    }
+    if (isOpen) {
+      listener.onOpen(task, null);
+    }
+    return task;
+  }
+
+  void close(int code, String reason) {
+    synchronized (this) {
+      closed = true;
+    }
+    WebSocket current = webSocket;
+    if (current != null) {
+      current.close(code, reason);
+    }
+  }
+
+  private synchronized void detach(Task task) {
+    if (task.detached) {
+      return;
+    }
+    task.detached = true;
+    task.outbound.clear();
+    task.queuedBytes = 0;
+    if (task.abandoned) {
+      --abandonedTasks;
+    }
+    tasks.remove(task);
+    if (task.taskId != null) {
+      tasksById.remove(task.taskId);
+    }
+    if (tasks.isEmpty()) {
+      idleSinceNanos = System.nanoTime();
+      multiplexer.scheduleIdleCheck();
+    }
+  }
+
+  /** Detach a task closed by the caller, or abandon it if the server still runs it. */
+  private void abandon(Task task) {
+    synchronized (this) {
+      if (task.detached || task.abandoned) {
+        return;
+      }
+      if (closed || task.taskId == null || !task.started || task.ended) {
+        // the server does not run the task.
+        detach(task);
+        return;
+      }
+      task.abandoned = true;
+      task.outbound.clear();
+      task.queuedBytes = 0;
+      ++abandonedTasks;
+    }
+    log.debug("Task {} closed before it ended, drop its frames until it ends.", task.taskId);
+    SdkThreads.schedule(
+        () -> {
+          synchronized (this) {
+            if (task.detached) {
+              return;
+            }
+          }
+          log.warn("Abandoned task {} did not end, close the websocket.", task.taskId);
+          close(1000, "bye");
+        },
+        ABANDONED_TASK_TIMEOUT_MILLIS);
+  }
+
+  private boolean enqueue(Task task, Object frame, long size) {
+    synchronized (this) {
+      if (closed || task.detached || task.queuedBytes + size > MAX_TASK_QUEUE_BYTES) {
+        return false;
+      }
+      task.outbound.add(frame);
+      task.queuedBytes += size;
+    }
+    drain();
+    return true;
+  }
+
+  /** Send the queued frames in turn while the okhttp queue is short. */
+  private void drain() {
+    synchronized (this) {
+      WebSocket current = webSocket;
+      if (!open || closed || current == null) {
+        return;
+      }
+      while (current.queueSize() < MAX_SOCKET_QUEUE_BYTES) {
+        Task task = nextTaskWithFrames();
+        if (task == null) {
+          return;
+        }
+        Object frame = task.outbound.poll();
+        task.started = true;
+        if (frame instanceof String) {
+          task.queuedBytes -= Utf8.size((String) frame);
+          current.send((String) frame);
+        } else {
+          task.queuedBytes -= ((ByteString) frame).size();
+          current.send((ByteString) frame);
+        }
+      }
+      if (drainScheduled) {
+        return;
+      }
+      drainScheduled = true;
+    }
+    // the okhttp websocket has no writable event, check again later.
+    SdkThreads.schedule(
+        () -> {
+          synchronized (this) {
+            drainScheduled = false;
+          }
+          drain();
+        },
+        DRAIN_INTERVAL_MILLIS);
+  }
+
+  private Task nextTaskWithFrames() {
+    for (int i = 0; i < tasks.size(); ++i) {
+      Task task = tasks.get((nextTask + i) % tasks.size());
+      if (!task.outbound.isEmpty()) {
+        nextTask = (nextTask + i + 1) % tasks.size();
+        return task;
+      }
+    }
+    return null;
+  }
+
+  private static JsonObject getHeader(String text) {
+    try {
+      JsonElement header = JsonUtils.parse(text).get("header");
+      if (header != null && header.isJsonObject()) {
+        return (JsonObject) header;
+      }
+    } catch (Exception e) {
+      log.debug("Can not get the header of the frame: {}", e.getMessage());
+    }
+    return null;
+  }
+
+  private static String getString(JsonObject header, String name) {
+    JsonElement value = header == null ? null : header.get(name);
+    return value == null || value.isJsonNull() ? null : value.getAsString();
+  }
+
+  private synchronized List<Task> closeTasks() {
+    closed = true;
+    List<Task> closing = new ArrayList<>(tasks);
+    for (Task task : closing) {
+      task.detached = true;
+    }
+    tasks.clear();
+    tasksById.clear();
+    return closing;
+  }
+
+  @Override
+  public void onOpen(WebSocket webSocket, Response response) {
+    List<Task> opened;
+    synchronized (this) {
+      open = true;
+      opened = new ArrayList<>(tasks);
+    }
+    for (Task task : opened) {
+      task.listener.onOpen(task, response);
+    }
+    drain();
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, String text) {
+    JsonObject header = getHeader(text);
+    String taskId = getString(header, "task_id");
+    String event = getString(header, "event");
+    boolean ends =
+        WebSocketEventType.TASK_FINISHED.getValue().equals(event)
+            || WebSocketEventType.TASK_FAILED.getValue().equals(event);
+    Task task;
+    boolean abandoned;
+    synchronized (this) {
+      task = taskId == null ? null : tasksById.get(taskId);
+      if (task == null) {
+        log.debug("Drop the frame of an unknown task: {}", taskId);
+        return;
+      }
+      task.ended |= ends;
+      abandoned = task.abandoned;
+    }
+    if (abandoned) {
+      if (ends) {
+        log.debug("Abandoned task {} ended.", taskId);
+        detach(task);
+      }
+      return;
+    }
+    task.listener.onMessage(task, text);
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, ByteString bytes) {
+    Task task = null;
+    synchronized (this) {
+      for (Task running : tasks) {
+        if (running.taskId != null) {
+          // the audio of an abandoned task is dropped.
+          task = running.abandoned ? null : running;
+          break;
+        }
+      }
+    }
+    if (task == null) {
+      log.debug("Drop the binary frame, no running task.");
+      return;
+    }
+    task.listener.onMessage(task, bytes);
+  }
+
+  @Override
+  public void onClosing(WebSocket webSocket, int code, String reason) {
+    multiplexer.remove(this);
+    webSocket.close(code, null);
+    for (Task task : closeTasks()) {
+      task.listener.onClosing(task, code, reason);
+    }
+  }
+
+  @Override
+  public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+    multiplexer.remove(this);
+    for (Task task : closeTasks()) {
+      task.listener.onFailure(task, t, response);
+    }
+  }
+
+  /** The websocket of a task, it sends the frames by the shared socket. */
+  final class Task implements WebSocket {
+    private final WebSocketListener listener;
+    private final Request request;
+    // the frames waiting to be sent, guarded by the socket.
+    private final ArrayDeque<Object> outbound = new ArrayDeque<>();
+    private long queuedBytes;
+    private String taskId;
+    // a frame of the task is sent, the server runs the task until it ends.
+    private boolean started;
+    private boolean ended;
+    private boolean abandoned;
+    private boolean detached;
+
+    private Task(WebSocketListener listener, Request request) {
+      this.listener = listener;
+      this.request = request;
+    }
+
+    /** Detach the task from the socket when it finishes, the socket stays open for the others. */
+    void release() {
+      detach(this);
+    }
+
+    @Override
+    public Request request() {
+      return request;
+    }
+
+    @Override
+    public long queueSize() {
+      synchronized (MultiplexedWebSocket.this) {
+        return queuedBytes;
+      }
+    }
+
+    @Override
+    public boolean send(String text) {
+      synchronized (MultiplexedWebSocket.this) {
+        if (taskId == null && !detached) {
+          // the run-task message names the task.
+          taskId = getString(getHeader(text), "task_id");
+          if (taskId != null) {
+            tasksById.put(taskId, this);
+          }
+        }
+      }
+      // counted in utf-8 bytes like the okhttp queueSize.
+      return enqueue(this, text, Utf8.size(text));
+    }
+
+    @Override
+    public boolean send(ByteString bytes) {
+      return enqueue(this, bytes, bytes.size());
+    }
+
+    @Override
+    public boolean close(int code, String reason) {
+      abandon(this);
+      return true;
+    }
+
+    @Override
+    public void cancel() {
+      abandon(this);
+    }
+  }
+}
@@ -6,7 +6,14 @@ import com.alibaba.dashscope.protocol.ClientOptions;
 import com.alibaba.dashscope.protocol.ConnectionConfigurations;
 import com.alibaba.dashscope.protocol.ConnectionOptions;
 import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.SdkThreads;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.ConnectionPool;
@@ -19,6 +26,12 @@ import okhttp3.logging.HttpLoggingInterceptor.Level;
 
 @Slf4j
 public class OkHttpClientFactory {
+  /** The client profile of the file uploads to OSS, falls back to the default client. */
+  public static final String UPLOAD_PROFILE = "upload";
+
+  // the named clients, each has its own dispatcher and connection pool.
+  private static final Map<String, OkHttpClient> PROFILES = new ConcurrentHashMap<>();
+
   private OkHttpClientFactory() {
     if (Holder.INSTANCE != null) {
       throw new IllegalStateException();
@@ -26,56 +39,219 @@ public class OkHttpClientFactory {
   }
 
   private static class Holder {
-    private static final OkHttpClient INSTANCE = createInstance();
+    private static final ConnectionConfigurations CONFIGURATIONS = getConfigurations();
+    private static final OkHttpClient INSTANCE = createClient(CONFIGURATIONS);
+    // the warmer of the prewarm and keep-alive configurations, closed by closeDefaultWarmer.
+    private static final ConnectionWarmer WARMER = startWarmer();
 
-    private static OkHttpClient createInstance() {
+    private static ConnectionConfigurations getConfigurations() {
       ConnectionConfigurations connectionConfigurations = Constants.connectionConfigurations;
       if (connectionConfigurations == null) {
         // build default configuration
         connectionConfigurations = ConnectionConfigurations.builder().build();
       }
+      return connectionConfigurations;
+    }
 
-      ClientOptions defaultOptions = ClientOptions.builder().build();
-      HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
-      logging.setLevel(Level.valueOf(defaultOptions.getNetworkLoggingLevel()));
-      int connectionPoolSize = connectionConfigurations.getConnectionPoolSize();
-      log.debug("[connectionPool Config] connectionPoolSize: {}", connectionPoolSize);
-      Dispatcher dispatcher = new Dispatcher();
-      dispatcher.setMaxRequests(connectionConfigurations.getMaximumAsyncRequests());
-      log.debug("[connectionPool Config] maxRequests: {}", dispatcher.getMaxRequests());
-      dispatcher.setMaxRequestsPerHost(connectionConfigurations.getMaximumAsyncRequestsPerHost());
-      log.debug(
-          "[connectionPool Config] maxRequestsPerHost: {}", dispatcher.getMaxRequestsPerHost());
-      Builder clientBuilder = new OkHttpClient.Builder();
-      clientBuilder
-          .connectTimeout(connectionConfigurations.getConnectTimeout())
-          .readTimeout(connectionConfigurations.getReadTimeout())
-          .writeTimeout(connectionConfigurations.getWriteTimeout())
-          .addInterceptor(logging)
-          .dispatcher(dispatcher)
-          .protocols(Collections.singletonList(Protocol.HTTP_1_1))
-          .connectionPool(
-              new ConnectionPool(
-                  connectionPoolSize,
-                  connectionConfigurations.getConnectionIdleTimeout().getSeconds(),
-                  TimeUnit.SECONDS));
-      if (connectionConfigurations.getProxy() != null) {
-        clientBuilder.proxy(connectionConfigurations.getProxy());
+    private static ConnectionWarmer startWarmer() {
+      int connections = CONFIGURATIONS.getPrewarmConnections();
+      if (connections <= 0) {
+        return null;
       }
-      if (connectionConfigurations.getProxyAuthenticator() != null) {
-        clientBuilder.proxyAuthenticator(connectionConfigurations.getProxyAuthenticator());
+      Duration interval = CONFIGURATIONS.getKeepAliveInterval();
+      log.debug(
+          "[connectionPool Config] prewarmConnections: {}, keepAliveInterval: {}",
+          connections,
+          interval);
+      ConnectionWarmer warmer =
+          new ConnectionWarmer(INSTANCE, Constants.baseHttpApiUrl, connections);
+      if (interval.isZero() || interval.isNegative()) {
+        warmer.warm();
+        return warmer;
       }
-      return clientBuilder.build();
+      return warmer.start(interval);
     }
   }
 
+  private static OkHttpClient createClient(ConnectionConfigurations connectionConfigurations) {
+    ClientOptions defaultOptions = ClientOptions.builder().build();
+    HttpLoggingInterceptor logging = new HttpLoggingInterceptor();
+    logging.setLevel(Level.valueOf(defaultOptions.getNetworkLoggingLevel()));
+    int connectionPoolSize = connectionConfigurations.getConnectionPoolSize();
+    log.debug("[connectionPool Config] connectionPoolSize: {}", connectionPoolSize);
+    Dispatcher dispatcher;
+    if (SdkThreads.isVirtualThreadsEnabled(connectionConfigurations)) {
+      log.debug("[connectionPool Config] dispatcher on virtual threads");
+      dispatcher =
+          new Dispatcher(SdkThreads.newExecutor("OkHttp Dispatcher-", Integer.MAX_VALUE, true));
+    } else {
+      dispatcher = new Dispatcher();
+    }
+    dispatcher.setMaxRequests(connectionConfigurations.getMaximumAsyncRequests());
+    if (connectionConfigurations.isHttp2()) {
+      // the streams of a host share the connections, a single host can use all the requests.
+      int maxStreams = connectionConfigurations.getMaximumStreamsPerHost();
+      dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), maxStreams));
+      dispatcher.setMaxRequestsPerHost(maxStreams);
+    } else {
+      dispatcher.setMaxRequestsPerHost(connectionConfigurations.getMaximumAsyncRequestsPerHost());
+    }
+    log.debug("[connectionPool Config] maxRequests: {}", dispatcher.getMaxRequests());
+    log.debug("[connectionPool Config] maxRequestsPerHost: {}", dispatcher.getMaxRequestsPerHost());
+    Builder clientBuilder = new OkHttpClient.Builder();
+    clientBuilder
+        .connectTimeout(connectionConfigurations.getConnectTimeout())
+        .readTimeout(connectionConfigurations.getReadTimeout())
+        .writeTimeout(connectionConfigurations.getWriteTimeout())
+        .addInterceptor(logging)
+        .dispatcher(dispatcher)
+        .protocols(getProtocols(connectionConfigurations))
+        .connectionPool(
+            new ConnectionPool(
+                connectionPoolSize,
+                connectionConfigurations.getConnectionIdleTimeout().getSeconds(),
+                TimeUnit.SECONDS));
+    if (connectionConfigurations.getProxy() != null) {
+      clientBuilder.proxy(connectionConfigurations.getProxy());
+    }
+    if (connectionConfigurations.getProxyAuthenticator() != null) {
+      clientBuilder.proxyAuthenticator(connectionConfigurations.getProxyAuthenticator());
+    }
+    return clientBuilder.build();
+  }
+
+  /**
+   * The protocols of the client, HTTP/1.1 by default. With HTTP/2 enabled, ALPN negotiates HTTP/2
+   * and falls back to HTTP/1.1, websocket always use HTTP/1.1.
+   */
+  private static List<Protocol> getProtocols(ConnectionConfigurations connectionConfigurations) {
+    if (connectionConfigurations.getHttp2PriorKnowledge()) {
+      return Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE);
+    } else if (connectionConfigurations.getHttp2Enabled()) {
+      return Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    }
+    return Collections.singletonList(Protocol.HTTP_1_1);
+  }
+
   public static OkHttpClient getOkHttpClient() {
     /** Use default http client pool. */
     return Holder.INSTANCE;
   }
 
+  /**
+   * Get the client of a profile.
+   *
+   * @param profile The profile name, null for the default client.
+   * @return The client registered with the name, or the default client if not registered.
+   */
+  public static OkHttpClient getOkHttpClient(String profile) {
+    if (profile == null) {
+      return Holder.INSTANCE;
+    }
+    return PROFILES.getOrDefault(profile, Holder.INSTANCE);
+  }
+
+  /**
+   * Register a named client profile (bulkhead), with its own dispatcher limits, connection pool and
+   * timeouts, so the slow streaming calls of a service can not starve the others. Select it by
+   * {@code ConnectionOptions.clientProfile}. A profile registered again replaces the old one, the
+   * calls in flight keep the old client.
+   *
+   * @param profile The profile name.
+   * @param connectionConfigurations The configurations of the profile client.
+   * @return The profile client.
+   */
+  public static OkHttpClient registerClientProfile(
+      String profile, ConnectionConfigurations connectionConfigurations) {
+    OkHttpClient client = createClient(connectionConfigurations);
+    OkHttpClient previous = PROFILES.put(profile, client);
+    if (previous != null) {
+      previous.connectionPool().evictAll();
+    }
+    return client;
+  }
+
+  /**
+   * Remove a client profile, the services select it use the default client after that.
+   *
+   * @param profile The profile name.
+   */
+  public static void unregisterClientProfile(String profile) {
+    OkHttpClient previous = PROFILES.remove(profile);
+    if (previous != null) {
+      previous.connectionPool().evictAll();
+    }
+  }
+
+  /**
+   * Open connections of the default client to the http base url, e.g. at startup, so the first
+   * concurrent calls do not pay the DNS, TCP and TLS setup.
+   *
+   * @param connections The number of connections.
+   * @return The future of the number of requests succeeded.
+   */
+  public static CompletableFuture<Integer> prewarm(int connections) {
+    return prewarm(Constants.baseHttpApiUrl, connections);
+  }
+
+  /**
+   * Open connections of the default client to the host of url.
+   *
+   * @param url The url requested with HEAD.
+   * @param connections The number of connections.
+   * @return The future of the number of requests succeeded.
+   */
+  public static CompletableFuture<Integer> prewarm(String url, int connections) {
+    return new ConnectionWarmer(Holder.INSTANCE, url, connections).warm();
+  }
+
+  /**
+   * Stop the keep-alive requests of the default client, started by the prewarmConnections and
+   * keepAliveInterval configurations, e.g. when the application shuts down.
+   */
+  public static void closeDefaultWarmer() {
+    if (Holder.WARMER != null) {
+      Holder.WARMER.close();
+    }
+  }
+
+  /** Get the connection pool occupancy of the default client. */
+  public static ConnectionPoolStats getConnectionPoolStats() {
+    return getConnectionPoolStats(Holder.INSTANCE);
+  }
+
+  /**
+   * Get the connection pool occupancy of a client.
+   *
+   * @param client The client.
+   * @return The stats snapshot.
+   */
+  public static ConnectionPoolStats getConnectionPoolStats(OkHttpClient client) {
+    ConnectionPool pool = client.connectionPool();
+    Dispatcher dispatcher = client.dispatcher();
+    return ConnectionPoolStats.builder()
+        .connectionCount(pool.connectionCount())
+        .idleConnectionCount(pool.idleConnectionCount())
+        .runningCallsCount(dispatcher.runningCallsCount())
+        .queuedCallsCount(dispatcher.queuedCallsCount())
+        .maxRequestsPerHost(dispatcher.getMaxRequestsPerHost())
+        .build();
+  }
+
+  /**
+   * Create a client with its own connection pool and dispatcher, not shared with the default
+   * client.
+   *
+   * @param connectionConfigurations The connection configurations.
+   * @return The new client.
+   */
+  public static OkHttpClient newOkHttpClient(ConnectionConfigurations connectionConfigurations) {
+    return createClient(connectionConfigurations);
+  }
+
   public static OkHttpClient getNewOkHttpClient(ConnectionOptions connectionOptions) {
-    Builder builder = Holder.INSTANCE.newBuilder();
+    // share the dispatcher and connection pool of the profile.
+    Builder builder = getOkHttpClient(connectionOptions.getClientProfile()).newBuilder();
 
     if (connectionOptions.hasCustomConnectTimeout()) {
       builder.connectTimeout(connectionOptions.getConnectTimeout());
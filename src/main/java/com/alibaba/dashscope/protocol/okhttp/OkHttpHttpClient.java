@@ -11,12 +11,15 @@ import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.HalfDuplexClient;
 import com.alibaba.dashscope.protocol.HalfDuplexRequest;
+import com.alibaba.dashscope.protocol.HedgingPolicy;
 import com.alibaba.dashscope.protocol.HttpMethod;
 import com.alibaba.dashscope.protocol.HttpRequest;
 import com.alibaba.dashscope.protocol.NetworkResponse;
 import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.RetryPolicy;
 import com.alibaba.dashscope.utils.ApiKeywords;
 import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.SdkThreads;
 import com.alibaba.dashscope.utils.StringUtils;
 import com.google.gson.JsonObject;
 import io.reactivex.BackpressureStrategy;
@@ -24,10 +27,16 @@ import io.reactivex.Flowable;
 import io.reactivex.FlowableEmitter;
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -42,12 +51,13 @@ import okhttp3.Response;
 import okhttp3.ResponseBody;
 import okhttp3.sse.EventSource;
 import okhttp3.sse.EventSourceListener;
-import okhttp3.sse.EventSources;
 import org.jetbrains.annotations.NotNull;
 
 @Slf4j
 public final class OkHttpHttpClient implements HalfDuplexClient {
   private final OkHttpClient client;
+  private final RetryPolicy retryPolicy;
+  private final HedgingPolicy hedgingPolicy;
   private final Set<EventSource> activeEventSources =
       Collections.newSetFromMap(new ConcurrentHashMap<>());
   private static final MediaType MEDIA_TYPE_APPLICATION_JSON =
@@ -192,7 +202,31 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
   }
 
   public OkHttpHttpClient(OkHttpClient client) {
+    this(client, RetryPolicy.getDefault());
+  }
+
+  /**
+   * Create the client.
+   *
+   * @param client The okhttp client.
+   * @param retryPolicy The retry policy of the requests, null for the default.
+   */
+  public OkHttpHttpClient(OkHttpClient client, RetryPolicy retryPolicy) {
+    this(client, retryPolicy, null);
+  }
+
+  /**
+   * Create the client.
+   *
+   * @param client The okhttp client.
+   * @param retryPolicy The retry policy of the requests, null for the default.
+   * @param hedgingPolicy The hedging policy of the blocking send, null to not hedge.
+   */
+  public OkHttpHttpClient(
+      OkHttpClient client, RetryPolicy retryPolicy, HedgingPolicy hedgingPolicy) {
     this.client = client;
+    this.retryPolicy = retryPolicy == null ? RetryPolicy.getDefault() : retryPolicy;
+    this.hedgingPolicy = hedgingPolicy;
   }
 
   private <T extends HalfDuplexParamBase> Request buildRequest(HttpRequest req)
@@ -215,11 +249,8 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
     } else if (req.getHttpMethod() == HttpMethod.POST) {
       Builder requestBuilder = new Request.Builder();
       requestBuilder.url(req.getUrl()).headers(Headers.of(req.getHeaders()));
-      if (req.getBody() != null) {
-        // compatible with okhttp3.x
-        // RequestBody.create((String) (req.getBody()), MEDIA_TYPE_APPLICATION_JSON));
-        requestBuilder.post(
-            RequestBody.create(MEDIA_TYPE_APPLICATION_JSON, (String) (req.getBody())));
+      if (req.hasBody()) {
+        requestBuilder.post(toRequestBody(req));
       } else {
         requestBuilder.post(RequestBody.create(MEDIA_TYPE_APPLICATION_JSON, ""));
       }
@@ -227,10 +258,8 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
     } else if (req.getHttpMethod() == HttpMethod.DELETE) {
       Builder requestBuilder = new Request.Builder();
       requestBuilder.url(req.getUrl()).headers(Headers.of(req.getHeaders()));
-      if (req.getBody() != null) {
-        requestBuilder.delete(
-            // RequestBody.create((String) (req.getBody()), MEDIA_TYPE_APPLICATION_JSON));
-            RequestBody.create(MEDIA_TYPE_APPLICATION_JSON, (String) req.getBody()));
+      if (req.hasBody()) {
+        requestBuilder.delete(toRequestBody(req));
       } else {
         requestBuilder.delete();
       }
@@ -247,14 +276,28 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
     return request;
   }
 
+  private static RequestBody toRequestBody(HttpRequest req) {
+    if (req.getJsonBody() != null) {
+      return new JsonRequestBody(
+          MEDIA_TYPE_APPLICATION_JSON, req.getJsonBody(), req.isSerializeExplicitNulls());
+    }
+    // compatible with okhttp3.x
+    // RequestBody.create((String) (req.getBody()), MEDIA_TYPE_APPLICATION_JSON));
+    return RequestBody.create(MEDIA_TYPE_APPLICATION_JSON, (String) req.getBody());
+  }
+
   /*
    * Send blocking and get
    */
   @Override
   public DashScopeResult send(HalfDuplexRequest req) throws NoApiKeyException, ApiException {
     try {
-      Request request = buildRequest(req.getHttpRequest());
-      Response response = client.newCall(request).execute();
+      HttpRequest httpRequest = req.getHttpRequest();
+      Request request = buildRequest(httpRequest);
+      Response response =
+          hedgingPolicy == null
+              ? execute(request, httpRequest.getHttpMethod())
+              : executeHedged(request, httpRequest.getHttpMethod());
       if (!response.isSuccessful()) {
         Status status = parseFailed(response, null);
         throw new ApiException(status);
@@ -262,54 +305,308 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
       return new DashScopeResult()
           .fromResponse(
               Protocol.HTTP,
-              NetworkResponse.builder()
-                  .headers(response.headers().toMultimap())
-                  .message(response.body().string())
-                  .httpStatusCode(response.code())
-                  .build(),
+              new SharedResponse(response, req).toNetworkResponse(response.body().string(), null),
               req.getIsFlatten(),
               req);
+    } catch (InterruptedException e) {
+      // interrupted in the retry backoff or the hedge wait, keep the interrupt for the caller.
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
     } catch (Throwable e) {
       throw new ApiException(e);
     }
   }
 
+  /**
+   * Execute the request, retry by the retry policy. The blocking call waits the backoff in the
+   * caller thread.
+   */
+  private Response execute(Request request, HttpMethod method)
+      throws IOException, InterruptedException {
+    for (int attempt = 1; ; ++attempt) {
+      Response response;
+      try {
+        response = client.newCall(request).execute();
+      } catch (IOException e) {
+        long delay = retryPolicy.getRetryDelayMillis(attempt, method, e);
+        if (delay < 0) {
+          throw e;
+        }
+        log.debug("Request failed in attempt {}, retry after {} ms: {}", attempt, delay, e);
+        Thread.sleep(delay);
+        continue;
+      }
+      if (response.isSuccessful()) {
+        retryPolicy.onSuccess();
+        return response;
+      }
+      long delay =
+          retryPolicy.getRetryDelayMillis(
+              attempt, method, response.code(), response.header("Retry-After"));
+      if (delay < 0) {
+        return response;
+      }
+      log.debug("Request failed in attempt {}, retry after {} ms: {}", attempt, delay, response);
+      response.close();
+      Thread.sleep(delay);
+    }
+  }
+
+  /**
+   * Execute the request with hedging, a duplicate request is sent if no response arrives in the
+   * hedge delay, the first response wins and the other request is cancelled.
+   */
+  private Response executeHedged(Request request, HttpMethod method)
+      throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    long delay = hedgingPolicy.onRequest();
+    if (delay < 0) {
+      Response response = execute(request, method);
+      hedgingPolicy.onResponse(false, System.nanoTime() - start);
+      return response;
+    }
+    HedgedRequest hedged = new HedgedRequest();
+    enqueue(request, method, 1, hedged.primary, new HedgeCallback(hedged, false, start));
+    try {
+      try {
+        return hedged.winner.get(delay, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // count the hedge as running before taking the budget, none is spent if the primary
+        // has already failed.
+        if (!hedged.winner.isDone() && hedged.running.getAndUpdate(n -> n == 0 ? 0 : n + 1) > 0) {
+          if (hedgingPolicy.tryHedge()) {
+            log.debug("No response in {} ms, send the hedge request", delay);
+            enqueue(request, method, 1, hedged.hedge, new HedgeCallback(hedged, true, start));
+          } else {
+            hedged.release();
+          }
+        }
+      }
+      return hedged.winner.get();
+    } catch (InterruptedException e) {
+      hedged.primary.cancel();
+      hedged.hedge.cancel();
+      // a response arrived before the cancel is closed here, a later one by the callback.
+      if (!hedged.winner.cancel(false) && !hedged.winner.isCompletedExceptionally()) {
+        hedged.winner.join().close();
+      }
+      throw e;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /** The attempts of a hedged request. */
+  private static final class HedgedRequest {
+    private final CompletableFuture<Response> winner = new CompletableFuture<>();
+    private final AtomicBoolean decided = new AtomicBoolean();
+    // the attempts not failed, the request fails when all the attempts failed.
+    private final AtomicInteger running = new AtomicInteger(1);
+    private final CallHandle primary = new CallHandle();
+    private final CallHandle hedge = new CallHandle();
+    private volatile IOException error;
+
+    /** An attempt failed, or was not sent. */
+    void release() {
+      if (running.decrementAndGet() == 0) {
+        winner.completeExceptionally(error);
+      }
+    }
+  }
+
+  /** The first response completes the request and cancels the other attempt. */
+  private final class HedgeCallback implements Callback {
+    private final HedgedRequest hedged;
+    private final boolean hedge;
+    // the start of the request, a winning hedge records the latency including the hedge delay.
+    private final long start;
+
+    HedgeCallback(HedgedRequest hedged, boolean hedge, long start) {
+      this.hedged = hedged;
+      this.hedge = hedge;
+      this.start = start;
+    }
+
+    @Override
+    public void onFailure(Call call, IOException e) {
+      hedged.error = e;
+      hedged.release();
+    }
+
+    @Override
+    public void onResponse(Call call, Response response) {
+      if (hedged.decided.compareAndSet(false, true)) {
+        hedgingPolicy.onResponse(hedge, System.nanoTime() - start);
+        (hedge ? hedged.primary : hedged.hedge).cancel();
+        if (!hedged.winner.complete(response)) {
+          // the caller was interrupted.
+          response.close();
+        }
+      } else {
+        response.close();
+      }
+    }
+  }
+
+  /** The current call of a request and its retries, cancel it to stop the request. */
+  private static final class CallHandle {
+    private volatile Call call;
+    private volatile boolean canceled;
+
+    void set(Call call) {
+      this.call = call;
+      if (canceled) {
+        call.cancel();
+      }
+    }
+
+    void cancel() {
+      canceled = true;
+      Call current = call;
+      if (current != null) {
+        current.cancel();
+      }
+    }
+  }
+
+  /**
+   * Enqueue the request, retry by the retry policy. The retry is scheduled after the backoff, no
+   * thread waits.
+   */
+  private void enqueue(
+      Request request, HttpMethod method, int attempt, CallHandle handle, Callback callback) {
+    Call newCall = client.newCall(request);
+    handle.set(newCall);
+    newCall.enqueue(
+        new Callback() {
+          @Override
+          public void onFailure(Call call, IOException e) {
+            long delay =
+                call.isCanceled() ? -1 : retryPolicy.getRetryDelayMillis(attempt, method, e);
+            if (delay < 0) {
+              callback.onFailure(call, e);
+            } else {
+              log.debug("Request failed in attempt {}, retry after {} ms: {}", attempt, delay, e);
+              SdkThreads.schedule(
+                  () -> enqueue(request, method, attempt + 1, handle, callback), delay);
+            }
+          }
+
+          @Override
+          public void onResponse(Call call, Response response) throws IOException {
+            if (response.isSuccessful()) {
+              retryPolicy.onSuccess();
+            } else {
+              long delay =
+                  retryPolicy.getRetryDelayMillis(
+                      attempt, method, response.code(), response.header("Retry-After"));
+              if (delay >= 0) {
+                log.debug(
+                    "Request failed in attempt {}, retry after {} ms: {}",
+                    attempt,
+                    delay,
+                    response);
+                response.close();
+                SdkThreads.schedule(
+                    () -> enqueue(request, method, attempt + 1, handle, callback), delay);
+                return;
+              }
+            }
+            callback.onResponse(call, response);
+          }
+        });
+  }
+
   @Override
   public void send(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
       throws NoApiKeyException, ApiException {
-    Request request = buildRequest(req.getHttpRequest());
-    client
-        .newCall(request)
-        .enqueue(
-            new Callback() {
-              @Override
-              public void onFailure(Call call, IOException e) {
-                callback.onError(e);
+    HttpRequest httpRequest = req.getHttpRequest();
+    Request request = buildRequest(httpRequest);
+    enqueue(
+        request,
+        httpRequest.getHttpMethod(),
+        1,
+        new CallHandle(),
+        new Callback() {
+          @Override
+          public void onFailure(Call call, IOException e) {
+            callback.onError(e);
+          }
+
+          @Override
+          public void onResponse(Call call, Response response) throws IOException {
+            try (ResponseBody responseBody = response.body()) {
+              if (!response.isSuccessful()) {
+                Status status = parseFailed(response, null);
+                callback.onError(new ApiException(status));
+              } else {
+                callback.onEvent(
+                    new DashScopeResult()
+                        .fromResponse(
+                            Protocol.HTTP,
+                            new SharedResponse(response, req)
+                                .toNetworkResponse(response.body().string(), null),
+                            req.getIsFlatten(),
+                            req));
+                callback.onComplete();
               }
+            }
+          }
+        });
+  }
 
-              @Override
-              public void onResponse(Call call, Response response) throws IOException {
-                try (ResponseBody responseBody = response.body()) {
-                  if (!response.isSuccessful()) {
-                    Status status = parseFailed(response, null);
-                    callback.onError(new ApiException(status));
-                  } else {
-                    callback.onEvent(
-                        new DashScopeResult()
-                            .fromResponse(
-                                Protocol.HTTP,
-                                NetworkResponse.builder()
-                                    .headers(response.headers().toMultimap())
-                                    .message(response.body().string())
-                                    .httpStatusCode(response.code())
-                                    .build(),
-                                req.getIsFlatten(),
-                                req));
-                    callback.onComplete();
-                  }
-                }
+  /**
+   * Send the request by okhttp enqueue, no thread waits for the response or the retry backoff.
+   * Cancel the future to cancel the request and its retries.
+   */
+  @Override
+  public CompletableFuture<DashScopeResult> sendAsync(HalfDuplexRequest req)
+      throws NoApiKeyException, ApiException {
+    HttpRequest httpRequest = req.getHttpRequest();
+    Request request = buildRequest(httpRequest);
+    CompletableFuture<DashScopeResult> future = new CompletableFuture<>();
+    CallHandle handle = new CallHandle();
+    future.whenComplete(
+        (result, error) -> {
+          if (future.isCancelled()) {
+            handle.cancel();
+          }
+        });
+    enqueue(
+        request,
+        httpRequest.getHttpMethod(),
+        1,
+        handle,
+        new Callback() {
+          @Override
+          public void onFailure(Call call, IOException e) {
+            future.completeExceptionally(new ApiException(e));
+          }
+
+          @Override
+          public void onResponse(Call call, Response response) {
+            try (ResponseBody responseBody = response.body()) {
+              if (!response.isSuccessful()) {
+                future.completeExceptionally(new ApiException(parseFailed(response, null)));
+              } else {
+                future.complete(
+                    new DashScopeResult()
+                        .fromResponse(
+                            Protocol.HTTP,
+                            new SharedResponse(response, req)
+                                .toNetworkResponse(responseBody.string(), null),
+                            req.getIsFlatten(),
+                            req));
               }
-            });
+            } catch (Throwable e) {
+              future.completeExceptionally(new ApiException(e));
+            }
+          }
+        });
+    return future;
   }
 
   private void handleSSEEvent(
@@ -318,7 +615,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
       String eventType,
       String data,
       boolean isFlattenResult,
-      Response response,
+      SharedResponse response,
       HalfDuplexRequest req) {
     log.debug(StringUtils.format("Event: id %s, type: %s, data: %s", id, eventType, data));
     if (SSEEventType.ERROR.equals(eventType)) {
@@ -329,12 +626,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
           new DashScopeResult()
               .fromResponse(
                   Protocol.HTTP,
-                  NetworkResponse.builder()
-                      .headers(response.headers().toMultimap())
-                      .message(data)
-                      .event(eventType)
-                      .httpStatusCode(response.code())
-                      .build(),
+                  response.toNetworkResponse(data, eventType),
                   isFlattenResult,
                   req));
     } else if (SSEEventType.DONE.equals(eventType)) { // event done ignore message
@@ -345,12 +637,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
           new DashScopeResult()
               .fromResponse(
                   Protocol.HTTP,
-                  NetworkResponse.builder()
-                      .headers(response.headers().toMultimap())
-                      .message(data)
-                      .event(eventType)
-                      .httpStatusCode(response.code())
-                      .build(),
+                  response.toNetworkResponse(data, eventType),
                   isFlattenResult,
                   req));
     } else if (eventType == null) {
@@ -361,14 +648,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
       emitter.onNext(
           new DashScopeResult()
               .fromResponse(
-                  Protocol.HTTP,
-                  NetworkResponse.builder()
-                      .headers(response.headers().toMultimap())
-                      .message(data)
-                      .httpStatusCode(response.code())
-                      .build(),
-                  isFlattenResult,
-                  req));
+                  Protocol.HTTP, response.toNetworkResponse(data, null), isFlattenResult, req));
     }
   }
 
@@ -378,14 +658,17 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
     Flowable<DashScopeResult> flowable =
         Flowable.<DashScopeResult>create(
             emitter -> {
-              Request request = buildRequest(req.getHttpRequest());
+              HttpRequest httpRequest = req.getHttpRequest();
+              Request request = buildRequest(httpRequest);
               AtomicBoolean terminated = new AtomicBoolean(false);
               EventSource eventSource =
-                  EventSources.createFactory(client)
-                      .newEventSource(
+                  new RetryingEventSource(
+                          client,
                           request,
+                          httpRequest.getHttpMethod(),
+                          retryPolicy,
                           new EventSourceListener() {
-                            private Response response;
+                            private SharedResponse response;
 
                             @java.lang.Override
                             public void onEvent(
@@ -400,7 +683,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
                             @java.lang.Override
                             public void onOpen(
                                 @NotNull EventSource eventSource, @NotNull Response response) {
-                              this.response = response;
+                              this.response = new SharedResponse(response, req);
                               super.onOpen(eventSource, response);
                             }
 
@@ -409,7 +692,6 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
                                 @NotNull EventSource eventSource,
                                 java.lang.Throwable t,
                                 Response response) {
-                              this.response = response;
                               terminated.set(true);
                               activeEventSources.remove(eventSource);
                               super.onFailure(eventSource, t, response);
@@ -423,7 +705,8 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
                               super.onClosed(eventSource);
                               emitter.onComplete();
                             }
-                          });
+                          })
+                      .start();
               if (terminated.get()) {
                 activeEventSources.remove(eventSource);
               } else {
@@ -442,6 +725,35 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
     return flowable;
   }
 
+  /**
+   * The status and headers of a response, converted once and shared by all results of the response,
+   * so the events of a stream do not copy the headers again.
+   */
+  private static final class SharedResponse {
+    private final Map<String, List<String>> headers;
+    private final Map<String, Object> resultHeaders;
+    private final int code;
+
+    SharedResponse(Response response, HalfDuplexRequest req) {
+      this.headers = response.headers().toMultimap();
+      this.resultHeaders =
+          req.isIncludeResponseHeaders()
+              ? DashScopeResult.toResultHeaders(headers)
+              : Collections.emptyMap();
+      this.code = response.code();
+    }
+
+    NetworkResponse toNetworkResponse(String message, String event) {
+      return NetworkResponse.builder()
+          .headers(headers)
+          .resultHeaders(resultHeaders)
+          .message(message)
+          .event(event)
+          .httpStatusCode(code)
+          .build();
+    }
+  }
+
   private class SSEEventType {
     public static final String ERROR = "error";
     public static final String DATA = "data";
@@ -452,12 +764,15 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
   @Override
   public void streamOut(HalfDuplexRequest req, ResultCallback<DashScopeResult> callback)
       throws NoApiKeyException, ApiException {
-    Request request = buildRequest(req.getHttpRequest());
-    EventSources.createFactory(client)
-        .newEventSource(
+    HttpRequest httpRequest = req.getHttpRequest();
+    Request request = buildRequest(httpRequest);
+    new RetryingEventSource(
+            client,
             request,
+            httpRequest.getHttpMethod(),
+            retryPolicy,
             new EventSourceListener() {
-              private Response response;
+              private SharedResponse response;
 
               @java.lang.Override
               public void onEvent(
@@ -474,12 +789,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
                       new DashScopeResult()
                           .fromResponse(
                               Protocol.HTTP,
-                              NetworkResponse.builder()
-                                  .headers(response.headers().toMultimap())
-                                  .message(data)
-                                  .event(type)
-                                  .httpStatusCode(response.code())
-                                  .build(),
+                              response.toNetworkResponse(data, type),
                               req.getIsFlatten(),
                               req));
                 } else if (type != null) {
@@ -487,12 +797,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
                       new DashScopeResult()
                           .fromResponse(
                               Protocol.HTTP,
-                              NetworkResponse.builder()
-                                  .headers(response.headers().toMultimap())
-                                  .message(data)
-                                  .event(type)
-                                  .httpStatusCode(response.code())
-                                  .build(),
+                              response.toNetworkResponse(data, type),
                               req.getIsFlatten(),
                               req));
                 } else if (type == null) {
@@ -500,11 +805,7 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
                       new DashScopeResult()
                           .fromResponse(
                               Protocol.HTTP,
-                              NetworkResponse.builder()
-                                  .headers(response.headers().toMultimap())
-                                  .message(data)
-                                  .httpStatusCode(response.code())
-                                  .build(),
+                              response.toNetworkResponse(data, null),
                               req.getIsFlatten(),
                               req));
                 }
@@ -512,14 +813,13 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
 
               @java.lang.Override
               public void onOpen(@NotNull EventSource eventSource, @NotNull Response response) {
-                this.response = response;
+                this.response = new SharedResponse(response, req);
                 callback.onOpen(null);
               }
 
               @java.lang.Override
               public void onFailure(
                   @NotNull EventSource eventSource, java.lang.Throwable t, Response response) {
-                this.response = response;
                 callback.onError(new ApiException(parseFailed(response, t), t));
               }
 
@@ -527,7 +827,8 @@ public final class OkHttpHttpClient implements HalfDuplexClient {
               public void onClosed(EventSource eventSource) {
                 callback.onComplete();
               }
-            });
+            })
+        .start();
   }
 
   @Override
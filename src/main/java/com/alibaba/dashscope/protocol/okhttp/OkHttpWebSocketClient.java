@@ -9,38 +9,76 @@ import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
 import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.utils.ApiKey;
 import com.alibaba.dashscope.utils.Constants;
 import com.alibaba.dashscope.utils.JsonUtils;
+import com.alibaba.dashscope.utils.SdkThreads;
 import com.alibaba.dashscope.utils.StringUtils;
 import com.google.gson.JsonObject;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.FlowableEmitter;
-import io.reactivex.Observable;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Action;
+import io.reactivex.subscribers.DisposableSubscriber;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import okhttp3.Request.Builder;
 import okio.ByteString;
+import okio.Utf8;
 
 @Slf4j
 public class OkHttpWebSocketClient extends WebSocketListener
     implements HalfDuplexClient, FullDuplexClient {
-  // we will try 3 times for connection.
-  private static final int MAX_CONNECTION_TIMES = 3;
-  private OkHttpClient client;
+  // the connection retries, 3 attempts as before the retry policy, a connection is not billed.
+  private static final RetryPolicy DEFAULT_RETRY_POLICY =
+      RetryPolicy.builder()
+          .maxRetries(2)
+          .initialBackoff(Duration.ofSeconds(1))
+          .maxBackoff(Duration.ofSeconds(10))
+          .build();
+  // the time to wait for the handshake of a connection attempt.
+  private static final long CONNECT_TIMEOUT_MILLIS = 60_000;
+  // the default high-water mark of the send queue, about 30s of 16kHz 16bit audio.
+  private static final long DEFAULT_SEND_QUEUE_HIGH_WATER_MARK = 1024 * 1024;
+  // the websocket has no writable event, the queue is checked again after this.
+  private static final long SEND_QUEUE_CHECK_INTERVAL_MILLIS = 5;
+  private final OkHttpClient client;
+  private final RetryPolicy retryPolicy;
+  private final StreamingExecutor streamingExecutor;
+  private final WebSocketConnectionPool connectionPool;
+  private final WebSocketMultiplexer multiplexer;
+  private final long sendQueueHighWaterMark;
+  // the pooled connection leased by the current task.
+  private volatile PooledWebSocket pooledWebSocket;
+  // the multiplexed websocket of the current task.
+  private volatile MultiplexedWebSocket.Task multiplexedTask;
+  // the connection of the task is returned to the pool, the late sends of the task are dropped.
+  private final AtomicBoolean isTaskReleased = new AtomicBoolean(false);
   private WebSocket webSocketClient;
-  // indicate the websocket connection is established.
-  private AtomicBoolean isOpen = new AtomicBoolean(false);
+  // the connection state machine, the fields below are guarded by the lock.
+  private final Object lock = new Object();
+  private ConnectState connectState = ConnectState.IDLE;
+  // the connection attempt, the timer of an old attempt is ignored.
+  private int connectGeneration;
+  private int connectAttempts;
+  private int sendAttempts;
+  private Endpoint endpoint;
+  // the frames waiting for the connection, sent in order when it opens.
+  private final ArrayDeque<Object> pendingFrames = new ArrayDeque<>();
+  private long pendingBytes;
+  // the connection error raised before the caller subscribes the result.
+  private Throwable connectionError;
+  private boolean isAwaitingSubscriber;
   protected AtomicBoolean isClosed = new AtomicBoolean(false);
   // indicate the first response is received.
   protected AtomicBoolean isFirstMessage = new AtomicBoolean(false);
@@ -48,7 +86,6 @@ public class OkHttpWebSocketClient extends WebSocketListener
   protected volatile FlowableEmitter<DashScopeResult> responseEmitter;
   // is the result is flatten format.
   private boolean isFlattenResult;
-  private FlowableEmitter<DashScopeResult> connectionEmitter;
 
   private AtomicBoolean passTaskStarted = new AtomicBoolean(false);
 
@@ -56,8 +93,66 @@ public class OkHttpWebSocketClient extends WebSocketListener
   protected volatile Disposable streamingDataDisposable;
 
   public OkHttpWebSocketClient(OkHttpClient client, boolean passTaskStarted) {
+    this(client, passTaskStarted, null, null, null, null, DEFAULT_SEND_QUEUE_HIGH_WATER_MARK);
+  }
+
+  /**
+   * Create the client by the connection options.
+   *
+   * @param client The okhttp client.
+   * @param passTaskStarted Pass the task-started event to the caller.
+   * @param options The connection options, the retry policy, streaming executor, connection pool,
+   *     multiplexer and send queue high-water mark are used.
+   * @throws IllegalArgumentException If both the connection pool and the multiplexer are set.
+   */
+  public OkHttpWebSocketClient(
+      OkHttpClient client, boolean passTaskStarted, ConnectionOptions options) {
+    this(
+        client,
+        passTaskStarted,
+        options.getRetryPolicy(),
+        options.getStreamingExecutor(),
+        options.getWebSocketConnectionPool(),
+        options.getWebSocketMultiplexer(),
+        options.getSendQueueHighWaterMark() != null
+            ? options.getSendQueueHighWaterMark()
+            : DEFAULT_SEND_QUEUE_HIGH_WATER_MARK);
+  }
+
+  private OkHttpWebSocketClient(
+      OkHttpClient client,
+      boolean passTaskStarted,
+      RetryPolicy retryPolicy,
+      StreamingExecutor streamingExecutor,
+      WebSocketConnectionPool connectionPool,
+      WebSocketMultiplexer multiplexer,
+      long sendQueueHighWaterMark) {
     this.client = client;
     this.passTaskStarted.set(passTaskStarted);
+    this.retryPolicy = retryPolicy == null ? DEFAULT_RETRY_POLICY : retryPolicy;
+    this.streamingExecutor =
+        streamingExecutor == null ? StreamingExecutor.getDefault() : streamingExecutor;
+    if (connectionPool != null && multiplexer != null) {
+      throw new IllegalArgumentException(
+          "Set either the webSocketConnectionPool or the webSocketMultiplexer, not both");
+    }
+    this.connectionPool = connectionPool;
+    this.multiplexer = multiplexer;
+    this.sendQueueHighWaterMark = sendQueueHighWaterMark;
+  }
+
+  /**
+   * Get the bytes of the task waiting to be sent, queued by the client while connecting and by the
+   * websocket. The streaming data is not requested while it is over the high-water mark.
+   *
+   * @return The queued bytes.
+   */
+  @Override
+  public long getSendQueueSize() {
+    synchronized (lock) {
+      WebSocket current = connectState == ConnectState.OPEN ? webSocketClient : null;
+      return pendingBytes + (current != null ? current.queueSize() : 0);
+    }
   }
 
   private Request buildConnectionRequest(
@@ -113,73 +208,336 @@ public class OkHttpWebSocketClient extends WebSocketListener
     }
   }
 
-  private void establishWebSocketClient(
-      String apiKey,
-      boolean isSecurityCheck,
-      String workspace,
-      Map<String, String> customHeaders,
-      String baseWebSocketUrl) {
-    int reconnectionTimes = 0;
-    String errorMessage = "";
-    while (reconnectionTimes < MAX_CONNECTION_TIMES) {
+  /** The states of the connection. */
+  private enum ConnectState {
+    /** Not connected, the next send connects. */
+    IDLE,
+    /** Waiting for the handshake or the retry timer, the sends are queued. */
+    CONNECTING,
+    /** The sends go to the websocket. */
+    OPEN,
+  }
+
+  /** Where the task connects, from the sends of the task. */
+  private static final class Endpoint {
+    private final String apiKey;
+    private final boolean isSecurityCheck;
+    private final String workspace;
+    private final Map<String, String> customHeaders;
+    private final String baseWebSocketUrl;
+
+    private Endpoint(
+        String apiKey,
+        boolean isSecurityCheck,
+        String workspace,
+        Map<String, String> customHeaders,
+        String baseWebSocketUrl) {
+      this.apiKey = apiKey;
+      this.isSecurityCheck = isSecurityCheck;
+      this.workspace = workspace;
+      this.customHeaders = customHeaders;
+      this.baseWebSocketUrl = baseWebSocketUrl;
+    }
+  }
+
+  /**
+   * Queue a frame of the task, connect if not connected. The frames are sent in order when the
+   * connection opens, the caller never waits for the network.
+   */
+  private void enqueue(Endpoint target, Object frame) {
+    boolean isConnect = false;
+    synchronized (lock) {
+      endpoint = target;
+      pendingFrames.add(frame);
+      pendingBytes += getFrameSize(frame);
+      if (connectState == ConnectState.IDLE) {
+        connectState = ConnectState.CONNECTING;
+        connectAttempts = 0;
+        isConnect = true;
+      }
+    }
+    if (isConnect) {
+      connect();
+    } else {
+      flush();
+    }
+  }
+
+  /** Start a connection attempt, the result arrives by onOpen or onFailure. */
+  private void connect() {
+    Throwable error = null;
+    synchronized (lock) {
+      if (connectState != ConnectState.CONNECTING) {
+        return;
+      }
       // Bail out immediately if cancel() has been called
-      if (isClosed.get()) {
+      if (isClosed.get() || isTaskReleased.get()) {
         log.debug("Connection cancelled, stop reconnecting.");
+        resetConnection();
         return;
       }
-      try {
-        Flowable<DashScopeResult> flowable =
-            Flowable.<DashScopeResult>create(
-                emitter -> {
-                  this.connectionEmitter = emitter;
-                  try {
-                    client = OkHttpClientFactory.getOkHttpClient();
-                    webSocketClient =
-                        client.newWebSocket(
-                            buildConnectionRequest(
-                                apiKey,
-                                isSecurityCheck,
-                                workspace,
-                                customHeaders,
-                                baseWebSocketUrl),
-                            this);
-                  } catch (Throwable ex) {
-                    this.connectionEmitter.onError(ex);
-                  }
-                },
-                BackpressureStrategy.BUFFER);
-        // wait for connection establish
-        flowable.timeout(60, TimeUnit.SECONDS).blockingSubscribe();
-        return;
-      } catch (Throwable ex) {
-        reconnectionTimes += 1;
-        errorMessage = ex.getMessage();
-        log.error(errorMessage);
-        if (errorMessage.contains("401 Unauthorized")) {
-          break;
-        } else if (errorMessage.contains(Constants.NO_API_KEY_ERROR)) {
-          throw ex;
+      int generation = ++connectGeneration;
+      Endpoint target = endpoint;
+      if (multiplexer == null && connectionPool != null && leaseConnection(target)) {
+        connectState = ConnectState.OPEN;
+      } else {
+        try {
+          Request request =
+              buildConnectionRequest(
+                  target.apiKey,
+                  target.isSecurityCheck,
+                  target.workspace,
+                  target.customHeaders,
+                  target.baseWebSocketUrl);
+          String key =
+              getConnectionKey(
+                  target.apiKey, target.isSecurityCheck, target.workspace, target.baseWebSocketUrl);
+          if (multiplexer != null) {
+            // the open event arrives at once if the shared socket is open.
+            MultiplexedWebSocket.Task task = multiplexer.attach(client, request, key, this);
+            multiplexedTask = task;
+            webSocketClient = task;
+          } else if (connectionPool != null) {
+            pooledWebSocket = connectionPool.connect(client, request, key, this);
+            webSocketClient = pooledWebSocket.getWebSocket();
+          } else {
+            webSocketClient = client.newWebSocket(request, this);
+          }
+          SdkThreads.schedule(() -> onConnectTimeout(generation), CONNECT_TIMEOUT_MILLIS);
+          return;
+        } catch (Throwable ex) {
+          error = ex;
         }
-        // Check again before sleeping
-        if (isClosed.get()) {
-          log.debug("Connection cancelled during retry, stop reconnecting.");
+      }
+    }
+    if (error != null) {
+      onConnectFailure(error);
+    } else {
+      flush();
+    }
+  }
+
+  private void onConnectTimeout(int generation) {
+    WebSocket connecting;
+    synchronized (lock) {
+      if (generation != connectGeneration || connectState != ConnectState.CONNECTING) {
+        return;
+      }
+      connecting = webSocketClient;
+      // the failure event of the cancelled socket is ignored.
+      webSocketClient = null;
+    }
+    if (connecting != null) {
+      connecting.cancel();
+    }
+    onConnectFailure(new Exception("Websocket connect timeout"));
+  }
+
+  /** Schedule the next connection attempt, or fail the task. */
+  private void onConnectFailure(Throwable ex) {
+    String errorMessage = String.valueOf(ex.getMessage());
+    log.error(errorMessage);
+    boolean isNoApiKey = errorMessage.contains(Constants.NO_API_KEY_ERROR);
+    long delay = -1;
+    synchronized (lock) {
+      webSocketClient = null;
+      if (isClosed.get()) {
+        log.debug("Connection cancelled during retry, stop reconnecting.");
+        resetConnection();
+        return;
+      }
+      connectAttempts += 1;
+      if (!isNoApiKey && !errorMessage.contains("401 Unauthorized")) {
+        delay = retryPolicy.getRetryDelayMillis(connectAttempts);
+      }
+      if (delay < 0) {
+        resetConnection();
+        // the task failed, the late sends of the task do not connect again.
+        isTaskReleased.set(true);
+      }
+    }
+    if (delay >= 0) {
+      SdkThreads.schedule(this::connect, delay);
+      return;
+    }
+    Disposable d = streamingDataDisposable;
+    if (d != null && !d.isDisposed()) {
+      d.dispose();
+    }
+    emitConnectionError(
+        isNoApiKey
+            ? ex
+            : new ApiException(
+                Status.builder()
+                    .code("ConnectionError")
+                    .message(errorMessage)
+                    .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+                    .build()));
+  }
+
+  /** Send the queued frames in order while the connection is open. */
+  private void flush() {
+    long delay = -1;
+    synchronized (lock) {
+      while (connectState == ConnectState.OPEN && !pendingFrames.isEmpty()) {
+        if (isClosed.get() || isTaskReleased.get()) {
+          clearPendingFrames();
           return;
         }
-        try {
-          Thread.sleep(10000);
-        } catch (InterruptedException e) {
-          // Respect interruption - exit the loop
-          Thread.currentThread().interrupt();
+        if (webSocketClient == null) {
+          log.warn("webSocketClient is null, cannot send message.");
+          clearPendingFrames();
           return;
         }
+        Object frame = pendingFrames.peek();
+        boolean isOk =
+            frame instanceof String
+                ? webSocketClient.send((String) frame)
+                : webSocketClient.send((ByteString) frame);
+        if (isOk) {
+          pendingBytes -= getFrameSize(pendingFrames.poll());
+          sendAttempts = 0;
+          continue;
+        }
+        if (passTaskStarted.get()) {
+          // when pass througn task started, no need to retry.
+          log.warn("Send request failed, return without retry.");
+          pendingBytes -= getFrameSize(pendingFrames.poll());
+          continue;
+        }
+        sendAttempts += 1;
+        delay = retryPolicy.getRetryDelayMillis(sendAttempts);
+        if (delay < 0) {
+          log.warn("Send request failed, drop the message.");
+          pendingBytes -= getFrameSize(pendingFrames.poll());
+          sendAttempts = 0;
+          continue;
+        }
+        log.warn("Send request failed, the connection may closed, will reconnect and send again");
+        connectState = ConnectState.CONNECTING;
+        connectAttempts = 0;
+        webSocketClient = null;
+        break;
+      }
+    }
+    if (delay >= 0) {
+      SdkThreads.schedule(this::connect, delay);
+    }
+  }
+
+  /** Drop the queued frames and the connection attempt, guarded by the lock. */
+  private void resetConnection() {
+    connectState = ConnectState.IDLE;
+    connectGeneration++;
+    clearPendingFrames();
+  }
+
+  /** Drop the queued frames, guarded by the lock. */
+  private void clearPendingFrames() {
+    pendingFrames.clear();
+    pendingBytes = 0;
+  }
+
+  /** The bytes of a frame as counted by the websocket queueSize, a text is sent as utf-8. */
+  private static long getFrameSize(Object frame) {
+    return frame instanceof String ? Utf8.size((String) frame) : ((ByteString) frame).size();
+  }
+
+  /** Report a connection error to the result, or keep it until the caller subscribes. */
+  private void emitConnectionError(Throwable error) {
+    FlowableEmitter<DashScopeResult> emitter;
+    synchronized (lock) {
+      emitter = responseEmitter;
+      if (emitter == null || emitter.isCancelled()) {
+        connectionError = error;
+        return;
+      }
+    }
+    emitter.onError(error);
+  }
+
+  /** A task starts, the result is subscribed after it. */
+  private void onTaskStart() {
+    isTaskReleased.set(false);
+    synchronized (lock) {
+      connectionError = null;
+      isAwaitingSubscriber = true;
+    }
+  }
+
+  /** Set the emitter of the result, the connection error raised before is sent to it. */
+  private void bindResponseEmitter(FlowableEmitter<DashScopeResult> emitter, boolean isFlatten) {
+    Throwable error;
+    synchronized (lock) {
+      this.responseEmitter = emitter;
+      this.isFlattenResult = isFlatten;
+      // the emitter bound before the task starts is a placeholder.
+      error = isAwaitingSubscriber ? connectionError : null;
+      if (isAwaitingSubscriber) {
+        isAwaitingSubscriber = false;
+        connectionError = null;
       }
     }
-    throw new ApiException(
-        Status.builder()
-            .code("ConnectionError")
-            .message(errorMessage)
-            .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
-            .build());
+    if (error != null) {
+      emitter.onError(error);
+    }
+  }
+
+  private String getConnectionKey(
+      String apiKey, boolean isSecurityCheck, String workspace, String baseWebSocketUrl)
+      throws NoApiKeyException {
+    String url = baseWebSocketUrl != null ? baseWebSocketUrl : Constants.baseWebsocketApiUrl;
+    return WebSocketConnectionPool.getKey(
+        url, ApiKey.getApiKey(apiKey), workspace, isSecurityCheck);
+  }
+
+  /** Lease an idle connection of the pool, return false to open a new connection. */
+  private boolean leaseConnection(Endpoint target) {
+    PooledWebSocket leased;
+    try {
+      leased =
+          connectionPool.lease(
+              getConnectionKey(
+                  target.apiKey, target.isSecurityCheck, target.workspace, target.baseWebSocketUrl),
+              this);
+    } catch (NoApiKeyException e) {
+      return false; // the connection request reports it.
+    }
+    if (leased == null) {
+      return false;
+    }
+    log.debug("Reuse pooled websocket connection.");
+    pooledWebSocket = leased;
+    webSocketClient = leased.getWebSocket();
+    return true;
+  }
+
+  /**
+   * Return the connection to the pool, or detach the task from the multiplexed socket, when the
+   * task finishes, before the result completes, so the next task of the caller takes a connection.
+   */
+  private void releaseConnection() {
+    PooledWebSocket leased = pooledWebSocket;
+    MultiplexedWebSocket.Task task = multiplexedTask;
+    if (leased == null && task == null) {
+      return;
+    }
+    isTaskReleased.set(true);
+    synchronized (lock) {
+      pooledWebSocket = null;
+      multiplexedTask = null;
+      webSocketClient = null;
+      resetConnection();
+    }
+    Disposable d = streamingDataDisposable;
+    if (d != null && !d.isDisposed()) {
+      d.dispose();
+    }
+    if (task != null) {
+      task.release();
+    } else {
+      connectionPool.release(leased);
+    }
   }
 
   @Override
@@ -190,7 +548,11 @@ public class OkHttpWebSocketClient extends WebSocketListener
     // listener will be made.
     log.debug(
         StringUtils.format("WebSocket %s closed: %d, %s", webSocket.toString(), code, reason));
-    isOpen.set(false);
+    synchronized (lock) {
+      if (webSocket == webSocketClient && connectState == ConnectState.OPEN) {
+        connectState = ConnectState.IDLE;
+      }
+    }
   }
 
   @Override
@@ -247,11 +609,23 @@ public class OkHttpWebSocketClient extends WebSocketListener
         StringUtils.format(
             "Websocket failure %s, cause: %s, body: %s",
             t.getMessage(), t.getCause(), responseBody);
+    ConnectState state;
+    synchronized (lock) {
+      if (webSocket != webSocketClient) {
+        log.debug("Ignore the failure of an old connection: {}", failureMessage);
+        return;
+      }
+      state = connectState;
+      if (state == ConnectState.OPEN) {
+        connectState = ConnectState.IDLE;
+      }
+    }
+    if (state == ConnectState.CONNECTING) {
+      onConnectFailure(new Exception(failureMessage, t));
+      return;
+    }
     log.error(failureMessage);
-    isOpen.set(false);
-    if (connectionEmitter != null && !connectionEmitter.isCancelled()) {
-      connectionEmitter.onError(new Exception(failureMessage, t));
-    } else if (responseEmitter != null && !responseEmitter.isCancelled()) {
+    if (responseEmitter != null && !responseEmitter.isCancelled()) {
       // error on request
       responseEmitter.onError(new Exception(failureMessage, t));
     } else {
@@ -273,25 +647,18 @@ public class OkHttpWebSocketClient extends WebSocketListener
       isFirstMessage.set(true);
     }
     try {
-      // Check different message.
-      WebSocketResponse response = JsonUtils.fromJson(text, WebSocketResponse.class);
+      // Check different message, the frame is decoded once and the results are built from it.
+      WebSocketResponse response =
+          isFlattenResult
+              ? JsonUtils.fromJson(text, WebSocketResponse.class)
+              : WebSocketResponse.fromJson(text);
       switch (response.header.event) {
         case TASK_STARTED:
           // if has payload, call onNext.
           if (response.payload.output != null || response.payload.usage != null) {
-            responseEmitter.onNext(
-                new DashScopeResult()
-                    .fromResponse(
-                        Protocol.WEBSOCKET,
-                        NetworkResponse.builder().message(text).build(),
-                        isFlattenResult));
+            responseEmitter.onNext(toResult(response, text));
           } else if (passTaskStarted.get()) {
-            DashScopeResult start_message =
-                new DashScopeResult()
-                    .fromResponse(
-                        Protocol.WEBSOCKET,
-                        NetworkResponse.builder().message(text).build(),
-                        isFlattenResult);
+            DashScopeResult start_message = toResult(response, text);
             start_message.setEvent(WebSocketEventType.TASK_STARTED.getValue());
             responseEmitter.onNext(start_message);
           }
@@ -307,6 +674,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
                   .isJson(true)
                   .build();
           // throw new ApiException(st);
+          releaseConnection();
           if (!responseEmitter.isCancelled()) {
             responseEmitter.onError(new ApiException(st));
           } else {
@@ -315,23 +683,14 @@ public class OkHttpWebSocketClient extends WebSocketListener
         case TASK_FINISHED:
           // check the payload and usage is null.
           if (response.payload.output != null || response.payload.usage != null) {
-            responseEmitter.onNext(
-                new DashScopeResult()
-                    .fromResponse(
-                        Protocol.WEBSOCKET,
-                        NetworkResponse.builder().message(text).build(),
-                        isFlattenResult));
+            responseEmitter.onNext(toResult(response, text));
           }
+          releaseConnection();
           responseEmitter.onComplete();
           break;
         case RESULT_GENERATED:
           // get payload and usage.
-          responseEmitter.onNext(
-              new DashScopeResult()
-                  .fromResponse(
-                      Protocol.WEBSOCKET,
-                      NetworkResponse.builder().message(text).build(),
-                      isFlattenResult));
+          responseEmitter.onNext(toResult(response, text));
           break;
         default:
           // throw new ApiException(Status.builder().code("")
@@ -357,6 +716,15 @@ public class OkHttpWebSocketClient extends WebSocketListener
     }
   }
 
+  private DashScopeResult toResult(WebSocketResponse response, String text) {
+    if (isFlattenResult) {
+      // the flatten output is the whole frame.
+      return new DashScopeResult()
+          .fromResponse(Protocol.WEBSOCKET, NetworkResponse.builder().message(text).build(), true);
+    }
+    return new DashScopeResult().fromWebSocketResponse(response);
+  }
+
   @Override
   public void onMessage(WebSocket webSocket, ByteString bytes) {
     // Invoked when a binary (type 0x2) message has been received.
@@ -389,10 +757,18 @@ public class OkHttpWebSocketClient extends WebSocketListener
       close(1001, "call closed before");
       return;
     }
-    isOpen.set(true);
-    if (connectionEmitter != null && !connectionEmitter.isCancelled()) {
-      connectionEmitter.onComplete();
+    synchronized (lock) {
+      if (connectState != ConnectState.CONNECTING) {
+        log.debug("Ignore the open event of an old connection.");
+        return;
+      }
+      connectState = ConnectState.OPEN;
+      // stop the connect timer.
+      connectGeneration++;
+      webSocketClient = webSocket;
     }
+    retryPolicy.onSuccess();
+    flush();
   }
 
   protected void sendTextWithRetry(
@@ -407,50 +783,17 @@ public class OkHttpWebSocketClient extends WebSocketListener
       log.debug("sendTextWithRetry skipped: connection already closed.");
       return;
     }
-    // simple retry with fixed delay, no strategy
-    if (!isOpen.get()) {
-      establishWebSocketClient(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-    }
-    if (isClosed.get()) {
+    if (isTaskReleased.get()) {
+      log.debug("sendTextWithRetry skipped: task already finished.");
       return;
     }
-    int maxRetries = 3;
     if (passTaskStarted.get()) {
-      // when pass througn task started, no need to retry.
-      if (webSocketClient == null) {
-        log.warn("webSocketClient is null, cannot send message.");
-        return;
-      }
       log.info("Sending message: " + message);
-      Boolean isOk = webSocketClient.send(message);
-      if (!isOk) {
-        log.warn("Send request failed, return without retry.");
-      }
-      return;
-    }
-    int retryCount = 0;
-    while (retryCount < maxRetries) {
-      if (isClosed.get()) {
-        return;
-      }
-      if (webSocketClient == null) {
-        log.warn("webSocketClient is null, cannot send message.");
-        return;
-      }
+    } else {
       log.debug("Sending message: " + message);
-      Boolean isOk = webSocketClient.send(message);
-      if (isOk) {
-        break;
-      } else {
-        establishWebSocketClient(
-            apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-        log.warn(
-            StringUtils.format(
-                "Send request failed, the connection may closed, will reconnect and send again"));
-      }
-      Observable.timer(5000, TimeUnit.MILLISECONDS).blockingSingle();
-      ++retryCount;
     }
+    enqueue(
+        new Endpoint(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl), message);
   }
 
   protected void sendBinaryWithRetry(
@@ -461,41 +804,16 @@ public class OkHttpWebSocketClient extends WebSocketListener
       Map<String, String> customHeaders,
       String baseWebSocketUrl) {
     // Guard: skip if already cancelled
-    if (isClosed.get()) {
+    if (isClosed.get() || isTaskReleased.get()) {
       return;
     }
-    if (!isOpen.get()) {
-      establishWebSocketClient(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-    }
-    if (isClosed.get()) {
-      return;
-    }
-    int maxRetries = 3;
-    int retryCount = 0;
-    while (retryCount < maxRetries) {
-      if (isClosed.get()) {
-        return;
-      }
-      if (webSocketClient == null) {
-        log.warn("webSocketClient is null, cannot send binary message.");
-        return;
-      }
-      Boolean isOk = webSocketClient.send(message);
-      if (isOk) {
-        break;
-      } else {
-        establishWebSocketClient(
-            apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl);
-        log.warn(
-            StringUtils.format(
-                "Send request failed, the connection may closed, will reconnect and send again"));
-      }
-      Observable.timer(5000, TimeUnit.MILLISECONDS).blockingSingle();
-      ++retryCount;
-    }
+    enqueue(
+        new Endpoint(apiKey, isSecurityCheck, workspace, customHeaders, baseWebSocketUrl), message);
   }
 
   private void sendBatchRequest(HalfDuplexRequest req) {
+    checkMultiplexing(req.isBinaryOutput());
+    onTaskStart();
     if (req.getWebsocketBinaryData() != null) {
       // send start-task.
       sendTextWithRetry(
@@ -533,8 +851,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
       Flowable<DashScopeResult> flowable =
           Flowable.<DashScopeResult>create(
               emitter -> {
-                this.responseEmitter = emitter;
-                this.isFlattenResult = req.getIsFlatten();
+                bindResponseEmitter(emitter, req.getIsFlatten());
               },
               BackpressureStrategy.BUFFER);
       flowable.subscribe().dispose();
@@ -557,8 +874,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
       Flowable<DashScopeResult> flowable =
           Flowable.<DashScopeResult>create(
               emitter -> {
-                this.responseEmitter = emitter;
-                this.isFlattenResult = req.getIsFlatten();
+                bindResponseEmitter(emitter, req.getIsFlatten());
               },
               BackpressureStrategy.BUFFER);
       flowable.subscribe().dispose();
@@ -592,8 +908,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
     Flowable<DashScopeResult> flowable =
         Flowable.<DashScopeResult>create(
             emitter -> {
-              this.responseEmitter = emitter;
-              this.isFlattenResult = req.getIsFlatten();
+              bindResponseEmitter(emitter, req.getIsFlatten());
             },
             BackpressureStrategy.BUFFER);
     flowable.subscribe().dispose();
@@ -632,6 +947,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
   protected void executeStreamRequest(FullDuplexRequest req) {
     try {
       isClosed.set(false); // Reset for reuse across sessions
+      onTaskStart();
       isFirstMessage.set(false);
 
       JsonObject startMessage = req.getStartTaskMessage();
@@ -646,79 +962,15 @@ public class OkHttpWebSocketClient extends WebSocketListener
           req.getHeaders(),
           req.getBaseWebSocketUrl());
 
-      Flowable<Object> streamingData = req.getStreamingData();
-      Disposable d =
-          streamingData.subscribe(
-              data -> {
-                try {
-                  if (data instanceof String) {
-                    JsonObject continueData = req.getContinueMessage((String) data, taskId);
-                    sendTextWithRetry(
-                        req.getApiKey(),
-                        req.isSecurityCheck(),
-                        JsonUtils.toJson(continueData),
-                        req.getWorkspace(),
-                        req.getHeaders(),
-                        req.getBaseWebSocketUrl());
-                  } else if (data instanceof byte[]) {
-                    sendBinaryWithRetry(
-                        req.getApiKey(),
-                        req.isSecurityCheck(),
-                        ByteString.of((byte[]) data),
-                        req.getWorkspace(),
-                        req.getHeaders(),
-                        req.getBaseWebSocketUrl());
-                  } else if (data instanceof ByteBuffer) {
-                    sendBinaryWithRetry(
-                        req.getApiKey(),
-                        req.isSecurityCheck(),
-                        ByteString.of((ByteBuffer) data),
-                        req.getWorkspace(),
-                        req.getHeaders(),
-                        req.getBaseWebSocketUrl());
-                  } else {
-                    JsonObject continueData = req.getContinueMessage(data, taskId);
-                    sendTextWithRetry(
-                        req.getApiKey(),
-                        req.isSecurityCheck(),
-                        JsonUtils.toJson(continueData),
-                        req.getWorkspace(),
-                        req.getHeaders(),
-                        req.getBaseWebSocketUrl());
-                  }
-                } catch (Throwable ex) {
-                  log.error(StringUtils.format("sendStreamData exception: %s", ex.getMessage()));
-                  if (responseEmitter != null && !responseEmitter.isCancelled()) {
-                    responseEmitter.onError(ex);
-                  }
-                }
-              },
-              err -> {
-                log.error(StringUtils.format("Get stream data error!"));
-                if (responseEmitter != null && !responseEmitter.isCancelled()) {
-                  responseEmitter.onError(err);
-                }
-              },
-              new Action() {
-                @Override
-                public void run() throws Exception {
-                  log.debug(StringUtils.format("Stream data send completed!"));
-                  sendTextWithRetry(
-                      req.getApiKey(),
-                      req.isSecurityCheck(),
-                      JsonUtils.toJson(req.getFinishedTaskMessage(taskId)),
-                      req.getWorkspace(),
-                      req.getHeaders(),
-                      req.getBaseWebSocketUrl());
-                }
-              });
-      // Publish the disposable, then check if cancel() raced ahead.
-      // If isClosed is already true, cancel() has already run and missed
-      // this disposable, so we must dispose it ourselves.
-      streamingDataDisposable = d;
+      StreamingDataSubscriber subscriber = new StreamingDataSubscriber(req, taskId);
+      // Publish the disposable before subscribing, cancel() disposes it. If isClosed is
+      // already true, cancel() has already run and missed this disposable.
+      streamingDataDisposable = subscriber;
       if (isClosed.get()) {
-        d.dispose();
+        subscriber.dispose();
+        return;
       }
+      req.getStreamingData().subscribe(subscriber);
     } catch (Throwable ex) {
       log.error(StringUtils.format("sendStreamData exception: %s", ex.getMessage()));
       if (responseEmitter != null && !responseEmitter.isCancelled()) {
@@ -727,9 +979,124 @@ public class OkHttpWebSocketClient extends WebSocketListener
     }
   }
 
+  /**
+   * The subscriber of the streaming data of a task, it requests the next item only while the send
+   * queue is under the high-water mark, so a fast producer does not fill the memory.
+   */
+  private final class StreamingDataSubscriber extends DisposableSubscriber<Object> {
+    private final FullDuplexRequest req;
+    private final String taskId;
+
+    private StreamingDataSubscriber(FullDuplexRequest req, String taskId) {
+      this.req = req;
+      this.taskId = taskId;
+    }
+
+    @Override
+    protected void onStart() {
+      requestNext();
+    }
+
+    @Override
+    public void onNext(Object data) {
+      try {
+        if (data instanceof String) {
+          JsonObject continueData = req.getContinueMessage((String) data, taskId);
+          sendTextWithRetry(
+              req.getApiKey(),
+              req.isSecurityCheck(),
+              JsonUtils.toJson(continueData),
+              req.getWorkspace(),
+              req.getHeaders(),
+              req.getBaseWebSocketUrl());
+        } else if (data instanceof byte[]) {
+          sendBinaryWithRetry(
+              req.getApiKey(),
+              req.isSecurityCheck(),
+              ByteString.of((byte[]) data),
+              req.getWorkspace(),
+              req.getHeaders(),
+              req.getBaseWebSocketUrl());
+        } else if (data instanceof ByteBuffer) {
+          sendBinaryWithRetry(
+              req.getApiKey(),
+              req.isSecurityCheck(),
+              ByteString.of((ByteBuffer) data),
+              req.getWorkspace(),
+              req.getHeaders(),
+              req.getBaseWebSocketUrl());
+        } else {
+          JsonObject continueData = req.getContinueMessage(data, taskId);
+          sendTextWithRetry(
+              req.getApiKey(),
+              req.isSecurityCheck(),
+              JsonUtils.toJson(continueData),
+              req.getWorkspace(),
+              req.getHeaders(),
+              req.getBaseWebSocketUrl());
+        }
+      } catch (Throwable ex) {
+        log.error(StringUtils.format("sendStreamData exception: %s", ex.getMessage()));
+        if (responseEmitter != null && !responseEmitter.isCancelled()) {
+          responseEmitter.onError(ex);
+        }
+      }
+      requestNext();
+    }
+
+    @Override
+    public void onError(Throwable err) {
+      log.error(StringUtils.format("Get stream data error!"));
+      if (responseEmitter != null && !responseEmitter.isCancelled()) {
+        responseEmitter.onError(err);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      log.debug(StringUtils.format("Stream data send completed!"));
+      sendTextWithRetry(
+          req.getApiKey(),
+          req.isSecurityCheck(),
+          JsonUtils.toJson(req.getFinishedTaskMessage(taskId)),
+          req.getWorkspace(),
+          req.getHeaders(),
+          req.getBaseWebSocketUrl());
+    }
+
+    private void requestNext() {
+      if (isDisposed()) {
+        return;
+      }
+      // the items of a closed task are dropped, do not wait for its queue.
+      if (isClosed.get() || isTaskReleased.get() || getSendQueueSize() < sendQueueHighWaterMark) {
+        request(1);
+      } else {
+        SdkThreads.schedule(this::requestNext, SEND_QUEUE_CHECK_INTERVAL_MILLIS);
+      }
+    }
+  }
+
   protected CompletableFuture<Void> sendStreamRequest(FullDuplexRequest req) {
-    CompletableFuture<Void> future = CompletableFuture.runAsync(() -> executeStreamRequest(req));
-    return future;
+    checkMultiplexing(req.isBinaryOutput());
+    return streamingExecutor.execute(() -> executeStreamRequest(req));
+  }
+
+  /**
+   * Reject a task with binary output on a multiplexer of concurrent tasks, the binary frames carry
+   * no task_id and can not be routed to the task.
+   */
+  private void checkMultiplexing(boolean isBinaryOutput) {
+    if (isBinaryOutput && multiplexer != null && multiplexer.getMaxTasksPerSocket() > 1) {
+      throw new ApiException(
+          Status.builder()
+              .code("Invalid call")
+              .statusCode(Constants.DASHSCOPE_WEBSOCKET_FAILED_STATUS_CODE)
+              .message(
+                  "The service returns binary frames, use a webSocketMultiplexer with"
+                      + " maxTasksPerSocket 1.")
+              .build());
+    }
   }
 
   private void joinSendFuture(CompletableFuture<Void> future) {
@@ -755,8 +1122,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
     Flowable<DashScopeResult> flowable =
         Flowable.<DashScopeResult>create(
             emitter -> {
-              this.responseEmitter = emitter;
-              this.isFlattenResult = req.getIsFlatten();
+              bindResponseEmitter(emitter, req.getIsFlatten());
             },
             BackpressureStrategy.BUFFER);
     flowable.subscribe().dispose();
@@ -792,8 +1158,7 @@ public class OkHttpWebSocketClient extends WebSocketListener
     Flowable<DashScopeResult> flowable =
         Flowable.<DashScopeResult>create(
             emitter -> {
-              this.responseEmitter = emitter;
-              this.isFlattenResult = req.getIsFlatten();
+              bindResponseEmitter(emitter, req.getIsFlatten());
             },
             BackpressureStrategy.BUFFER);
     flowable.subscribe().dispose();
@@ -0,0 +1,125 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * A websocket of the connection pool. The listener of an okhttp websocket is fixed when it is
+ * created, so the pooled websocket listens and forwards the events to the client leasing it, the
+ * events of an idle websocket are dropped.
+ */
+final class PooledWebSocket extends WebSocketListener {
+  private final WebSocketConnectionPool pool;
+  private final String key;
+  private volatile WebSocket webSocket;
+  private volatile WebSocketListener listener;
+  private volatile boolean open;
+  private volatile boolean closed;
+  // the time it is returned to the pool, guarded by the pool.
+  private long idleSinceNanos;
+
+  PooledWebSocket(WebSocketConnectionPool pool, String key, WebSocketListener listener) {
+    this.pool = pool;
+    this.key = key;
+    this.listener = listener;
+  }
+
+  String getKey() {
+    return key;
+  }
+
+  WebSocket getWebSocket() {
+    return webSocket;
+  }
+
+  void setWebSocket(WebSocket webSocket) {
+    this.webSocket = webSocket;
+  }
+
+  void setListener(WebSocketListener listener) {
+    this.listener = listener;
+  }
+
+  long getIdleSinceNanos() {
+    return idleSinceNanos;
+  }
+
+  void setIdleSinceNanos(long idleSinceNanos) {
+    this.idleSinceNanos = idleSinceNanos;
+  }
+
+  /** Open, not closing and nothing left to send by the last task. */
+  boolean isHealthy() {
+    WebSocket current = webSocket;
+    return open && !closed && current != null && current.queueSize() == 0;
+  }
+
+  void close(int code, String reason) {
+    closed = true;
+    WebSocket current = webSocket;
+    if (current != null) {
+      current.close(code, reason);
+    }
+  }
+
+  @Override
+  public void onOpen(WebSocket webSocket, Response response) {
+    open = true;
+    WebSocketListener current = listener;
+    if (current != null) {
+      current.onOpen(webSocket, response);
+    }
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, String text) {
+    WebSocketListener current = listener;
+    if (current != null) {
+      current.onMessage(webSocket, text);
+    }
+  }
+
+  @Override
+  public void onMessage(WebSocket webSocket, ByteString bytes) {
+    WebSocketListener current = listener;
+    if (current != null) {
+      current.onMessage(webSocket, bytes);
+    }
+  }
+
+  @Override
+  public void onClosing(WebSocket webSocket, int code, String reason) {
+    closed = true;
+    pool.remove(this);
+    WebSocketListener current = listener;
+    if (current != null) {
+      current.onClosing(webSocket, code, reason);
+    } else { // the server closes an idle connection.
+      webSocket.close(code, null);
+    }
+  }
+
+  @Override
+  public void onClosed(WebSocket webSocket, int code, String reason) {
+    closed = true;
+    pool.remove(this);
+    WebSocketListener current = listener;
+    if (current != null) {
+      current.onClosed(webSocket, code, reason);
+    }
+  }
+
+  @Override
+  public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+    closed = true;
+    pool.remove(this);
+    WebSocketListener current = listener;
+    if (current != null) {
+      current.onFailure(webSocket, t, response);
+    }
+  }
+}
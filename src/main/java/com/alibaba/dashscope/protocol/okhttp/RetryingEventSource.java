@@ -0,0 +1,130 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.protocol.HttpMethod;
+import com.alibaba.dashscope.protocol.RetryPolicy;
+import com.alibaba.dashscope.utils.SdkThreads;
+import java.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Event source which opens the stream again by the retry policy, if it fails before it is opened.
+ * After opened, the events are delivered and a failure is not retried. The listener receives this
+ * event source, not the source of the attempt.
+ */
+@Slf4j
+final class RetryingEventSource implements EventSource {
+  private final OkHttpClient client;
+  private final Request request;
+  private final HttpMethod method;
+  private final RetryPolicy retryPolicy;
+  private final EventSourceListener listener;
+  private int attempt;
+  private boolean opened;
+  private boolean canceled;
+  private EventSource current;
+  private ScheduledFuture<?> pendingRetry;
+
+  RetryingEventSource(
+      OkHttpClient client,
+      Request request,
+      HttpMethod method,
+      RetryPolicy retryPolicy,
+      EventSourceListener listener) {
+    this.client = client;
+    this.request = request;
+    this.method = method;
+    this.retryPolicy = retryPolicy;
+    this.listener = listener;
+  }
+
+  /** Open the stream, return this. */
+  RetryingEventSource start() {
+    connect();
+    return this;
+  }
+
+  private synchronized void connect() {
+    if (canceled) {
+      return;
+    }
+    pendingRetry = null;
+    ++attempt;
+    current = EventSources.createFactory(client).newEventSource(request, new AttemptListener());
+  }
+
+  @NotNull
+  @Override
+  public Request request() {
+    return request;
+  }
+
+  @Override
+  public void cancel() {
+    EventSource source;
+    synchronized (this) {
+      canceled = true;
+      if (pendingRetry != null) {
+        pendingRetry.cancel(false);
+        pendingRetry = null;
+      }
+      source = current;
+    }
+    if (source != null) {
+      source.cancel();
+    }
+  }
+
+  private final class AttemptListener extends EventSourceListener {
+    @Override
+    public void onOpen(@NotNull EventSource eventSource, @NotNull Response response) {
+      synchronized (RetryingEventSource.this) {
+        opened = true;
+      }
+      retryPolicy.onSuccess();
+      listener.onOpen(RetryingEventSource.this, response);
+    }
+
+    @Override
+    public void onEvent(
+        @NotNull EventSource eventSource, String id, String type, @NotNull String data) {
+      listener.onEvent(RetryingEventSource.this, id, type, data);
+    }
+
+    @Override
+    public void onClosed(@NotNull EventSource eventSource) {
+      listener.onClosed(RetryingEventSource.this);
+    }
+
+    @Override
+    public void onFailure(@NotNull EventSource eventSource, Throwable t, Response response) {
+      synchronized (RetryingEventSource.this) {
+        if (!opened && !canceled) {
+          long delay =
+              response != null
+                  ? retryPolicy.getRetryDelayMillis(
+                      attempt, method, response.code(), response.header("Retry-After"))
+                  : retryPolicy.getRetryDelayMillis(attempt, method, t);
+          if (delay >= 0) {
+            log.debug(
+                "Open stream failed in attempt {}, retry after {} ms: {}",
+                attempt,
+                delay,
+                response != null ? response.code() : t);
+            pendingRetry = SdkThreads.schedule(RetryingEventSource.this::connect, delay);
+            return;
+          }
+        }
+      }
+      listener.onFailure(RetryingEventSource.this, t, response);
+    }
+  }
+}
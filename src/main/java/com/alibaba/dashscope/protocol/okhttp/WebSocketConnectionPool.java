@@ -0,0 +1,243 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.utils.SdkThreads;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.WebSocketListener;
+
+/**
+ * The idle authenticated websockets of the full duplex tasks. The run-task protocol runs the tasks
+ * of a connection one by one, so a connection is returned to the pool when its task finishes and
+ * leased by the next task with the same url, api key and workspace, without the handshake.
+ *
+ * <p>The idle connections are pinged to keep them alive and detect the dead peers, a connection
+ * idle longer than maxIdleTime is closed. Set it by ConnectionOptions.webSocketConnectionPool,
+ * share one pool between the synthesizers and recognizers to share the connections.
+ */
+@Slf4j
+@Getter
+@Builder
+public final class WebSocketConnectionPool {
+  /** The maximum idle connections per url, api key and workspace. */
+  @Builder.Default private int maxIdleConnections = 4;
+
+  /** An idle connection is closed after this. */
+  @Builder.Default private Duration maxIdleTime = Duration.ofSeconds(60);
+
+  /** The ping interval of the connections, zero to not ping. */
+  @Builder.Default private Duration pingInterval = Duration.ofSeconds(20);
+
+  @Getter(AccessLevel.NONE)
+  private final Connections connections = new Connections();
+
+  /** The connection statistics. */
+  @Data
+  @Builder
+  public static class Stats {
+    /** The connections opened by the pool. */
+    private long created;
+
+    /** The tasks run on a pooled connection. */
+    private long reused;
+
+    /** The idle connections closed by the pool. */
+    private long evicted;
+
+    /** The current idle connections. */
+    private int idle;
+  }
+
+  /**
+   * Get the pool key of a connection.
+   *
+   * @param url The websocket url.
+   * @param apiKey The api key.
+   * @param workspace The workspace, may be null.
+   * @param isSecurityCheck Whether the data inspection is enabled.
+   * @return The key.
+   */
+  public static String getKey(
+      String url, String apiKey, String workspace, boolean isSecurityCheck) {
+    return url + "|" + apiKey + "|" + workspace + "|" + isSecurityCheck;
+  }
+
+  /**
+   * Get the connection statistics.
+   *
+   * @return The statistics.
+   */
+  public Stats getStats() {
+    synchronized (connections) {
+      return Stats.builder()
+          .created(connections.created)
+          .reused(connections.reused)
+          .evicted(connections.evicted)
+          .idle(connections.idleCount())
+          .build();
+    }
+  }
+
+  /** Close all the idle connections. */
+  public void evictAll() {
+    List<PooledWebSocket> evicted = new ArrayList<>();
+    synchronized (connections) {
+      for (Deque<PooledWebSocket> idle : connections.idle.values()) {
+        evicted.addAll(idle);
+      }
+      connections.idle.clear();
+      connections.evicted += evicted.size();
+    }
+    evicted.forEach(connection -> connection.close(1000, "evicted"));
+  }
+
+  /**
+   * Lease a healthy idle connection, the events of the connection are sent to the listener.
+   *
+   * @param key The pool key.
+   * @param listener The listener of the task.
+   * @return The connection, null if no idle connection.
+   */
+  PooledWebSocket lease(String key, WebSocketListener listener) {
+    List<PooledWebSocket> unhealthy = new ArrayList<>();
+    PooledWebSocket leased = null;
+    synchronized (connections) {
+      Deque<PooledWebSocket> idle = connections.idle.get(key);
+      while (idle != null && !idle.isEmpty()) {
+        // the most recently used first, the others expire.
+        PooledWebSocket connection = idle.pollLast();
+        if (connection.isHealthy() && !isExpired(connection, System.nanoTime())) {
+          connection.setListener(listener);
+          connections.reused++;
+          leased = connection;
+          break;
+        }
+        connections.evicted++;
+        unhealthy.add(connection);
+      }
+      if (idle != null && idle.isEmpty()) {
+        connections.idle.remove(key);
+      }
+    }
+    unhealthy.forEach(connection -> connection.close(1000, "evicted"));
+    return leased;
+  }
+
+  /**
+   * Open a connection of the pool, it is leased by the listener.
+   *
+   * @param client The okhttp client.
+   * @param request The authenticated connection request.
+   * @param key The pool key.
+   * @param listener The listener of the task.
+   * @return The connection, opening.
+   */
+  PooledWebSocket connect(
+      OkHttpClient client, Request request, String key, WebSocketListener listener) {
+    if (!pingInterval.isZero() && !pingInterval.isNegative()) {
+      // shares the dispatcher and the connection pool of the client.
+      client = client.newBuilder().pingInterval(pingInterval).build();
+    }
+    PooledWebSocket connection = new PooledWebSocket(this, key, listener);
+    synchronized (connections) {
+      connections.created++;
+    }
+    connection.setWebSocket(client.newWebSocket(request, connection));
+    return connection;
+  }
+
+  /**
+   * Return a connection to the pool when its task finishes, the connection is closed if it is not
+   * healthy or the pool of its key is full.
+   *
+   * @param connection The leased connection.
+   */
+  void release(PooledWebSocket connection) {
+    connection.setListener(null);
+    boolean pooled = false;
+    long now = System.nanoTime();
+    synchronized (connections) {
+      if (connection.isHealthy()) {
+        Deque<PooledWebSocket> idle =
+            connections.idle.computeIfAbsent(connection.getKey(), k -> new ArrayDeque<>());
+        if (idle.size() < maxIdleConnections) {
+          connection.setIdleSinceNanos(now);
+          idle.addLast(connection);
+          pooled = true;
+        }
+      }
+    }
+    if (!pooled) {
+      connection.close(1000, "bye");
+      return;
+    }
+    SdkThreads.schedule(this::evictExpired, maxIdleTime.toMillis() + 1);
+  }
+
+  /** Remove a closed connection. */
+  void remove(PooledWebSocket connection) {
+    synchronized (connections) {
+      Deque<PooledWebSocket> idle = connections.idle.get(connection.getKey());
+      if (idle != null && idle.remove(connection) && idle.isEmpty()) {
+        connections.idle.remove(connection.getKey());
+      }
+    }
+  }
+
+  private void evictExpired() {
+    List<PooledWebSocket> expired = new ArrayList<>();
+    long now = System.nanoTime();
+    synchronized (connections) {
+      Iterator<Deque<PooledWebSocket>> it = connections.idle.values().iterator();
+      while (it.hasNext()) {
+        Deque<PooledWebSocket> idle = it.next();
+        // the oldest first.
+        while (!idle.isEmpty() && isExpired(idle.peekFirst(), now)) {
+          expired.add(idle.pollFirst());
+        }
+        if (idle.isEmpty()) {
+          it.remove();
+        }
+      }
+      connections.evicted += expired.size();
+    }
+    if (!expired.isEmpty()) {
+      log.debug("Evict {} idle websocket connections", expired.size());
+    }
+    expired.forEach(connection -> connection.close(1000, "idle timeout"));
+  }
+
+  private boolean isExpired(PooledWebSocket connection, long now) {
+    return now - connection.getIdleSinceNanos() >= maxIdleTime.toNanos();
+  }
+
+  /** The idle connections by key, guarded by itself. */
+  private static final class Connections {
+    private final Map<String, Deque<PooledWebSocket>> idle = new HashMap<>();
+    private long created;
+    private long reused;
+    private long evicted;
+
+    int idleCount() {
+      int count = 0;
+      for (Deque<PooledWebSocket> connections : idle.values()) {
+        count += connections.size();
+      }
+      return count;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.protocol.okhttp;
+
+import com.alibaba.dashscope.utils.SdkThreads;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.WebSocketListener;
+
+/**
+ * Run many full duplex tasks over a few websockets. The tasks of the same url, api key and
+ * workspace share an authenticated socket, up to maxTasksPerSocket concurrent tasks per socket, the
+ * inbound frames are routed to the tasks by task_id and the outbound frames of the tasks are sent
+ * in turn.
+ *
+ * <p>The binary frames carry no task_id: the tasks of a service with binary output, e.g. the speech
+ * synthesis, are rejected when maxTasksPerSocket is over 1, and the service must attribute the
+ * outbound binary frames of the concurrent tasks, e.g. the audio of the recognizers. Keep
+ * maxTasksPerSocket at 1, the default, unless the service runs concurrent tasks on a connection,
+ * the sockets are still reused by the successive tasks. A task closed before it ends holds its
+ * socket until the server ends it, the next task takes another socket meanwhile.
+ *
+ * <p>Set it by ConnectionOptions.webSocketMultiplexer, share one multiplexer between the
+ * synthesizers and recognizers to share the sockets. It can not be set with the
+ * webSocketConnectionPool.
+ */
+@Slf4j
+@Getter
+@Builder
+public final class WebSocketMultiplexer {
+  /** The maximum concurrent tasks of a socket. */
+  @Builder.Default private int maxTasksPerSocket = 1;
+
+  /** A socket without task is closed after this. */
+  @Builder.Default private Duration maxIdleTime = Duration.ofSeconds(60);
+
+  /** The ping interval of the sockets, zero to not ping. */
+  @Builder.Default private Duration pingInterval = Duration.ofSeconds(20);
+
+  @Getter(AccessLevel.NONE)
+  private final Map<String, List<MultiplexedWebSocket>> sockets = new HashMap<>();
+
+  /** The multiplexer statistics. */
+  @Data
+  @Builder
+  public static class Stats {
+    /** The open sockets. */
+    private int sockets;
+
+    /** The running tasks of the sockets. */
+    private int tasks;
+  }
+
+  /**
+   * Get the multiplexer statistics.
+   *
+   * @return The statistics.
+   */
+  public Stats getStats() {
+    int socketCount = 0;
+    int taskCount = 0;
+    synchronized (sockets) {
+      for (List<MultiplexedWebSocket> group : sockets.values()) {
+        socketCount += group.size();
+        for (MultiplexedWebSocket socket : group) {
+          taskCount += socket.getTaskCount();
+        }
+      }
+    }
+    return Stats.builder().sockets(socketCount).tasks(taskCount).build();
+  }
+
+  /** Close the sockets without task. */
+  public void closeIdle() {
+    closeIdle(0);
+  }
+
+  /**
+   * Attach a task to a socket with room, or to a new socket.
+   *
+   * @param client The okhttp client.
+   * @param request The authenticated connection request.
+   * @param key The socket key, see WebSocketConnectionPool.getKey.
+   * @param listener The listener of the task.
+   * @return The websocket of the task.
+   */
+  MultiplexedWebSocket.Task attach(
+      OkHttpClient client, Request request, String key, WebSocketListener listener) {
+    while (true) {
+      MultiplexedWebSocket socket = null;
+      synchronized (sockets) {
+        List<MultiplexedWebSocket> group = sockets.computeIfAbsent(key, k -> new ArrayList<>());
+        for (MultiplexedWebSocket candidate : group) {
+          if (candidate.isAvailable(maxTasksPerSocket)) {
+            socket = candidate;
+            break;
+          }
+        }
+        if (socket == null) {
+          socket = new MultiplexedWebSocket(this, key);
+          group.add(socket);
+          MultiplexedWebSocket.Task task = socket.attach(listener, request, maxTasksPerSocket);
+          if (!pingInterval.isZero() && !pingInterval.isNegative()) {
+            client = client.newBuilder().pingInterval(pingInterval).build();
+          }
+          socket.connect(client, request);
+          return task;
+        }
+      }
+      MultiplexedWebSocket.Task task = socket.attach(listener, request, maxTasksPerSocket);
+      if (task != null) {
+        return task;
+      }
+      // filled or closed by another task, try again.
+    }
+  }
+
+  /** Remove a closed socket. */
+  void remove(MultiplexedWebSocket socket) {
+    synchronized (sockets) {
+      List<MultiplexedWebSocket> group = sockets.get(socket.getKey());
+      if (group != null && group.remove(socket) && group.isEmpty()) {
+        sockets.remove(socket.getKey());
+      }
+    }
+  }
+
+  /** Close the socket left without task after the idle time. */
+  void scheduleIdleCheck() {
+    SdkThreads.schedule(() -> closeIdle(maxIdleTime.toNanos()), maxIdleTime.toMillis() + 1);
+  }
+
+  private void closeIdle(long idleNanos) {
+    List<MultiplexedWebSocket> idle = new ArrayList<>();
+    long now = System.nanoTime();
+    synchronized (sockets) {
+      Iterator<List<MultiplexedWebSocket>> it = sockets.values().iterator();
+      while (it.hasNext()) {
+        List<MultiplexedWebSocket> group = it.next();
+        for (MultiplexedWebSocket socket : group) {
+          long idleSince = socket.getIdleSinceNanos();
+          if (idleSince >= 0 && now - idleSince >= idleNanos) {
+            idle.add(socket);
+          }
+        }
+        group.removeAll(idle);
+        if (group.isEmpty()) {
+          it.remove();
+        }
+      }
+    }
+    if (!idle.isEmpty()) {
+      log.debug("Close {} idle multiplexed websockets", idle.size());
+    }
+    idle.forEach(socket -> socket.close(1000, "idle timeout"));
+  }
+}
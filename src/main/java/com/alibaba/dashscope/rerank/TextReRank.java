@@ -7,6 +7,8 @@ import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.InputRequiredException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.*;
+import com.alibaba.dashscope.utils.FutureUtils;
+import java.util.concurrent.CompletableFuture;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
@@ -79,4 +81,21 @@ public final class TextReRank {
     serviceOption.setStreamingMode(StreamingMode.NONE);
     return TextReRankResult.fromDashScopeResult(syncApi.call(param));
   }
+
+  /**
+   * Call the server to get the whole result without blocking a thread.
+   *
+   * @param param The input param of class `TextReRankParam`.
+   * @return The future result, cancel it to cancel the request.
+   * @throws NoApiKeyException Can not find api key
+   * @throws ApiException Build the request failed, the request failures complete the future.
+   * @throws InputRequiredException Missing inputs.
+   */
+  public CompletableFuture<TextReRankResult> callAsync(TextReRankParam param)
+      throws ApiException, NoApiKeyException, InputRequiredException {
+    param.validate();
+    serviceOption.setIsSSE(false);
+    serviceOption.setStreamingMode(StreamingMode.NONE);
+    return FutureUtils.map(syncApi.callAsync(param), TextReRankResult::fromDashScopeResult);
+  }
 }
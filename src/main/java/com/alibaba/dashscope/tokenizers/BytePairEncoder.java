@@ -0,0 +1,141 @@
+package com.alibaba.dashscope.tokenizers;
+
+/**
+ * Byte pair merge over int ranks. The parts of a piece are kept in a linked list of int arrays, the
+ * part id is its start offset in the piece, and the candidate pairs are kept in a min-heap of
+ * (rank, offset), so a piece of n bytes is encoded in O(n log n). Stale heap entries are skipped
+ * when they are popped. The working arrays are reused per thread.
+ */
+final class BytePairEncoder {
+  // pieces larger than this use a temporary workspace, so a huge input does not pin memory.
+  private static final int MAX_RETAINED_PIECE_LENGTH = 8192;
+  private static final int NO_RANK = -1;
+
+  private final TokenRankTable ranks;
+  private final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+  BytePairEncoder(TokenRankTable ranks) {
+    this.ranks = ranks;
+  }
+
+  /**
+   * Encode a piece of bytes and append the token ids to out.
+   *
+   * @param piece The bytes of the piece.
+   * @param length The length of the piece.
+   * @param out The output token ids.
+   */
+  void encode(byte[] piece, int length, TokenIdBuffer out) {
+    if (length == 0) {
+      return;
+    }
+    int whole = ranks.rank(piece, 0, length);
+    if (whole != NO_RANK) {
+      out.add(whole);
+      return;
+    }
+    if (length == 1) {
+      throw new IllegalStateException("Byte " + piece[0] + " is not in the vocabulary");
+    }
+    Workspace ws = length > MAX_RETAINED_PIECE_LENGTH ? new Workspace() : workspaces.get();
+    ws.reset(length);
+    int[] next = ws.next;
+    int[] prev = ws.prev;
+    int[] pairRanks = ws.pairRanks;
+    for (int i = 0; i < length; ++i) {
+      next[i] = i + 1;
+      prev[i] = i - 1;
+    }
+    for (int i = 0; i < length - 1; ++i) {
+      pairRanks[i] = ranks.rank(piece, i, 2);
+      if (pairRanks[i] != NO_RANK) {
+        ws.push(pairRanks[i], i);
+      }
+    }
+    while (ws.heapSize > 0) {
+      long top = ws.pop();
+      int rank = (int) (top >>> 32);
+      int part = (int) top;
+      if (pairRanks[part] != rank) { // merged or changed since pushed.
+        continue;
+      }
+      // merge the part with the next part.
+      int merged = next[part];
+      int after = next[merged];
+      next[part] = after;
+      if (after < length) {
+        prev[after] = part;
+      }
+      pairRanks[merged] = NO_RANK;
+      pairRanks[part] = after < length ? ranks.rank(piece, part, next[after] - part) : NO_RANK;
+      if (pairRanks[part] != NO_RANK) {
+        ws.push(pairRanks[part], part);
+      }
+      int before = prev[part];
+      if (before >= 0) {
+        pairRanks[before] = ranks.rank(piece, before, after - before);
+        if (pairRanks[before] != NO_RANK) {
+          ws.push(pairRanks[before], before);
+        }
+      }
+    }
+    for (int part = 0; part < length; part = next[part]) {
+      out.add(ranks.rank(piece, part, next[part] - part));
+    }
+  }
+
+  private static final class Workspace {
+    int[] next = new int[0];
+    int[] prev = new int[0];
+    int[] pairRanks = new int[0];
+    // (rank << 32 | part) min-heap, the smallest rank first, then the leftmost part.
+    long[] heap = new long[0];
+    int heapSize;
+
+    void reset(int length) {
+      if (next.length < length) {
+        int capacity = Math.max(length, next.length << 1);
+        next = new int[capacity];
+        prev = new int[capacity];
+        pairRanks = new int[capacity];
+        // every merge pushes at most 2 pairs.
+        heap = new long[capacity * 3];
+      }
+      heapSize = 0;
+    }
+
+    void push(int rank, int part) {
+      long value = ((long) rank << 32) | part;
+      int i = heapSize++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (heap[parent] <= value) {
+          break;
+        }
+        heap[i] = heap[parent];
+        i = parent;
+      }
+      heap[i] = value;
+    }
+
+    long pop() {
+      long top = heap[0];
+      long last = heap[--heapSize];
+      int i = 0;
+      int half = heapSize >>> 1;
+      while (i < half) {
+        int child = (i << 1) + 1;
+        if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+          child++;
+        }
+        if (last <= heap[child]) {
+          break;
+        }
+        heap[i] = heap[child];
+        i = child;
+      }
+      heap[i] = last;
+      return top;
+    }
+  }
+}
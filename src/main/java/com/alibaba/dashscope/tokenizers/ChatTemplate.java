@@ -0,0 +1,46 @@
+package com.alibaba.dashscope.tokenizers;
+
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.MessageContentBase;
+import com.alibaba.dashscope.common.MessageContentText;
+import com.alibaba.dashscope.common.Role;
+import java.util.List;
+
+/** Render messages with the qwen chat template, used to count prompt tokens. */
+final class ChatTemplate {
+  static final String IM_START = "<|im_start|>";
+  static final String IM_END = "<|im_end|>";
+
+  private ChatTemplate() {}
+
+  /**
+   * Render the messages and the generation prompt. eg: "<|im_start|>system\nYou are a helpful
+   * assistant.<|im_end|>\n<|im_start|>user\nhello<|im_end|>\n<|im_start|>assistant\n"
+   *
+   * @param messages The messages.
+   * @return The prompt.
+   */
+  static String render(List<Message> messages) {
+    StringBuilder sb = new StringBuilder();
+    for (Message message : messages) {
+      sb.append(IM_START).append(message.getRole()).append('\n');
+      appendContent(sb, message);
+      sb.append(IM_END).append('\n');
+    }
+    sb.append(IM_START).append(Role.ASSISTANT.getValue()).append('\n');
+    return sb.toString();
+  }
+
+  private static void appendContent(StringBuilder sb, Message message) {
+    if (message.getContent() != null) {
+      sb.append(message.getContent());
+    } else if (message.getContents() != null) {
+      for (MessageContentBase content : message.getContents()) {
+        if (content instanceof MessageContentText
+            && ((MessageContentText) content).getText() != null) {
+          sb.append(((MessageContentText) content).getText());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.alibaba.dashscope.tokenizers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded thread safe LRU cache of chunk to token ids. The entries are spread to stripes by the
+ * chunk hash, each stripe is an access ordered LinkedHashMap guarded by its own lock.
+ */
+final class ChunkCache {
+  private static final int STRIPES = 16;
+  private final Stripe[] stripes;
+  private final int maximumSize;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Create the cache.
+   *
+   * @param maximumSize The maximum number of chunks, 0 to disable the cache.
+   */
+  ChunkCache(int maximumSize) {
+    this.maximumSize = Math.max(maximumSize, 0);
+    int stripeSize = (this.maximumSize + STRIPES - 1) / STRIPES;
+    stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; ++i) {
+      stripes[i] = new Stripe(stripeSize);
+    }
+  }
+
+  boolean isEnabled() {
+    return maximumSize > 0;
+  }
+
+  /** Get the token ids of the chunk, null if not cached, the result must not be modified. */
+  int[] get(String chunk) {
+    Stripe stripe = stripeOf(chunk);
+    int[] ids;
+    synchronized (stripe) {
+      ids = stripe.get(chunk);
+    }
+    if (ids == null) {
+      misses.increment();
+    } else {
+      hits.increment();
+    }
+    return ids;
+  }
+
+  void put(String chunk, int[] ids) {
+    Stripe stripe = stripeOf(chunk);
+    synchronized (stripe) {
+      stripe.put(chunk, ids);
+    }
+  }
+
+  void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.clear();
+      }
+    }
+    hits.reset();
+    misses.reset();
+  }
+
+  ChunkCacheStats stats() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size();
+      }
+    }
+    return ChunkCacheStats.builder()
+        .hitCount(hits.sum())
+        .missCount(misses.sum())
+        .size(size)
+        .maximumSize(maximumSize)
+        .build();
+  }
+
+  private Stripe stripeOf(String chunk) {
+    int h = chunk.hashCode();
+    return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+  }
+
+  private static final class Stripe extends LinkedHashMap<String, int[]> {
+    private final int capacity;
+
+    Stripe(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+      return size() > capacity;
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.alibaba.dashscope.tokenizers;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** Statistics of the tokenizer chunk cache. */
+@Data
+@Builder
+public class ChunkCacheStats {
+  /** The number of chunks found in the cache. */
+  private long hitCount;
+
+  /** The number of chunks not found in the cache and encoded. */
+  private long missCount;
+
+  /** The number of cached chunks. */
+  private int size;
+
+  /** The maximum number of cached chunks, 0 if the cache is disabled. */
+  private int maximumSize;
+
+  /** The ratio of hits to lookups, 0 if there is no lookup. */
+  public double getHitRate() {
+    long total = hitCount + missCount;
+    return total == 0 ? 0 : (double) hitCount / total;
+  }
+}
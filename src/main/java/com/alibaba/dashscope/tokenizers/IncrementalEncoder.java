@@ -0,0 +1,112 @@
+package com.alibaba.dashscope.tokenizers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * Encode text appended by deltas, such as the output of `Generation.streamCall`, and keep a running
+ * token count. The regex chunks before the unstable tail can not be changed by more text, they are
+ * encoded once. The tail is the last chunk and the whitespace chunks right before it, which may be
+ * merged or split again by the next delta, it is re-encoded on every append. So the cost of an
+ * append is proportional to the delta and the tail, not the whole text. Special tokens are encoded
+ * as ordinary text. Not thread safe.
+ */
+public final class IncrementalEncoder {
+  private final QwenTokenizer tokenizer;
+  // the token ids of the stable text.
+  private final TokenIdBuffer stableTokens = new TokenIdBuffer();
+  // the token ids of the unstable tail.
+  private final TokenIdBuffer tailTokens = new TokenIdBuffer();
+  // the unstable tail text.
+  private final StringBuilder tail = new StringBuilder();
+  // the chunk boundaries of the tail, reused for every append.
+  private final TokenIdBuffer chunkStarts = new TokenIdBuffer();
+  private final TokenIdBuffer chunkEnds = new TokenIdBuffer();
+
+  IncrementalEncoder(QwenTokenizer tokenizer) {
+    this.tokenizer = tokenizer;
+  }
+
+  /**
+   * Append the text delta.
+   *
+   * @param delta The appended text.
+   * @return The number of tokens of all the text appended.
+   */
+  public int append(CharSequence delta) {
+    if (delta.length() == 0) {
+      return getTokenCount();
+    }
+    tail.append(delta);
+    chunkStarts.clear();
+    chunkEnds.clear();
+    // the start of the unstable tail, and the start of the trailing whitespace chunks.
+    int unstableStart = 0;
+    int whitespaceStart = -1;
+    int unstableChunk = 0;
+    int whitespaceChunk = -1;
+    for (Matcher matcher = tokenizer.split(tail); matcher.find(); ) {
+      int start = matcher.start();
+      int end = matcher.end();
+      int chunk = chunkStarts.size();
+      chunkStarts.add(start);
+      chunkEnds.add(end);
+      if (whitespaceStart >= 0) {
+        unstableStart = whitespaceStart;
+        unstableChunk = whitespaceChunk;
+      } else {
+        unstableStart = start;
+        unstableChunk = chunk;
+      }
+      if (isWhitespace(tail, start, end)) {
+        if (whitespaceStart < 0) {
+          whitespaceStart = start;
+          whitespaceChunk = chunk;
+        }
+      } else {
+        whitespaceStart = -1;
+      }
+    }
+    for (int chunk = 0; chunk < unstableChunk; ++chunk) {
+      tokenizer.encodeChunk(
+          tail.substring(chunkStarts.get(chunk), chunkEnds.get(chunk)), stableTokens);
+    }
+    tailTokens.clear();
+    for (int chunk = unstableChunk; chunk < chunkStarts.size(); ++chunk) {
+      tokenizer.encodeChunk(
+          tail.substring(chunkStarts.get(chunk), chunkEnds.get(chunk)), tailTokens);
+    }
+    tail.delete(0, unstableStart);
+    return getTokenCount();
+  }
+
+  /** The number of tokens of all the text appended. */
+  public int getTokenCount() {
+    return stableTokens.size() + tailTokens.size();
+  }
+
+  /** The token ids of all the text appended. */
+  public List<Integer> getTokens() {
+    List<Integer> tokens = new ArrayList<>(getTokenCount());
+    stableTokens.addTo(tokens);
+    tailTokens.addTo(tokens);
+    return tokens;
+  }
+
+  /** Clear all the text appended. */
+  public void reset() {
+    stableTokens.clear();
+    tailTokens.clear();
+    tail.setLength(0);
+  }
+
+  private static boolean isWhitespace(CharSequence text, int start, int end) {
+    for (int i = start; i < end; ++i) {
+      if (!Character.isWhitespace(text.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -3,19 +3,17 @@ package com.alibaba.dashscope.tokenizers;
 import com.alibaba.dashscope.exception.NoSpecialTokenExists;
 import com.alibaba.dashscope.exception.UnSupportedSpecialTokenMode;
 import com.alibaba.dashscope.utils.StringUtils;
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.IntBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,12 +29,18 @@ public class QwenTokenizer implements Tokenizer {
   private static final String IMEND = "<|im_end|>";
   private static final String PATTEN_STRING =
       "(?i:'s|'t|'re|'ve|'m|'ll|'d)|[^\\r\\n\\p{L}\\p{N}]?\\p{L}+|\\p{N}| ?[^\\s\\p{L}\\p{N}]+[\\r\\n]*|\\s*[\\r\\n]+|\\s+(?!\\S)|\\s+";
+  private static final Pattern PATTERN = Pattern.compile(PATTEN_STRING);
   private static final int SPECIAL_START_ID = 151643;
-  private static final String TOKEN_RANK_SEPARATOR = " ";
-  private static final String vocabularyBpeFile = "qwen.tiktoken";
-  private static final Map<EncodeBytesEntity, Integer> mergeableRanks;
+  // the maximum number of cached chunks, 0 to disable the chunk cache.
+  private static final String CHUNK_CACHE_SIZE_ENV = "DASHSCOPE_TOKENIZER_CHUNK_CACHE_SIZE";
+  private static final int DEFAULT_CHUNK_CACHE_SIZE = 8192;
+  // longer chunks rarely repeat, do not cache them.
+  private static final int MAX_CACHED_CHUNK_LENGTH = 64;
+  private static final ChunkCache chunkCache = new ChunkCache(getChunkCacheSize());
+  // binary vocabulary built from qwen.tiktoken, see TokenRankTable.
+  private static final String vocabularyFile = "qwen.tiktoken.bin";
   private static final Map<String, Integer> specialTokens;
-  private static final byte[][] decodeMap;
+  private static final String[] specialTokenStrings;
 
   static {
     Map<String, Integer> map = new LinkedHashMap<>();
@@ -49,132 +53,103 @@ public class QwenTokenizer implements Tokenizer {
       map.put(specialToken, specialStartIndex++);
     }
     specialTokens = Collections.unmodifiableMap(map);
+    specialTokenStrings = specialTokens.keySet().toArray(new String[0]);
   }
 
-  static {
-    // ref: https://github.com/openai/tiktoken/blob/main/tiktoken/load.py#L143
-    mergeableRanks = new LinkedHashMap<>();
-    ClassLoader classLoader = QwenTokenizer.class.getClassLoader();
-    try {
-      InputStream inputStream = classLoader.getResourceAsStream(vocabularyBpeFile);
-
-      BufferedReader reader =
-          new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-      String line;
-      while ((line = reader.readLine()) != null) {
-        // 8J+Vkw== 149934 split
-        String[] splits = line.split(TOKEN_RANK_SEPARATOR);
-        assert splits.length == 2 : "Invalid line in " + vocabularyBpeFile + ": " + line;
+  /** The vocabulary is loaded on first use, creating the tokenizer does not load it. */
+  private static class Vocabulary {
+    private static final TokenRankTable mergeableRanks = load();
+    private static final BytePairEncoder bytePairEncoder = new BytePairEncoder(mergeableRanks);
 
-        byte[] token = Base64.getDecoder().decode(splits[0].getBytes(StandardCharsets.UTF_8));
-        int rank = Integer.valueOf(splits[1]);
-
-        mergeableRanks.put(new EncodeBytesEntity(token, rank), rank);
-      }
-      // init decodeMap
-      decodeMap = new byte[mergeableRanks.size() + specialTokens.size()][];
-      for (Entry<EncodeBytesEntity, Integer> entry : mergeableRanks.entrySet()) {
-        decodeMap[entry.getValue()] =
-            Arrays.copyOf(entry.getKey().bytes, entry.getKey().bytes.length);
+    private static TokenRankTable load() {
+      InputStream inputStream =
+          QwenTokenizer.class.getClassLoader().getResourceAsStream(vocabularyFile);
+      if (inputStream == null) {
+        throw new RuntimeException("Could not find " + vocabularyFile + " in resources");
       }
-      for (Entry<String, Integer> entry : specialTokens.entrySet()) {
-        byte[] b = entry.getKey().getBytes(StandardCharsets.UTF_8);
-        decodeMap[entry.getValue()] = Arrays.copyOf(b, b.length);
+      try (InputStream in = new BufferedInputStream(inputStream, 1 << 16)) {
+        TokenRankTable table = TokenRankTable.read(in);
+        if (table.size() != SPECIAL_START_ID) {
+          throw new IOException(
+              StringUtils.format("Expect %d tokens, got %d", SPECIAL_START_ID, table.size()));
+        }
+        return table;
+      } catch (IOException e) {
+        throw new RuntimeException("Could not load " + vocabularyFile + " from resources", e);
       }
-    } catch (IOException e) {
-      throw new RuntimeException("Could not load " + vocabularyBpeFile + " from resources", e);
     }
   }
 
   public QwenTokenizer() {}
 
-  private EncodeBytesEntity mergePair(EncodeBytesEntity first, EncodeBytesEntity second) {
-    byte[] bytesPair = Arrays.copyOf(first.bytes, first.bytes.length + second.bytes.length);
-    System.arraycopy(second.bytes, 0, bytesPair, first.bytes.length, second.bytes.length);
-    return new EncodeBytesEntity(bytesPair);
+  private static int getChunkCacheSize() {
+    try {
+      return Integer.parseInt(System.getenv(CHUNK_CACHE_SIZE_ENV));
+    } catch (NumberFormatException e) {
+      return DEFAULT_CHUNK_CACHE_SIZE;
+    }
   }
 
-  private EncodeBytesEntity getLowestIndexBytePair(EncodeBytesEntity[] ids) {
-    List<EncodeBytesEntity> bytePairs = new ArrayList<>();
-    Integer minRank = Integer.MAX_VALUE;
-    EncodeBytesEntity minRankPair = null;
-    for (int i = 0; i < ids.length - 1; ++i) {
-      EncodeBytesEntity bytePair = mergePair(ids[i], ids[i + 1]);
-      if (bytePairs.indexOf(bytePair) == -1) {
-        Integer rank = mergeableRanks.get(bytePair);
-        if (rank == null) {
-          bytePair.rank = Integer.MAX_VALUE;
-        } else {
-          bytePair.rank = rank;
-          if (rank < minRank) {
-            minRank = rank;
-            minRankPair = bytePair;
-          }
-        }
-        bytePairs.add(bytePair);
-      }
-    }
-    return minRankPair;
+  /**
+   * Get the statistics of the chunk cache, the cache is shared by all qwen tokenizers. The cache
+   * size can be configured by environment variable DASHSCOPE_TOKENIZER_CHUNK_CACHE_SIZE, 0 to
+   * disable.
+   *
+   * @return The hit and miss counts and the size of the cache.
+   */
+  public static ChunkCacheStats getChunkCacheStats() {
+    return chunkCache.stats();
   }
 
-  private EncodeBytesEntity[] merge(EncodeBytesEntity[] ids, EncodeBytesEntity bytePair) {
-    EncodeBytesEntity[] merged = new EncodeBytesEntity[ids.length];
-    int mergedIndex = 0;
-    for (int i = 0; i < ids.length; ) {
-      if (i < ids.length - 1) {
-        EncodeBytesEntity mergePair = mergePair(ids[i], ids[i + 1]);
-        if (mergePair.equals(bytePair)) {
-          merged[mergedIndex++] = bytePair;
-          i += 2;
-        } else {
-          merged[mergedIndex++] = ids[i];
-          i += 1;
-        }
-      } else {
-        merged[mergedIndex++] = ids[i];
-        i += 1;
-      }
-    }
-    return Arrays.copyOfRange(merged, 0, mergedIndex);
+  /** Remove all cached chunks and reset the statistics. */
+  public static void clearChunkCache() {
+    chunkCache.clear();
+  }
+
+  /**
+   * Load the vocabulary in a background daemon thread.
+   *
+   * @return The future completed when the vocabulary is loaded.
+   */
+  static CompletableFuture<Void> preload() {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    Thread thread =
+        new Thread(
+            () -> {
+              try {
+                Vocabulary.mergeableRanks.size();
+                future.complete(null);
+              } catch (Throwable e) {
+                future.completeExceptionally(e);
+              }
+            },
+            "dashscope-tokenizer-preload");
+    thread.setDaemon(true);
+    thread.start();
+    return future;
   }
 
   /**
    * Encode chunk return the token ids.
    *
    * @param chunk the input chunk
-   * @return the token ids.
+   * @param tokens the output token ids.
    */
-  private List<Integer> encodeChunk(String chunk) {
-    byte[] chunkBytes = chunk.getBytes(StandardCharsets.UTF_8);
-    EncodeBytesEntity[] ids = new EncodeBytesEntity[chunkBytes.length];
-    // convert bytes to integers range 0..255
-    int idx = 0;
-    for (byte b : chunkBytes) {
-      EncodeBytesEntity rankKey = new EncodeBytesEntity(new byte[] {b});
-      rankKey.rank = mergeableRanks.get(rankKey);
-      ids[idx++] = rankKey;
-    }
-    List<Integer> tokens = new ArrayList<>();
-    if (ids.length < 2) {
-      for (EncodeBytesEntity key : ids) {
-        tokens.add(key.rank);
+  void encodeChunk(String chunk, TokenIdBuffer tokens) {
+    boolean cacheable = chunkCache.isEnabled() && chunk.length() <= MAX_CACHED_CHUNK_LENGTH;
+    if (cacheable) {
+      int[] cached = chunkCache.get(chunk);
+      if (cached != null) {
+        tokens.addAll(cached);
+        return;
       }
-      return tokens;
     }
-    // merge the byte pair
-    while (ids.length >= 2) {
-      // find the lowest rank mergeable byte pair
-      EncodeBytesEntity bytePair = getLowestIndexBytePair(ids);
-      if (bytePair == null) { // no more token can be merged.
-        break;
-      }
-      // merge the lowest merge index
-      ids = merge(ids, bytePair);
-    }
-    for (EncodeBytesEntity key : ids) {
-      tokens.add(key.rank);
+    int start = tokens.size();
+    byte[] chunkBytes = chunk.getBytes(StandardCharsets.UTF_8);
+    Vocabulary.bytePairEncoder.encode(chunkBytes, chunkBytes.length, tokens);
+    if (cacheable) {
+      chunkCache.put(chunk, tokens.copyRange(start, tokens.size()));
     }
-    return tokens;
   }
 
   /**
@@ -184,14 +159,58 @@ public class QwenTokenizer implements Tokenizer {
    * @return The list of token ids.
    */
   public List<Integer> encodeOrdinary(String text) {
-    List<Integer> tokenIds = new ArrayList<>();
+    TokenIdBuffer tokenIds = new TokenIdBuffer();
+    encodeOrdinary(text, tokenIds);
+    return toList(tokenIds);
+  }
+
+  /**
+   * Create an incremental encoder, which encodes appended text deltas, such as the output of stream
+   * call, without special tokens.
+   *
+   * @return The new encoder.
+   */
+  public IncrementalEncoder newIncrementalEncoder() {
+    return new IncrementalEncoder(this);
+  }
+
+  Matcher split(CharSequence text) {
+    return PATTERN.matcher(text);
+  }
+
+  private void encodeOrdinary(CharSequence text, TokenIdBuffer tokens) {
     // 1. split the input text to trunks use regex
-    Pattern pattern = Pattern.compile(PATTEN_STRING);
-    for (Matcher matcher = pattern.matcher(text); matcher.find(); ) {
+    for (Matcher matcher = split(text); matcher.find(); ) {
       // encode the chunk.
-      tokenIds.addAll(encodeChunk(matcher.group()));
+      encodeChunk(matcher.group(), tokens);
     }
-    return tokenIds;
+  }
+
+  /** Encode with all special tokens allowed. */
+  private void encodeWithSpecial(String text, TokenIdBuffer tokens) {
+    // 1. process special tokens. split the text with special tokens.
+    // eg: "<|im_start|>system\nYour are a helpful
+    // assistant.<|im_end|>\n<|im_start|>user\nSan
+    // Francisco is a<|im_end|>\n<|im_start|>assistant\n"
+    // will be split to ["<|im_start|>", "system\nYour are a helpful assistant.",
+    // "<|im_end|>", "\n", "<|im_start|>", "user\nSan Francisco is a",
+    // "<|im_end|>", "\n", "<|im_start|>", "assistant\n"]
+    List<String> chunks = splitWithSpecial(text);
+    // 2. process the chunks
+    for (String chunk : chunks) {
+      Integer special = specialTokens.get(chunk);
+      if (special != null) {
+        tokens.add(special); // is special token
+      } else {
+        encodeOrdinary(chunk, tokens); // ordinary inputs
+      }
+    }
+  }
+
+  private static List<Integer> toList(TokenIdBuffer tokenIds) {
+    List<Integer> tokens = new ArrayList<>(tokenIds.size());
+    tokenIds.addTo(tokens);
+    return tokens;
   }
 
   private List<String> splitWithSpecial(String text) {
@@ -242,37 +261,54 @@ public class QwenTokenizer implements Tokenizer {
       throw new UnSupportedSpecialTokenMode(
           StringUtils.format("UnSupport allowedSpecial: %s", allowedSpecial));
     }
+    TokenIdBuffer tokens = new TokenIdBuffer();
     if (specialTokensUse.isEmpty()) {
       // use ordinary encode
-      return encodeOrdinary(text);
-    }
-    // 1. process special tokens. split the text with special tokens.
-    // eg: "<|im_start|>system\nYour are a helpful
-    // assistant.<|im_end|>\n<|im_start|>user\nSan
-    // Francisco is a<|im_end|>\n<|im_start|>assistant\n"
-    // will be split to ["<|im_start|>", "system\nYour are a helpful assistant.",
-    // "<|im_end|>", "\n", "<|im_start|>", "user\nSan Francisco is a",
-    // "<|im_end|>", "\n", "<|im_start|>", "assistant\n"]
-    List<String> chunks = splitWithSpecial(text);
-    // 2. process the chunks
-    List<Integer> tokens = new ArrayList<>();
-    for (String chunk : chunks) {
-      if (specialTokensUse.containsKey(chunk)) {
-        tokens.add(specialTokensUse.get(chunk)); // is special token
-      } else {
-        tokens.addAll(encodeOrdinary(chunk)); // ordinary inputs
-      }
+      encodeOrdinary(text, tokens);
+    } else {
+      encodeWithSpecial(text, tokens);
     }
-    return tokens;
+    return toList(tokens);
+  }
+
+  @Override
+  public int countTokens(CharSequence text) {
+    TokenIdBuffer tokens = new TokenIdBuffer();
+    encodeWithSpecial(text.toString(), tokens);
+    return tokens.size();
+  }
+
+  @Override
+  public int encodeInto(CharSequence text, IntBuffer dest) {
+    TokenIdBuffer tokens = new TokenIdBuffer();
+    encodeWithSpecial(text.toString(), tokens);
+    return tokens.putTo(dest);
   }
 
   @Override
   public String decode(List<Integer> tokens) {
     StringBuilder sb = new StringBuilder();
-    for (Integer token : tokens) {
-      byte[] bytes = decodeMap[token];
-      sb.append(new String(bytes, StandardCharsets.UTF_8));
-    }
+    StreamingDecoder decoder = new StreamingDecoder();
+    decoder.decode(tokens, sb);
+    decoder.flush(sb);
     return sb.toString();
   }
+
+  /**
+   * Create a streaming decoder, which decodes tokens one by one and only emits complete characters.
+   *
+   * @return The new decoder.
+   */
+  public StreamingDecoder newStreamingDecoder() {
+    return new StreamingDecoder();
+  }
+
+  static TokenRankTable mergeableRanks() {
+    return Vocabulary.mergeableRanks;
+  }
+
+  /** Get the special token string of id, null if the id is not a special token. */
+  static String specialToken(int id) {
+    return id < SPECIAL_START_ID ? null : specialTokenStrings[id - SPECIAL_START_ID];
+  }
 }
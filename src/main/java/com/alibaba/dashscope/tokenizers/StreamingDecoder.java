@@ -0,0 +1,159 @@
+package com.alibaba.dashscope.tokenizers;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Decode token ids one by one or in batches, such as the tokens of stream output. A multi-byte
+ * character may be split across tokens, the token bytes are kept in a reusable buffer and only the
+ * complete UTF-8 code points are emitted, the incomplete tail waits for the next tokens. Invalid
+ * bytes are decoded as U+FFFD. Not thread safe.
+ */
+public final class StreamingDecoder {
+  private static final int INITIAL_BYTES = 64;
+  private static final int CHAR_CHUNK = 256;
+
+  private final CharsetDecoder utf8 =
+      StandardCharsets.UTF_8
+          .newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  // the undecoded bytes, in write mode.
+  private ByteBuffer bytes = ByteBuffer.allocate(INITIAL_BYTES);
+  private final CharBuffer chars = CharBuffer.allocate(CHAR_CHUNK);
+  private final StringBuilder text = new StringBuilder();
+
+  StreamingDecoder() {}
+
+  /**
+   * Decode a token.
+   *
+   * @param token The token id.
+   * @param out The complete characters are appended to out.
+   * @return The number of characters appended.
+   */
+  public int decode(int token, StringBuilder out) {
+    int length = out.length();
+    append(token, out);
+    drain(out, false);
+    return out.length() - length;
+  }
+
+  /**
+   * Decode a batch of tokens.
+   *
+   * @param tokens The token ids.
+   * @param out The complete characters are appended to out.
+   * @return The number of characters appended.
+   */
+  public int decode(List<Integer> tokens, StringBuilder out) {
+    int length = out.length();
+    for (Integer token : tokens) {
+      append(token, out);
+    }
+    drain(out, false);
+    return out.length() - length;
+  }
+
+  /**
+   * Decode a batch of tokens.
+   *
+   * @param tokens The token ids.
+   * @param offset The start of the batch in tokens.
+   * @param count The number of tokens.
+   * @param out The complete characters are appended to out.
+   * @return The number of characters appended.
+   */
+  public int decode(int[] tokens, int offset, int count, StringBuilder out) {
+    int length = out.length();
+    for (int i = offset, end = offset + count; i < end; ++i) {
+      append(tokens[i], out);
+    }
+    drain(out, false);
+    return out.length() - length;
+  }
+
+  /**
+   * Decode a token.
+   *
+   * @param token The token id.
+   * @return The complete characters, empty if the token ends inside a character.
+   */
+  public String decode(int token) {
+    text.setLength(0);
+    decode(token, text);
+    return text.toString();
+  }
+
+  /** Whether there are bytes of an incomplete character waiting for the next tokens. */
+  public boolean hasPending() {
+    return bytes.position() > 0;
+  }
+
+  /**
+   * End of the tokens, the bytes of incomplete character are decoded as U+FFFD.
+   *
+   * @param out The characters are appended to out.
+   * @return The number of characters appended.
+   */
+  public int flush(StringBuilder out) {
+    int length = out.length();
+    drain(out, true);
+    return out.length() - length;
+  }
+
+  /** Discard the pending bytes, the decoder can be reused. */
+  public void reset() {
+    bytes.clear();
+    utf8.reset();
+  }
+
+  private void append(int token, StringBuilder out) {
+    String special = QwenTokenizer.specialToken(token);
+    if (special != null) {
+      // the special token ends the previous text.
+      drain(out, true);
+      out.append(special);
+      return;
+    }
+    TokenRankTable ranks = QwenTokenizer.mergeableRanks();
+    int length = ranks.length(token);
+    if (bytes.remaining() < length) {
+      ByteBuffer larger =
+          ByteBuffer.allocate(Math.max(bytes.capacity() << 1, bytes.position() + length));
+      bytes.flip();
+      larger.put(bytes);
+      bytes = larger;
+    }
+    int position = bytes.position();
+    bytes.position(position + ranks.copyTo(token, bytes.array(), position));
+  }
+
+  private void drain(StringBuilder out, boolean endOfInput) {
+    bytes.flip();
+    CoderResult result;
+    do {
+      result = utf8.decode(bytes, chars, endOfInput);
+      flushChars(out);
+    } while (result.isOverflow());
+    if (endOfInput) {
+      while (utf8.flush(chars).isOverflow()) {
+        flushChars(out);
+      }
+      flushChars(out);
+      utf8.reset();
+    }
+    bytes.compact();
+  }
+
+  private void flushChars(StringBuilder out) {
+    chars.flip();
+    out.append(chars);
+    chars.clear();
+  }
+}
@@ -0,0 +1,36 @@
+package com.alibaba.dashscope.tokenizers;
+
+import java.util.concurrent.RecursiveAction;
+
+/** Count tokens of a range of texts, split in halves until the range is small. */
+final class TokenCountTask extends RecursiveAction {
+  // texts per leaf task, documents are usually large enough to amortize the task.
+  private static final int THRESHOLD = 16;
+  private final Tokenizer tokenizer;
+  private final CharSequence[] texts;
+  private final int[] counts;
+  private final int from;
+  private final int to;
+
+  TokenCountTask(Tokenizer tokenizer, CharSequence[] texts, int[] counts, int from, int to) {
+    this.tokenizer = tokenizer;
+    this.texts = texts;
+    this.counts = counts;
+    this.from = from;
+    this.to = to;
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= THRESHOLD) {
+      for (int i = from; i < to; ++i) {
+        counts[i] = tokenizer.countTokens(texts[i]);
+      }
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    invokeAll(
+        new TokenCountTask(tokenizer, texts, counts, from, middle),
+        new TokenCountTask(tokenizer, texts, counts, middle, to));
+  }
+}
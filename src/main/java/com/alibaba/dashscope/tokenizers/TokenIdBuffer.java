@@ -0,0 +1,76 @@
+package com.alibaba.dashscope.tokenizers;
+
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/** Growable primitive int buffer of token ids, avoid boxing while encoding. */
+final class TokenIdBuffer {
+  private int[] ids;
+  private int size;
+
+  TokenIdBuffer() {
+    this(16);
+  }
+
+  TokenIdBuffer(int initialCapacity) {
+    ids = new int[Math.max(initialCapacity, 1)];
+  }
+
+  void add(int id) {
+    if (size == ids.length) {
+      ids = Arrays.copyOf(ids, ids.length << 1);
+    }
+    ids[size++] = id;
+  }
+
+  void addAll(int[] values) {
+    if (size + values.length > ids.length) {
+      ids = Arrays.copyOf(ids, Math.max(ids.length << 1, size + values.length));
+    }
+    System.arraycopy(values, 0, ids, size, values.length);
+    size += values.length;
+  }
+
+  int get(int index) {
+    return ids[index];
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  int[] toArray() {
+    return Arrays.copyOf(ids, size);
+  }
+
+  int[] copyRange(int from, int to) {
+    return Arrays.copyOfRange(ids, from, to);
+  }
+
+  /** Append the token ids to a boxed list. */
+  void addTo(List<Integer> tokens) {
+    for (int i = 0; i < size; ++i) {
+      tokens.add(ids[i]);
+    }
+  }
+
+  /**
+   * Put the token ids to dest.
+   *
+   * @return The number of token ids put.
+   * @throws BufferOverflowException Not enough remaining in dest, dest is not changed.
+   */
+  int putTo(IntBuffer dest) {
+    if (dest.remaining() < size) {
+      throw new BufferOverflowException();
+    }
+    dest.put(ids, 0, size);
+    return size;
+  }
+}
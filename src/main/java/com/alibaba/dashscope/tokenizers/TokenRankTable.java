@@ -0,0 +1,274 @@
+package com.alibaba.dashscope.tokenizers;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Map from token bytes to token rank. The bytes of all tokens are kept in a single blob indexed by
+ * rank, and the lookup index is an open addressing table of ranks, so a lookup does not allocate.
+ *
+ * <p>The table can be stored in a compact binary format, the index is precomputed so loading is a
+ * few bulk reads: magic, size, slot count, blob length, offsets[size + 1], slots[slot count], blob.
+ * All ints are big endian.
+ */
+final class TokenRankTable {
+  private static final int MAGIC = 0x51544B31; // "QTK1"
+  private static final int HEADER_BYTES = 16;
+  private static final int EMPTY = -1;
+  // token bytes of all ranks, rank i is blob[offsets[i], offsets[i + 1])
+  private final byte[] blob;
+  private final int[] offsets;
+  // open addressing slots, store the rank or EMPTY, linear probing.
+  private final int[] slots;
+  private final int mask;
+
+  private TokenRankTable(byte[] blob, int[] offsets, int[] slots) {
+    this.blob = blob;
+    this.offsets = offsets;
+    this.slots = slots;
+    this.mask = slots.length - 1;
+  }
+
+  /**
+   * Build the table and its index.
+   *
+   * @param blob The token bytes in rank order.
+   * @param offsets The start of each rank in blob, offsets[size] is the blob length.
+   * @return The table.
+   */
+  static TokenRankTable build(byte[] blob, int[] offsets) {
+    int size = offsets.length - 1;
+    // keep the load factor under 0.75.
+    int capacity = Integer.highestOneBit(Math.max(size + size / 3, 1)) << 1;
+    int[] slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+    int mask = capacity - 1;
+    for (int rank = 0; rank < size; ++rank) {
+      int start = offsets[rank];
+      int slot = hash(blob, start, offsets[rank + 1] - start) & mask;
+      while (slots[slot] != EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      slots[slot] = rank;
+    }
+    return new TokenRankTable(blob, offsets, slots);
+  }
+
+  /**
+   * Parse a tiktoken vocabulary, each line is the base64 token and its rank, the ranks must be
+   * continuous from 0. ref: https://github.com/openai/tiktoken/blob/main/tiktoken/load.py#L143
+   *
+   * @param inputStream The tiktoken file content.
+   * @return The table.
+   * @throws IOException Read failed or the content is invalid.
+   */
+  static TokenRankTable readTiktoken(InputStream inputStream) throws IOException {
+    BufferedReader reader =
+        new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    byte[] blob = new byte[1 << 20];
+    int[] offsets = new int[1 << 16];
+    int size = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      // 8J+Vkw== 149934 split
+      int separator = line.indexOf(' ');
+      if (separator < 0) {
+        throw new IOException("Invalid tiktoken line: " + line);
+      }
+      byte[] token = Base64.getDecoder().decode(line.substring(0, separator));
+      int rank = Integer.parseInt(line.substring(separator + 1).trim());
+      if (rank != size) {
+        throw new IOException("Invalid tiktoken rank " + rank + ", expect " + size);
+      }
+      if (size + 1 == offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length << 1);
+      }
+      int start = offsets[size];
+      if (start + token.length > blob.length) {
+        blob = Arrays.copyOf(blob, Math.max(blob.length << 1, start + token.length));
+      }
+      System.arraycopy(token, 0, blob, start, token.length);
+      offsets[++size] = start + token.length;
+    }
+    return build(Arrays.copyOf(blob, offsets[size]), Arrays.copyOf(offsets, size + 1));
+  }
+
+  /**
+   * Read the table in binary format.
+   *
+   * @param inputStream The binary content.
+   * @return The table.
+   * @throws IOException Read failed or the content is invalid.
+   */
+  static TokenRankTable read(InputStream inputStream) throws IOException {
+    DataInputStream in = new DataInputStream(inputStream);
+    byte[] header = new byte[HEADER_BYTES];
+    in.readFully(header);
+    ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+    int magic = headerBuffer.getInt();
+    int size = headerBuffer.getInt();
+    int slotCount = headerBuffer.getInt();
+    int blobLength = headerBuffer.getInt();
+    if (magic != MAGIC
+        || size < 0
+        || slotCount <= size
+        || Integer.bitCount(slotCount) != 1
+        || blobLength < 0) {
+      throw new IOException("Invalid token rank table header");
+    }
+    byte[] index = new byte[(size + 1 + slotCount) * 4];
+    in.readFully(index);
+    int[] offsets = new int[size + 1];
+    int[] slots = new int[slotCount];
+    ByteBuffer indexBuffer = ByteBuffer.wrap(index);
+    indexBuffer.asIntBuffer().get(offsets).get(slots);
+    byte[] blob = new byte[blobLength];
+    in.readFully(blob);
+    if (offsets[size] != blobLength) {
+      throw new IOException("Invalid token rank table offsets");
+    }
+    return new TokenRankTable(blob, offsets, slots);
+  }
+
+  /**
+   * Write the table in binary format.
+   *
+   * @param outputStream The output.
+   * @throws IOException Write failed.
+   */
+  void write(OutputStream outputStream) throws IOException {
+    DataOutputStream out = new DataOutputStream(outputStream);
+    out.writeInt(MAGIC);
+    out.writeInt(size());
+    out.writeInt(slots.length);
+    out.writeInt(blob.length);
+    ByteBuffer index = ByteBuffer.allocate((offsets.length + slots.length) * 4);
+    index.asIntBuffer().put(offsets).put(slots);
+    out.write(index.array());
+    out.write(blob);
+    out.flush();
+  }
+
+  /**
+   * Generate the binary vocabulary from a tiktoken vocabulary, e.g. regenerate the shipped one:
+   *
+   * <pre>
+   * java -cp target/classes com.alibaba.dashscope.tokenizers.TokenRankTable \
+   *     src/test/resources/qwen.tiktoken src/main/resources/qwen.tiktoken.bin
+   * </pre>
+   *
+   * @param args The tiktoken file and the binary file.
+   * @throws IOException Read or write failed.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: TokenRankTable <tiktoken file> <binary file>");
+      System.exit(2);
+    }
+    TokenRankTable table;
+    try (InputStream in = new FileInputStream(args[0])) {
+      table = readTiktoken(in);
+    }
+    try (OutputStream out = new FileOutputStream(args[1])) {
+      table.write(out);
+    }
+    System.out.println("Wrote " + table.size() + " tokens to " + args[1]);
+  }
+
+  /** The number of tokens in the table. */
+  int size() {
+    return offsets.length - 1;
+  }
+
+  /**
+   * Get the rank of the bytes.
+   *
+   * @param src The source bytes.
+   * @param offset The start of the token in src.
+   * @param length The token length.
+   * @return The rank, or -1 if the bytes is not a token.
+   */
+  int rank(byte[] src, int offset, int length) {
+    int slot = hash(src, offset, length) & mask;
+    int rank;
+    while ((rank = slots[slot]) != EMPTY) {
+      if (equalsToken(rank, src, offset, length)) {
+        return rank;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return EMPTY;
+  }
+
+  /** The byte length of the token. */
+  int length(int rank) {
+    return offsets[rank + 1] - offsets[rank];
+  }
+
+  /** Copy the token bytes of rank to dest, return the number of bytes copied. */
+  int copyTo(int rank, byte[] dest, int destOffset) {
+    int length = length(rank);
+    System.arraycopy(blob, offsets[rank], dest, destOffset, length);
+    return length;
+  }
+
+  /** Get a copy of the token bytes of rank. */
+  byte[] bytes(int rank) {
+    return Arrays.copyOfRange(blob, offsets[rank], offsets[rank + 1]);
+  }
+
+  /** Decode the token bytes of rank as UTF-8. */
+  String decode(int rank) {
+    return new String(blob, offsets[rank], length(rank), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other == null || getClass() != other.getClass()) {
+      return false;
+    }
+    TokenRankTable table = (TokenRankTable) other;
+    return Arrays.equals(offsets, table.offsets) && Arrays.equals(blob, table.blob);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * Arrays.hashCode(offsets) + Arrays.hashCode(blob);
+  }
+
+  private boolean equalsToken(int rank, byte[] src, int offset, int length) {
+    int start = offsets[rank];
+    if (offsets[rank + 1] - start != length) {
+      return false;
+    }
+    for (int i = 0; i < length; ++i) {
+      if (blob[start + i] != src[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int hash(byte[] src, int offset, int length) {
+    // FNV-1a, then mix the high bits down for the power of two table.
+    int h = 0x811c9dc5;
+    for (int i = offset, end = offset + length; i < end; ++i) {
+      h ^= src[i];
+      h *= 0x01000193;
+    }
+    return h ^ (h >>> 16);
+  }
+}
@@ -1,8 +1,12 @@
 package com.alibaba.dashscope.tokenizers;
 
+import com.alibaba.dashscope.common.Message;
 import com.alibaba.dashscope.exception.NoSpecialTokenExists;
 import com.alibaba.dashscope.exception.UnSupportedSpecialTokenMode;
+import java.nio.BufferOverflowException;
+import java.nio.IntBuffer;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public interface Tokenizer {
   /**
@@ -42,4 +46,95 @@ public interface Tokenizer {
    * @return The token ids corresponding string.
    */
   String decode(List<Integer> ids);
+
+  /**
+   * Count the tokens of the text, the same as the size of `encode(text, "all")`, without building
+   * the token list.
+   *
+   * @param text The input.
+   * @return The number of tokens.
+   */
+  default int countTokens(CharSequence text) {
+    try {
+      return encode(text.toString(), "all").size();
+    } catch (NoSpecialTokenExists | UnSupportedSpecialTokenMode e) {
+      // never happen with "all".
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Count the tokens of the messages rendered by the chat template, such as
+   * "&lt;|im_start|&gt;user\nhello&lt;|im_end|&gt;\n", including the assistant generation prompt
+   * "&lt;|im_start|&gt;assistant\n". Only the text content of the messages is counted.
+   *
+   * @param messages The conversation messages.
+   * @return The number of prompt tokens.
+   */
+  default int countTokens(List<Message> messages) {
+    return countTokens(ChatTemplate.render(messages));
+  }
+
+  /**
+   * Count the tokens of each text in parallel on the common ForkJoin pool, for large document sets.
+   *
+   * @param texts The inputs.
+   * @return The number of tokens of each text, in the same order.
+   */
+  default int[] countTokensParallel(List<? extends CharSequence> texts) {
+    return countTokensParallel(texts, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Count the tokens of each text in parallel on the pool, for large document sets.
+   *
+   * @param texts The inputs.
+   * @param pool The ForkJoin pool to run on.
+   * @return The number of tokens of each text, in the same order.
+   */
+  default int[] countTokensParallel(List<? extends CharSequence> texts, ForkJoinPool pool) {
+    CharSequence[] inputs = texts.toArray(new CharSequence[0]);
+    int[] counts = new int[inputs.length];
+    pool.invoke(new TokenCountTask(this, inputs, counts, 0, inputs.length));
+    return counts;
+  }
+
+  /**
+   * Encode the text the same as `encode(text, "all")`, and put the token ids to dest from its
+   * current position, no boxed list is returned.
+   *
+   * @param text The input.
+   * @param dest The output buffer.
+   * @return The number of token ids put.
+   * @throws BufferOverflowException The remaining of dest is less than the number of tokens, dest
+   *     is not changed.
+   */
+  default int encodeInto(CharSequence text, IntBuffer dest) {
+    List<Integer> ids;
+    try {
+      ids = encode(text.toString(), "all");
+    } catch (NoSpecialTokenExists | UnSupportedSpecialTokenMode e) {
+      // never happen with "all".
+      throw new IllegalStateException(e);
+    }
+    if (dest.remaining() < ids.size()) {
+      throw new BufferOverflowException();
+    }
+    for (Integer id : ids) {
+      dest.put(id);
+    }
+    return ids.size();
+  }
+
+  /**
+   * Encode the text the same as `encode(text, "all")`, and put the token ids to dest from index 0.
+   *
+   * @param text The input.
+   * @param dest The output array.
+   * @return The number of token ids put.
+   * @throws BufferOverflowException The length of dest is less than the number of tokens.
+   */
+  default int encodeInto(CharSequence text, int[] dest) {
+    return encodeInto(text, IntBuffer.wrap(dest));
+  }
 }
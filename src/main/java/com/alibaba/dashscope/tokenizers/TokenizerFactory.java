@@ -1,7 +1,38 @@
 package com.alibaba.dashscope.tokenizers;
 
+import java.util.concurrent.CompletableFuture;
+
 public final class TokenizerFactory {
   public static Tokenizer qwen() {
     return new QwenTokenizer();
   }
+
+  /**
+   * Create a qwen incremental encoder, for counting tokens of streaming output.
+   *
+   * @return The new encoder.
+   */
+  public static IncrementalEncoder qwenIncremental() {
+    return new QwenTokenizer().newIncrementalEncoder();
+  }
+
+  /**
+   * Create a qwen streaming decoder, for decoding tokens of streaming output.
+   *
+   * @return The new decoder.
+   */
+  public static StreamingDecoder qwenStreamingDecoder() {
+    return new QwenTokenizer().newStreamingDecoder();
+  }
+
+  /**
+   * Optional, load the qwen vocabulary in a background daemon thread, such as at startup of a
+   * serverless function, so the first encode or decode does not pay the loading latency. Without it
+   * the vocabulary is loaded on first use.
+   *
+   * @return The future completed when the vocabulary is loaded.
+   */
+  public static CompletableFuture<Void> preloadQwen() {
+    return QwenTokenizer.preload();
+  }
 }
@@ -0,0 +1,32 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public final class FutureUtils {
+  private FutureUtils() {}
+
+  /**
+   * Map the result of the future, cancelling the mapped future cancels the source, unlike
+   * CompletableFuture.thenApply.
+   *
+   * @param source The source future.
+   * @param mapper The result mapper.
+   * @param <T> The source result type.
+   * @param <R> The mapped result type.
+   * @return The mapped future.
+   */
+  public static <T, R> CompletableFuture<R> map(
+      CompletableFuture<T> source, Function<? super T, ? extends R> mapper) {
+    CompletableFuture<R> mapped = source.thenApply(mapper);
+    mapped.whenComplete(
+        (result, error) -> {
+          if (mapped.isCancelled()) {
+            source.cancel(false);
+          }
+        });
+    return mapped;
+  }
+}
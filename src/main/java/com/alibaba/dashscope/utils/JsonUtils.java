@@ -30,10 +30,12 @@ import com.google.gson.ToNumberPolicy;
 import com.google.gson.internal.Streams;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import com.google.gson.stream.MalformedJsonException;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
@@ -60,6 +62,34 @@ public class JsonUtils {
     return gson.toJson(obj);
   }
 
+  /**
+   * Write the json tree to writer without building the json string.
+   *
+   * @param element The json tree.
+   * @param writer The output, flushed but not closed.
+   * @param serializeNulls Keep the explicit json null members, the same as {@code
+   *     element.toString()}, otherwise the same as {@link #toJson(Object)}.
+   * @throws IOException Write failed.
+   */
+  public static void writeJson(JsonElement element, Writer writer, boolean serializeNulls)
+      throws IOException {
+    JsonWriter jsonWriter = new JsonWriter(writer);
+    if (serializeNulls) {
+      jsonWriter.setLenient(true);
+      Streams.write(element, jsonWriter);
+    } else {
+      try {
+        gson.toJson(element, jsonWriter);
+      } catch (JsonIOException e) {
+        if (e.getCause() instanceof IOException) {
+          throw (IOException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    jsonWriter.flush();
+  }
+
   public static <T> T fromJson(String obj, Class<T> clazz) {
     return gson.fromJson(obj, clazz);
   }
@@ -61,7 +61,7 @@ public final class OSSUtils {
   public static UploadResult uploadWithCertificate(
       String model, String filePath, String apiKey, OSSUploadCertificate certificate)
       throws NoApiKeyException {
-    OkHttpClient client = OkHttpClientFactory.getOkHttpClient();
+    OkHttpClient client = OkHttpClientFactory.getOkHttpClient(OkHttpClientFactory.UPLOAD_PROFILE);
     OSSUploadCertificate cert = certificate;
 
     // Get certificate if not provided
@@ -123,7 +123,7 @@ public final class OSSUtils {
 
   public static DashScopeResult get_upload_certificate(String model, String apiKey)
       throws NoApiKeyException {
-    OkHttpClient client = OkHttpClientFactory.getOkHttpClient();
+    OkHttpClient client = OkHttpClientFactory.getOkHttpClient(OkHttpClientFactory.UPLOAD_PROFILE);
     String url = Constants.baseHttpApiUrl;
     if (url.endsWith("/")) {
       url += "uploads";
@@ -0,0 +1,143 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The threads of the blocking SDK work, e.g. the audio senders and the http dispatcher. They are
+ * virtual threads when ConnectionConfigurations.virtualThreadsEnabled is set and the jvm is Java 21
+ * or later, otherwise daemon platform threads.
+ */
+@Slf4j
+public final class SdkThreads {
+  private static final ScheduledExecutorService TIMER =
+      Executors.newSingleThreadScheduledExecutor(newThreadFactory("dashscope-timer-", false));
+  private static final AtomicBoolean UNSUPPORTED_WARNED = new AtomicBoolean(false);
+
+  private SdkThreads() {}
+
+  /**
+   * Whether the running jvm supports virtual threads.
+   *
+   * @return true on Java 21 or later.
+   */
+  public static boolean isVirtualThreadsSupported() {
+    return VirtualThreads.isSupported();
+  }
+
+  /**
+   * Whether the SDK threads are virtual, by the global connection configurations.
+   *
+   * @return true if virtual threads are enabled and supported.
+   */
+  public static boolean isVirtualThreadsEnabled() {
+    ConnectionConfigurations configurations = Constants.connectionConfigurations;
+    if (configurations == null) {
+      configurations = ConnectionConfigurations.builder().build();
+    }
+    return isVirtualThreadsEnabled(configurations);
+  }
+
+  /**
+   * Whether the SDK threads are virtual, by the connection configurations.
+   *
+   * @param configurations The connection configurations.
+   * @return true if virtual threads are enabled and supported.
+   */
+  public static boolean isVirtualThreadsEnabled(ConnectionConfigurations configurations) {
+    if (!configurations.getVirtualThreadsEnabled()) {
+      return false;
+    }
+    if (isVirtualThreadsSupported()) {
+      return true;
+    }
+    if (UNSUPPORTED_WARNED.compareAndSet(false, true)) {
+      log.warn(
+          "virtualThreadsEnabled is set, but virtual threads are not supported on java {}, they"
+              + " require Java 21 and a jar with the Java 21 layer. Platform threads are used.",
+          System.getProperty("java.version"));
+    }
+    return false;
+  }
+
+  /**
+   * Create a thread factory of the SDK threads.
+   *
+   * @param prefix The thread name prefix, a sequence number is appended.
+   * @param virtual Whether to create virtual threads, ignored if not supported.
+   * @return The thread factory.
+   */
+  public static ThreadFactory newThreadFactory(String prefix, boolean virtual) {
+    return newThreadFactory(prefix, virtual, true);
+  }
+
+  private static ThreadFactory newThreadFactory(String prefix, boolean virtual, boolean daemon) {
+    if (virtual && isVirtualThreadsSupported()) {
+      return VirtualThreads.newThreadFactory(prefix);
+    }
+    AtomicInteger threadNum = new AtomicInteger(0);
+    return r -> {
+      Thread thread =
+          new Thread(r, prefix + threadNum.getAndUpdate(n -> n == Integer.MAX_VALUE ? 0 : n + 1));
+      thread.setDaemon(daemon);
+      return thread;
+    };
+  }
+
+  /**
+   * Create an executor of the blocking SDK work. A virtual thread executor starts a thread per task
+   * without limit, otherwise the executor has up to maxThreads platform threads and rejects the
+   * tasks over it.
+   *
+   * @param prefix The thread name prefix.
+   * @param maxThreads The maximum platform threads.
+   * @param virtual Whether to use virtual threads, ignored if not supported.
+   * @return The executor.
+   */
+  public static ExecutorService newExecutor(String prefix, int maxThreads, boolean virtual) {
+    ThreadFactory threadFactory = newThreadFactory(prefix, virtual);
+    if (virtual && isVirtualThreadsSupported()) {
+      return VirtualThreads.newThreadPerTaskExecutor(threadFactory);
+    }
+    return new ThreadPoolExecutor(
+        1, maxThreads, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), threadFactory);
+  }
+
+  /**
+   * Start a thread of the blocking SDK work, e.g. reading an audio file. A platform thread is not a
+   * daemon, like the threads the SDK started before, a virtual thread is always a daemon.
+   *
+   * @param name The thread name.
+   * @param task The task.
+   * @return The started thread.
+   */
+  public static Thread start(String name, Runnable task) {
+    Thread thread = newThreadFactory(name + "-", isVirtualThreadsEnabled(), false).newThread(task);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Run a task after the delay on the shared SDK timer, e.g. the idle eviction of the websockets.
+   * The timer has one thread, the task should be short and must not block.
+   *
+   * @param task The task.
+   * @param delayMillis The delay in milliseconds.
+   * @return The future to cancel the task.
+   */
+  public static ScheduledFuture<?> schedule(Runnable task, long delayMillis) {
+    return TIMER.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,26 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The virtual threads of the running jvm. This is the Java 8 layer of the multi-release jar, it has
+ * no virtual threads, the Java 21 layer is in src/main/java21.
+ */
+final class VirtualThreads {
+  private VirtualThreads() {}
+
+  static boolean isSupported() {
+    return false;
+  }
+
+  static ThreadFactory newThreadFactory(String prefix) {
+    throw new UnsupportedOperationException("Virtual threads require Java 21");
+  }
+
+  static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+    throw new UnsupportedOperationException("Virtual threads require Java 21");
+  }
+}
@@ -0,0 +1,27 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The virtual threads of the running jvm. This is the Java 21 layer of the multi-release jar, it
+ * replaces the Java 8 layer when the jar runs on Java 21 or later.
+ */
+final class VirtualThreads {
+  private VirtualThreads() {}
+
+  static boolean isSupported() {
+    return true;
+  }
+
+  static ThreadFactory newThreadFactory(String prefix) {
+    return Thread.ofVirtual().name(prefix, 0).factory();
+  }
+
+  static ExecutorService newThreadPerTaskExecutor(ThreadFactory threadFactory) {
+    return Executors.newThreadPerTaskExecutor(threadFactory);
+  }
+}
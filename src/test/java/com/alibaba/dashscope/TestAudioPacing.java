@@ -0,0 +1,88 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.audio.protocol.AudioPacing;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestAudioPacing {
+  @TempDir Path tempDir;
+
+  private File writeAudio(byte[] audio) throws IOException {
+    File file = tempDir.resolve("audio.pcm").toFile();
+    Files.write(file.toPath(), audio);
+    return file;
+  }
+
+  private static byte[] concat(List<ByteBuffer> chunks) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (ByteBuffer chunk : chunks) {
+      byte[] bytes = new byte[chunk.remaining()];
+      chunk.get(bytes);
+      out.write(bytes, 0, bytes.length);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testRealTime() throws IOException {
+    // 1s of 16kHz 16bit audio in 100ms chunks, sent at 10 times the real time.
+    byte[] audio = new byte[32000];
+    new Random(1).nextBytes(audio);
+    File file = writeAudio(audio);
+    long start = System.nanoTime();
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    List<ByteBuffer> chunks =
+        AudioPacing.realTime(10)
+            .read(file, "pcm", 16000)
+            .doOnNext(chunk -> threads.add(Thread.currentThread().getName()))
+            .toList()
+            .blockingGet();
+    long elapsedMillis = (System.nanoTime() - start) / 1000000;
+    assertEquals(10, chunks.size());
+    assertEquals(3200, chunks.get(0).remaining());
+    assertArrayEquals(audio, concat(chunks));
+    assertTrue(elapsedMillis >= 80, "elapsed " + elapsedMillis);
+    // the chunks are read and emitted on the io scheduler, not on the SDK timer.
+    for (String thread : threads) {
+      assertTrue(thread.startsWith("RxCachedThreadScheduler"), thread);
+    }
+  }
+
+  @Test
+  public void testAsFastAsPossible() throws IOException {
+    byte[] audio = new byte[100000];
+    new Random(2).nextBytes(audio);
+    File file = writeAudio(audio);
+    List<ByteBuffer> chunks =
+        AudioPacing.asFastAsPossible().read(file, "wav", 8000).toList().blockingGet();
+    assertEquals(63, chunks.size());
+    assertArrayEquals(audio, concat(chunks));
+  }
+
+  @Test
+  public void testUnknownFormat() throws IOException {
+    byte[] audio = new byte[40000];
+    File file = writeAudio(audio);
+    List<ByteBuffer> chunks =
+        AudioPacing.getDefault().read(file, "opus", 16000).toList().blockingGet();
+    assertEquals(3, chunks.size());
+    assertEquals(4096 * 4, chunks.get(0).remaining());
+    assertEquals(-1, AudioPacing.getBytesPerSecond("opus", 16000));
+  }
+}
@@ -0,0 +1,203 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.audio.protocol.AudioRingBuffer;
+import com.alibaba.dashscope.audio.protocol.AudioSink;
+import com.alibaba.dashscope.audio.tts.SpeechSynthesisResult;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisAudioFormat;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisParam;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesizer;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestAudioSink {
+  private static final byte[] FRAME = new byte[] {0x01, 0x02, 0x03};
+  private MockWebServer mockServer;
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    mockServer.enqueue(upgrade());
+    Constants.baseWebsocketApiUrl = String.format("http://127.0.0.1:%s", mockServer.getPort());
+  }
+
+  private static MockResponse upgrade() {
+    return new MockResponse()
+        .withWebSocketUpgrade(
+            new WebSocketListener() {
+              private String taskId;
+
+              @Override
+              public void onOpen(WebSocket webSocket, Response response) {}
+
+              @Override
+              public void onMessage(WebSocket webSocket, String text) {
+                if (taskId == null) {
+                  taskId =
+                      JsonUtils.parse(text).getAsJsonObject("header").get("task_id").getAsString();
+                }
+                if (text.contains("run-task")) {
+                  webSocket.send(
+                      "{'header': {'task_id': '"
+                          + taskId
+                          + "', 'event': 'task-started', 'attributes': {}}, 'payload': {}}");
+                } else if (text.contains("continue-task")) {
+                  webSocket.send(ByteString.of(FRAME));
+                  webSocket.send(ByteString.of(FRAME));
+                } else if (text.contains("finish-task")) {
+                  webSocket.send(
+                      "{'header': {'task_id': '"
+                          + taskId
+                          + "', 'event': 'task-finished', 'attributes': {}}, 'payload': {}}");
+                }
+              }
+
+              @Override
+              public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(code, null);
+              }
+            });
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  private static SpeechSynthesisParam getParam() {
+    return SpeechSynthesisParam.builder()
+        .apiKey("1234")
+        .model("cosyvoice-v1")
+        .voice("longxiaochun")
+        .format(SpeechSynthesisAudioFormat.PCM_16000HZ_MONO_16BIT)
+        .build();
+  }
+
+  @Test
+  public void testChannelSinkWithAccumulation() {
+    ByteArrayOutputStream written = new ByteArrayOutputStream();
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(getParam(), null);
+    synthesizer.setAudioSink(AudioSink.of(Channels.newChannel(written)));
+
+    ByteBuffer audio = synthesizer.call("hello", 5000);
+
+    byte[] expected = new byte[] {0x01, 0x02, 0x03, 0x01, 0x02, 0x03};
+    assertArrayEquals(expected, written.toByteArray());
+    assertEquals(expected.length, audio.remaining());
+    assertArrayEquals(expected, audio.array());
+  }
+
+  @Test
+  public void testRingBufferSinkWithoutAccumulation() {
+    AudioRingBuffer ring = new AudioRingBuffer(1024);
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(getParam(), null);
+    synthesizer.setAudioSink(ring);
+    synthesizer.setAccumulateAudio(false);
+
+    assertNull(synthesizer.call("hello", 5000));
+    assertNull(synthesizer.getAudioData());
+
+    ByteBuffer played = ByteBuffer.allocate(16);
+    assertEquals(6, ring.read(played));
+    played.flip();
+    assertEquals(ByteBuffer.wrap(new byte[] {0x01, 0x02, 0x03, 0x01, 0x02, 0x03}), played);
+    assertEquals(0, ring.available());
+  }
+
+  @Test
+  public void testSinkError() throws InterruptedException {
+    // the first write fails the task, the second frame is dropped.
+    AtomicInteger writes = new AtomicInteger();
+    AudioSink failing =
+        frame -> {
+          writes.incrementAndGet();
+          throw new IOException("disk full");
+        };
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(getParam(), null);
+    synthesizer.setAudioSink(failing);
+    ApiException error = assertThrows(ApiException.class, () -> synthesizer.call("hello", 5000));
+    assertTrue(error.getCause() instanceof IOException, String.valueOf(error.getCause()));
+    assertEquals(1, writes.get());
+
+    // with a callback, the error is reported once and the failed frame is not an event.
+    AtomicInteger events = new AtomicInteger();
+    AtomicInteger errors = new AtomicInteger();
+    AtomicInteger completes = new AtomicInteger();
+    CountDownLatch latch = new CountDownLatch(1);
+    mockServer.enqueue(upgrade());
+    SpeechSynthesizer withCallback =
+        new SpeechSynthesizer(
+            getParam(),
+            new ResultCallback<SpeechSynthesisResult>() {
+              @Override
+              public void onEvent(SpeechSynthesisResult message) {
+                events.incrementAndGet();
+              }
+
+              @Override
+              public void onComplete() {
+                completes.incrementAndGet();
+              }
+
+              @Override
+              public void onError(Exception e) {
+                errors.incrementAndGet();
+                latch.countDown();
+              }
+            });
+    withCallback.setAudioSink(failing);
+    withCallback.call("hello");
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    Thread.sleep(300);
+    assertEquals(1, errors.get());
+    assertEquals(0, events.get());
+    assertEquals(0, completes.get());
+    assertEquals(2, writes.get());
+  }
+
+  @Test
+  public void testRingBufferOverwritesTheOldest() {
+    AudioRingBuffer ring = new AudioRingBuffer(4);
+    ring.write(ByteBuffer.wrap(new byte[] {1, 2, 3}).asReadOnlyBuffer());
+    ring.write(ByteBuffer.wrap(new byte[] {4, 5, 6}).asReadOnlyBuffer());
+    assertEquals(4, ring.available());
+    assertEquals(2, ring.getDroppedBytes());
+
+    ByteBuffer played = ByteBuffer.allocate(4);
+    assertEquals(4, ring.read(played));
+    assertArrayEquals(new byte[] {3, 4, 5, 6}, played.array());
+
+    ring.write(ByteBuffer.wrap(new byte[] {7, 8, 9, 10, 11, 12}).asReadOnlyBuffer());
+    assertEquals(4, ring.available());
+    assertEquals(4, ring.getDroppedBytes());
+  }
+}
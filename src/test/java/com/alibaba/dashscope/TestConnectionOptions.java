@@ -5,18 +5,48 @@ package com.alibaba.dashscope;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisAudioFormat;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisParam;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesizer;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.okhttp.ConnectionPoolStats;
+import com.alibaba.dashscope.protocol.okhttp.ConnectionWarmer;
+import com.alibaba.dashscope.protocol.okhttp.OkHttpClientFactory;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import okhttp3.Authenticator;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.Credentials;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.Route;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.QueueDispatcher;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.ByteString;
 import org.junit.jupiter.api.Test;
 import org.junitpioneer.jupiter.SetEnvironmentVariable;
 
@@ -137,4 +167,250 @@ public class TestConnectionOptions {
         ConnectionConfigurations.builder().proxyAuthenticator(proxyAuthenticator).build();
     assertNotNull(connectionOptions.getProxyAuthenticator());
   }
+
+  @Test
+  @SetEnvironmentVariable(key = "DASHSCOPE_HTTP2_ENABLED", value = "true")
+  @SetEnvironmentVariable(key = "DASHSCOPE_MAXIMUM_STREAMS_PER_HOST", value = "300")
+  public void testHttp2WithEnv() {
+    ConnectionConfigurations configurations = ConnectionConfigurations.builder().build();
+    assertTrue(configurations.getHttp2Enabled());
+    assertFalse(configurations.getHttp2PriorKnowledge());
+    assertEquals(configurations.getMaximumStreamsPerHost(), 300);
+    OkHttpClient client = OkHttpClientFactory.newOkHttpClient(configurations);
+    assertEquals(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1), client.protocols());
+    assertEquals(300, client.dispatcher().getMaxRequestsPerHost());
+    assertEquals(300, client.dispatcher().getMaxRequests());
+  }
+
+  @Test
+  public void testDefaultHttp1() {
+    ConnectionConfigurations configurations = ConnectionConfigurations.builder().build();
+    assertFalse(configurations.isHttp2());
+    OkHttpClient client = OkHttpClientFactory.newOkHttpClient(configurations);
+    assertEquals(Collections.singletonList(Protocol.HTTP_1_1), client.protocols());
+    assertEquals(32, client.dispatcher().getMaxRequestsPerHost());
+  }
+
+  @Test
+  public void testHttp2PriorKnowledgeSharesConnection() throws IOException, InterruptedException {
+    MockWebServer server = new MockWebServer();
+    server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+    int requests = 8;
+    for (int i = 0; i < requests; ++i) {
+      server.enqueue(new MockResponse().setBody("{}"));
+    }
+    server.start();
+    try {
+      OkHttpClient client =
+          OkHttpClientFactory.newOkHttpClient(
+              ConnectionConfigurations.builder().http2PriorKnowledge(true).build());
+      CountDownLatch latch = new CountDownLatch(requests);
+      List<Protocol> protocols = Collections.synchronizedList(new ArrayList<>());
+      for (int i = 0; i < requests; ++i) {
+        client
+            .newCall(new Request.Builder().url(server.url("/api/v1/test")).build())
+            .enqueue(
+                new Callback() {
+                  @Override
+                  public void onFailure(Call call, IOException e) {
+                    latch.countDown();
+                  }
+
+                  @Override
+                  public void onResponse(Call call, Response response) {
+                    protocols.add(response.protocol());
+                    response.close();
+                    latch.countDown();
+                  }
+                });
+      }
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      assertEquals(requests, protocols.size());
+      for (Protocol protocol : protocols) {
+        assertEquals(Protocol.H2_PRIOR_KNOWLEDGE, protocol);
+      }
+      // the streams are multiplexed, not one connection per request.
+      assertTrue(client.connectionPool().connectionCount() < requests);
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void testHttp2FallbackToHttp1() throws IOException {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().setBody("{}"));
+    server.start();
+    try {
+      OkHttpClient client =
+          OkHttpClientFactory.newOkHttpClient(
+              ConnectionConfigurations.builder().http2Enabled(true).build());
+      try (Response response =
+          client.newCall(new Request.Builder().url(server.url("/api/v1/test")).build()).execute()) {
+        assertEquals(Protocol.HTTP_1_1, response.protocol());
+        assertEquals("{}", response.body().string());
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void testPrewarmAndKeepAlive() throws Exception {
+    MockWebServer server = new MockWebServer();
+    // respond 404 without queued responses, it is fine for warming.
+    QueueDispatcher dispatcher = new QueueDispatcher();
+    dispatcher.setFailFast(true);
+    server.setDispatcher(dispatcher);
+    server.start();
+    try {
+      OkHttpClient client =
+          OkHttpClientFactory.newOkHttpClient(ConnectionConfigurations.builder().build());
+      String url = server.url("/api/v1/").toString();
+      ConnectionWarmer warmer = new ConnectionWarmer(client, url, 4);
+      assertEquals(4, warmer.warm().get(10, TimeUnit.SECONDS));
+      assertEquals("HEAD", server.takeRequest().getMethod());
+      ConnectionPoolStats stats = OkHttpClientFactory.getConnectionPoolStats(client);
+      assertTrue(stats.getConnectionCount() >= 1);
+      assertEquals(stats.getConnectionCount(), stats.getIdleConnectionCount());
+      assertEquals(0, stats.getQueuedCallsCount());
+      assertEquals(32, stats.getMaxRequestsPerHost());
+
+      warmer.start(Duration.ofMillis(50));
+      try {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (server.getRequestCount() < 12 && System.currentTimeMillis() < deadline) {
+          Thread.sleep(10);
+        }
+        assertTrue(server.getRequestCount() >= 12);
+      } finally {
+        warmer.close();
+      }
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void testKeepAliveCloseWhileHostHangs() throws Exception {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+    server.start();
+    try {
+      OkHttpClient client =
+          OkHttpClientFactory.newOkHttpClient(
+              ConnectionConfigurations.builder().connectTimeout(Duration.ofMillis(200)).build());
+      ConnectionWarmer warmer =
+          new ConnectionWarmer(client, server.url("/api/v1/").toString(), 1)
+              .start(Duration.ofMillis(50));
+      // the hanging round is waited up to the connect timeout, then the next round is sent.
+      assertNotNull(server.takeRequest(10, TimeUnit.SECONDS));
+      assertNotNull(server.takeRequest(10, TimeUnit.SECONDS));
+      warmer.close();
+      Thread.sleep(100);
+      int requests = server.getRequestCount();
+      Thread.sleep(500);
+      assertEquals(requests, server.getRequestCount());
+      client.dispatcher().cancelAll();
+    } finally {
+      server.shutdown();
+    }
+  }
+
+  @Test
+  public void testClientProfile() {
+    OkHttpClient bulk =
+        OkHttpClientFactory.registerClientProfile(
+            "bulk",
+            ConnectionConfigurations.builder()
+                .maximumAsyncRequestsPerHost(2)
+                .connectionPoolSize(4)
+                .readTimeout(Duration.ofSeconds(600))
+                .build());
+    try {
+      assertSame(bulk, OkHttpClientFactory.getOkHttpClient("bulk"));
+      assertEquals(2, bulk.dispatcher().getMaxRequestsPerHost());
+      assertEquals(600000, bulk.readTimeoutMillis());
+      OkHttpClient client =
+          OkHttpClientFactory.getNewOkHttpClient(
+              ConnectionOptions.builder()
+                  .clientProfile("bulk")
+                  .connectTimeout(Duration.ofSeconds(5))
+                  .build());
+      // the bulkhead is shared by the clients select the profile.
+      assertSame(bulk.dispatcher(), client.dispatcher());
+      assertSame(bulk.connectionPool(), client.connectionPool());
+      assertEquals(5000, client.connectTimeoutMillis());
+      assertNotSame(OkHttpClientFactory.getOkHttpClient().dispatcher(), client.dispatcher());
+    } finally {
+      OkHttpClientFactory.unregisterClientProfile("bulk");
+    }
+    assertSame(OkHttpClientFactory.getOkHttpClient(), OkHttpClientFactory.getOkHttpClient("bulk"));
+    OkHttpClient defaultClient =
+        OkHttpClientFactory.getNewOkHttpClient(ConnectionOptions.builder().build());
+    assertSame(OkHttpClientFactory.getOkHttpClient().dispatcher(), defaultClient.dispatcher());
+  }
+
+  @Test
+  public void testClientProfileOfWebSocket() throws IOException {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(
+        new MockResponse()
+            .withWebSocketUpgrade(
+                new WebSocketListener() {
+                  @Override
+                  public void onMessage(WebSocket webSocket, String text) {
+                    String taskId =
+                        JsonUtils.parse(text)
+                            .get("header")
+                            .getAsJsonObject()
+                            .get("task_id")
+                            .getAsString();
+                    if (text.contains("run-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-started', 'attributes': {}}, 'payload': {}}");
+                    } else if (text.contains("continue-task")) {
+                      webSocket.send(ByteString.of((byte) 1, (byte) 2, (byte) 3));
+                    } else if (text.contains("finish-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-finished', 'attributes': {}}, 'payload': {}}");
+                    }
+                  }
+
+                  @Override
+                  public void onClosing(WebSocket webSocket, int code, String reason) {
+                    webSocket.close(code, null);
+                  }
+                }));
+    server.start();
+    Constants.baseWebsocketApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    OkHttpClient bulk =
+        OkHttpClientFactory.registerClientProfile(
+            "bulk", ConnectionConfigurations.builder().build());
+    try {
+      SpeechSynthesizer synthesizer =
+          new SpeechSynthesizer(
+              SpeechSynthesisParam.builder()
+                  .apiKey("1234")
+                  .model("cosyvoice-v1")
+                  .voice("longxiaochun")
+                  .format(SpeechSynthesisAudioFormat.PCM_16000HZ_MONO_16BIT)
+                  .build(),
+              null,
+              null,
+              ConnectionOptions.builder().clientProfile("bulk").build());
+      assertEquals(3, synthesizer.call("hello", 5000).remaining());
+      // the open websocket reads on a call of the profile dispatcher, in the profile pool.
+      assertEquals(1, bulk.dispatcher().runningCallsCount());
+      assertEquals(1, bulk.connectionPool().connectionCount());
+      synthesizer.getDuplexApi().close(1000, "bye");
+    } finally {
+      OkHttpClientFactory.unregisterClientProfile("bulk");
+      server.shutdown();
+    }
+  }
 }
@@ -3,6 +3,7 @@
 package com.alibaba.dashscope;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.alibaba.dashscope.aigc.generation.Generation;
@@ -23,6 +24,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.MediaType;
@@ -86,6 +88,9 @@ public class TestGeneration {
     assertEquals(request.getMethod(), "POST");
     assertEquals(request.getPath(), "/services/aigc/text-generation/generation");
     assertEquals(expectBody, body);
+    // sent with the content length, not chunked.
+    assertEquals(String.valueOf(request.getBodySize()), request.getHeader("Content-Length"));
+    assertNull(request.getHeader("Transfer-Encoding"));
   }
 
   @Test
@@ -129,6 +134,29 @@ public class TestGeneration {
     checkResult(result, request, expectTextBody);
   }
 
+  @Test
+  public void testHttpTextCallAsync()
+      throws ApiException, NoApiKeyException, InterruptedException, ExecutionException,
+          InputRequiredException {
+    server.enqueue(
+        new MockResponse()
+            .setBody(JsonUtils.toJson(rsp))
+            .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON));
+    int port = server.getPort();
+    QwenParam param =
+        QwenParam.builder()
+            .model(Generation.Models.QWEN_TURBO)
+            .resultFormat(QwenParam.ResultFormat.TEXT)
+            .prompt("如何做土豆炖猪脚?")
+            .topP(0.8)
+            .build();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", port);
+    Generation generation = new Generation();
+    GenerationResult result = generation.callAsync(param).get();
+    RecordedRequest request = server.takeRequest();
+    checkResult(result, request, expectTextBody);
+  }
+
   @Test
   public void testHttpCall()
       throws ApiException, NoApiKeyException, IOException, InterruptedException,
@@ -3,6 +3,10 @@
 package com.alibaba.dashscope;
 
 import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.alibaba.dashscope.aigc.generation.Generation;
 import com.alibaba.dashscope.aigc.generation.GenerationParam;
@@ -75,4 +79,38 @@ public class TestGenerationStream {
     System.out.println(req);
     assertTrue(results.size() == 2);
   }
+
+  @Test
+  public void testHttpStreamHeaders()
+      throws ApiException, NoApiKeyException, InterruptedException, InputRequiredException {
+    mockServer.enqueue(TestUtils.createStreamMockResponse(Arrays.asList(msg1, msg2), 200));
+    mockServer.enqueue(TestUtils.createStreamMockResponse(Arrays.asList(msg1, msg2), 200));
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", mockServer.getPort());
+    Generation generation = new Generation();
+    GenerationParam param =
+        GenerationParam.builder()
+            .model(Generation.Models.QWEN_TURBO)
+            .prompt("如何做土豆炖猪脚?")
+            .resultFormat(GenerationParam.ResultFormat.MESSAGE)
+            .build();
+    List<GenerationResult> results = new ArrayList<>();
+    generation.streamCall(param).blockingForEach(results::add);
+    mockServer.takeRequest();
+    assertEquals(2, results.size());
+    // the headers are converted once per stream, each result gets its own copy.
+    assertEquals("text/event-stream", results.get(0).getHeaders().get("content-type"));
+    assertEquals(results.get(0).getHeaders(), results.get(1).getHeaders());
+    assertNotSame(results.get(0).getHeaders(), results.get(1).getHeaders());
+    results.get(0).getHeaders().put("x-modified", "true");
+    assertFalse(results.get(1).getHeaders().containsKey("x-modified"));
+
+    param.setIncludeResponseHeaders(false);
+    results.clear();
+    generation.streamCall(param).blockingForEach(results::add);
+    mockServer.takeRequest();
+    assertEquals(2, results.size());
+    // no headers, as the results of a response without headers.
+    assertNull(results.get(0).getHeaders());
+    assertNull(results.get(1).getHeaders());
+  }
 }
@@ -14,7 +14,9 @@ import com.alibaba.dashscope.common.ResultCallback;
 import com.alibaba.dashscope.exception.ApiException;
 import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.protocol.ApiServiceOption;
+import com.alibaba.dashscope.protocol.HalfDuplexRequest;
 import com.alibaba.dashscope.protocol.HttpMethod;
+import com.alibaba.dashscope.protocol.HttpRequest;
 import com.alibaba.dashscope.protocol.Protocol;
 import com.alibaba.dashscope.protocol.StreamingMode;
 import com.alibaba.dashscope.utils.ApiKeywords;
@@ -332,4 +334,23 @@ public class TestHalfDuplexHttpApi {
     assertEquals(firstText, outputTexts.get(0));
     server.close();
   }
+
+  @Test
+  public void testHttpRequestBodyString()
+      throws ApiException, NoApiKeyException, IOException, InterruptedException {
+    MockWebServer server = new MockWebServer();
+    server.enqueue(
+        new MockResponse()
+            .setBody(JsonUtils.toJson(TestResponse.builder().build()))
+            .setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON));
+    HalfDuplexTestParam param =
+        HalfDuplexTestParam.builder().model("qwen-turbo").parameter("k1", "v1").build();
+    HttpRequest httpRequest = new HalfDuplexRequest(param, serviceOption).getHttpRequest();
+    // the body is still a string for the callers, the client writes the json tree.
+    assertTrue(httpRequest.getBody() instanceof String);
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    syncApi.call(param);
+    assertEquals(httpRequest.getBody(), server.takeRequest().getBody().readUtf8());
+    server.close();
+  }
 }
@@ -0,0 +1,143 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.api.GeneralApi;
+import com.alibaba.dashscope.base.HalfDuplexParamBase;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.GeneralServiceOption;
+import com.alibaba.dashscope.protocol.HedgingPolicy;
+import com.alibaba.dashscope.protocol.HttpMethod;
+import com.alibaba.dashscope.utils.Constants;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestHedgingPolicy {
+  private static final String RESULT = "{\"request_id\":\"1\",\"output\":{\"text\":\"ok\"}}";
+  private MockWebServer mockServer;
+  private TimeoutTestParam param;
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s/api/v1/", mockServer.getPort());
+    Constants.apiKey = "1234";
+    param = TimeoutTestParam.builder().model("model").name("test").build();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  private static GeneralApi<HalfDuplexParamBase> api(HedgingPolicy hedgingPolicy) {
+    return new GeneralApi<>(ConnectionOptions.builder().hedgingPolicy(hedgingPolicy).build());
+  }
+
+  private static GeneralServiceOption serviceOption() {
+    GeneralServiceOption serviceOption = GeneralServiceOption.builder().build();
+    serviceOption.setHttpMethod(HttpMethod.POST);
+    serviceOption.setPath("hedge/test");
+    return serviceOption;
+  }
+
+  private static MockResponse jsonResponse() {
+    return new MockResponse()
+        .setResponseCode(200)
+        .setHeader("Content-Type", "application/json")
+        .setBody(RESULT);
+  }
+
+  @Test
+  public void testHedgeWins() throws ApiException, NoApiKeyException {
+    HedgingPolicy hedgingPolicy = HedgingPolicy.builder().minSamples(1).maxHedgeRatio(1).build();
+    GeneralApi<HalfDuplexParamBase> api = api(hedgingPolicy);
+    // record a fast latency, the hedge delay is the latency.
+    mockServer.enqueue(jsonResponse());
+    api.call(param, serviceOption());
+    long delay = hedgingPolicy.getHedgeDelayMillis();
+    assertTrue(delay >= 10 && delay < 2000);
+    // the first attempt is slow, the hedge wins.
+    mockServer.enqueue(jsonResponse().setHeadersDelay(5, TimeUnit.SECONDS));
+    mockServer.enqueue(jsonResponse());
+    long start = System.currentTimeMillis();
+    api.call(param, serviceOption());
+    assertTrue(System.currentTimeMillis() - start < 4000);
+    assertEquals(3, mockServer.getRequestCount());
+    HedgingPolicy.Stats stats = hedgingPolicy.getStats();
+    assertEquals(2, stats.getRequests());
+    assertEquals(1, stats.getHedgedRequests());
+    assertEquals(1, stats.getPrimaryWins());
+    assertEquals(1, stats.getHedgeWins());
+  }
+
+  @Test
+  public void testHedgeLatencyFromRequestStart() throws ApiException, NoApiKeyException {
+    // the window keeps the last latency, recomputed after the 1st and the 17th request.
+    HedgingPolicy hedgingPolicy =
+        HedgingPolicy.builder().minSamples(1).window(1).maxHedgeRatio(1).build();
+    GeneralApi<HalfDuplexParamBase> api = api(hedgingPolicy);
+    mockServer.enqueue(jsonResponse().setHeadersDelay(300, TimeUnit.MILLISECONDS));
+    api.call(param, serviceOption());
+    long delay = hedgingPolicy.getHedgeDelayMillis();
+    assertTrue(delay >= 300, "delay " + delay);
+    for (int i = 0; i < 15; ++i) {
+      mockServer.enqueue(jsonResponse());
+      api.call(param, serviceOption());
+    }
+    mockServer.enqueue(jsonResponse().setHeadersDelay(5, TimeUnit.SECONDS));
+    mockServer.enqueue(jsonResponse());
+    api.call(param, serviceOption());
+    assertEquals(1, hedgingPolicy.getStats().getHedgeWins());
+    // the winning hedge records the latency of the request, including the hedge delay.
+    assertTrue(hedgingPolicy.getHedgeDelayMillis() >= delay);
+  }
+
+  @Test
+  public void testBudget() throws ApiException, NoApiKeyException {
+    HedgingPolicy hedgingPolicy = HedgingPolicy.builder().minSamples(1).maxHedgeRatio(0.4).build();
+    GeneralApi<HalfDuplexParamBase> api = api(hedgingPolicy);
+    mockServer.enqueue(jsonResponse());
+    api.call(param, serviceOption());
+    // the budget has 0.8 token after 2 requests, the second slow request is not hedged.
+    mockServer.enqueue(
+        jsonResponse()
+            .setHeadersDelay(hedgingPolicy.getHedgeDelayMillis() + 300, TimeUnit.MILLISECONDS));
+    api.call(param, serviceOption());
+    assertEquals(2, mockServer.getRequestCount());
+    assertEquals(0, hedgingPolicy.getStats().getHedgedRequests());
+    assertEquals(2, hedgingPolicy.getStats().getPrimaryWins());
+  }
+
+  @Test
+  public void testPercentile() {
+    HedgingPolicy hedgingPolicy =
+        HedgingPolicy.builder().minSamples(100).maxDelay(Duration.ofMillis(90)).build();
+    for (int i = 1; i <= 99; ++i) {
+      hedgingPolicy.onResponse(false, TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    assertEquals(-1, hedgingPolicy.getHedgeDelayMillis());
+    hedgingPolicy.onResponse(false, TimeUnit.MILLISECONDS.toNanos(100));
+    assertEquals(90, hedgingPolicy.getHedgeDelayMillis());
+    HedgingPolicy unlimited = HedgingPolicy.builder().minSamples(100).build();
+    for (int i = 1; i <= 100; ++i) {
+      unlimited.onResponse(false, TimeUnit.MILLISECONDS.toNanos(i));
+    }
+    assertEquals(96, unlimited.getHedgeDelayMillis());
+  }
+}
@@ -1,6 +1,7 @@
 package com.alibaba.dashscope;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import com.alibaba.dashscope.aigc.imagesynthesis.ImageSynthesis;
 import com.alibaba.dashscope.aigc.imagesynthesis.ImageSynthesisParam;
@@ -11,6 +12,8 @@ import com.alibaba.dashscope.exception.NoApiKeyException;
 import com.alibaba.dashscope.utils.Constants;
 import com.alibaba.dashscope.utils.JsonUtils;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.MediaType;
 import okhttp3.mockwebserver.MockResponse;
@@ -77,6 +80,63 @@ public class TestImageSynthesis {
     assertEquals(expectRequestBody, requestBody);
   }
 
+  @Test
+  public void testImageSynthesisCallAsync()
+      throws ApiException, NoApiKeyException, InterruptedException, ExecutionException {
+    String pending =
+        "{\"request_id\":\"39\",\"output\":{\"task_id\":\"e4\",\"task_status\":\"PENDING\"}}";
+    String running =
+        "{\"request_id\":\"39\",\"output\":{\"task_id\":\"e4\",\"task_status\":\"RUNNING\"}}";
+    String succeeded =
+        "{\"request_id\":\"39\",\"output\":{\"task_id\":\"e4\",\"task_status\":\"SUCCEEDED\",\"results\":[{\"url\":\"https://1\"}]},\"usage\":{\"image_count\":1}}";
+    for (String body : new String[] {pending, running, succeeded}) {
+      server.enqueue(
+          new MockResponse().setBody(body).setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON));
+    }
+    int port = server.getPort();
+    ImageSynthesis is = new ImageSynthesis();
+    ImageSynthesisParam param =
+        ImageSynthesisParam.builder()
+            .model(ImageSynthesis.Models.WANX_V1)
+            .n(1)
+            .size("1024*1024")
+            .prompt("雄鹰自由自在的在蓝天白云下飞翔")
+            .build();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", port);
+    ImageSynthesisResult result = is.callAsync(param).get();
+    assertEquals("SUCCEEDED", result.getOutput().getTaskStatus());
+    assertEquals("https://1", result.getOutput().getResults().get(0).get("url"));
+    assertEquals("POST", server.takeRequest().getMethod());
+    RecordedRequest query = server.takeRequest();
+    assertEquals("GET", query.getMethod());
+    assertEquals("/tasks/e4", query.getPath());
+    assertEquals(3, server.getRequestCount());
+  }
+
+  @Test
+  public void testImageSynthesisCallAsyncMalformedOutput() {
+    String pending =
+        "{\"request_id\":\"39\",\"output\":{\"task_id\":\"e4\",\"task_status\":\"PENDING\"}}";
+    // the query result has no output.
+    for (String body : new String[] {pending, "{\"request_id\":\"39\"}"}) {
+      server.enqueue(
+          new MockResponse().setBody(body).setHeader("content-type", MEDIA_TYPE_APPLICATION_JSON));
+    }
+    ImageSynthesisParam param =
+        ImageSynthesisParam.builder()
+            .model(ImageSynthesis.Models.WANX_V1)
+            .n(1)
+            .size("1024*1024")
+            .prompt("雄鹰自由自在的在蓝天白云下飞翔")
+            .build();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s", server.getPort());
+    // fails instead of waiting forever.
+    assertThrows(
+        ExecutionException.class,
+        () -> new ImageSynthesis().callAsync(param).get(10, TimeUnit.SECONDS));
+    assertEquals(2, server.getRequestCount());
+  }
+
   @Test
   public void testImageSynthesisUsageMore()
       throws ApiException, NoApiKeyException, IOException, InterruptedException,
@@ -0,0 +1,157 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.api.GeneralApi;
+import com.alibaba.dashscope.base.HalfDuplexParamBase;
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.GeneralServiceOption;
+import com.alibaba.dashscope.protocol.HttpMethod;
+import com.alibaba.dashscope.protocol.RateLimiter;
+import com.alibaba.dashscope.protocol.RetryPolicy;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.Constants;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestRateLimiter {
+  private static final String RESULT = "{\"request_id\":\"1\",\"output\":{\"text\":\"ok\"}}";
+  private MockWebServer mockServer;
+  private TimeoutTestParam param;
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s/api/v1/", mockServer.getPort());
+    Constants.apiKey = "1234";
+    param = TimeoutTestParam.builder().model("model").name("test").build();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  private static GeneralApi<HalfDuplexParamBase> api(RateLimiter rateLimiter) {
+    return new GeneralApi<>(
+        ConnectionOptions.builder().retryPolicy(RetryPolicy.NONE).rateLimiter(rateLimiter).build());
+  }
+
+  private static GeneralServiceOption serviceOption() {
+    GeneralServiceOption serviceOption = GeneralServiceOption.builder().build();
+    serviceOption.setHttpMethod(HttpMethod.POST);
+    serviceOption.setPath("limit/test");
+    return serviceOption;
+  }
+
+  private static MockResponse jsonResponse(int code, String body) {
+    return new MockResponse()
+        .setResponseCode(code)
+        .setHeader("Content-Type", "application/json")
+        .setBody(body);
+  }
+
+  @Test
+  public void testQps() throws ApiException, NoApiKeyException {
+    GeneralApi<HalfDuplexParamBase> api = api(RateLimiter.builder().qps(5).burst(1).build());
+    for (int i = 0; i < 3; ++i) {
+      mockServer.enqueue(jsonResponse(200, RESULT));
+    }
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < 3; ++i) {
+      api.call(param, serviceOption());
+    }
+    // the first request takes the burst token, the others wait 200ms each.
+    assertTrue(System.currentTimeMillis() - start >= 350);
+    assertEquals(3, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testThrottledDecrease() throws ApiException, NoApiKeyException {
+    RateLimiter rateLimiter = RateLimiter.builder().qps(10).additiveIncrease(2).build();
+    GeneralApi<HalfDuplexParamBase> api = api(rateLimiter);
+    mockServer.enqueue(
+        jsonResponse(429, "{\"code\":\"Throttling.RateQuota\",\"message\":\"slow down\"}"));
+    mockServer.enqueue(
+        jsonResponse(429, "{\"code\":\"Throttling.RateQuota\",\"message\":\"slow down\"}"));
+    assertThrows(ApiException.class, () -> api.call(param, serviceOption()));
+    assertEquals(5, rateLimiter.getRate("model"), 1e-9);
+    // the throttled responses of the same window decrease once.
+    assertThrows(ApiException.class, () -> api.call(param, serviceOption()));
+    assertEquals(5, rateLimiter.getRate("model"), 1e-9);
+    // other keys are not affected.
+    assertEquals(10, rateLimiter.getRate("other"), 1e-9);
+    mockServer.enqueue(jsonResponse(200, RESULT));
+    api.call(param, serviceOption());
+    assertEquals(5.4, rateLimiter.getRate("model"), 1e-9);
+  }
+
+  @Test
+  public void testStreams() throws Exception {
+    RateLimiter rateLimiter = RateLimiter.builder().qps(100).maxConcurrentStreams(1).build();
+    CompletableFuture<RateLimiter.Permit> first = rateLimiter.acquireAsync("model", true);
+    CompletableFuture<RateLimiter.Permit> second = rateLimiter.acquireAsync("model", true);
+    CompletableFuture<RateLimiter.Permit> cancelled = rateLimiter.acquireAsync("model", true);
+    assertTrue(first.isDone());
+    assertFalse(second.isDone());
+    // the non stream requests do not take a stream.
+    assertTrue(rateLimiter.acquireAsync("other", false).isDone());
+    assertTrue(cancelled.cancel(false));
+    first.get().release();
+    first.get().release();
+    RateLimiter.Permit permit = second.get(1, TimeUnit.SECONDS);
+    CompletableFuture<RateLimiter.Permit> third = rateLimiter.acquireAsync("model", true);
+    assertFalse(third.isDone());
+    permit.release();
+    third.get(1, TimeUnit.SECONDS).release();
+  }
+
+  @Test
+  public void testStreamCall() throws ApiException, NoApiKeyException {
+    RateLimiter rateLimiter = RateLimiter.builder().qps(100).maxConcurrentStreams(1).build();
+    GeneralApi<HalfDuplexParamBase> api = api(rateLimiter);
+    GeneralServiceOption serviceOption = serviceOption();
+    serviceOption.setIsSSE(true);
+    serviceOption.setStreamingMode(StreamingMode.OUT);
+    // hold the only stream, the stream call waits without blocking the caller.
+    RateLimiter.Permit permit = rateLimiter.acquire("model", true);
+    mockServer.enqueue(
+        TestUtils.createStreamMockResponse(
+            Arrays.asList(
+                "{\"request_id\":\"1\",\"output\":{\"text\":\"o\"}}",
+                "{\"request_id\":\"1\",\"output\":{\"text\":\"ok\"}}"),
+            200));
+    Flowable<DashScopeResult> stream = api.streamCall(param, serviceOption);
+    Disposable disposable = stream.subscribe();
+    assertEquals(0, mockServer.getRequestCount());
+    disposable.dispose();
+    permit.release();
+    List<DashScopeResult> results = stream.toList().blockingGet();
+    assertEquals(2, results.size());
+    assertEquals(1, mockServer.getRequestCount());
+    // the stream is released when done.
+    rateLimiter.acquire("model", true).release();
+  }
+}
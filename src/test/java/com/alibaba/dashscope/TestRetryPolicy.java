@@ -0,0 +1,277 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.api.GeneralApi;
+import com.alibaba.dashscope.base.HalfDuplexParamBase;
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.GeneralServiceOption;
+import com.alibaba.dashscope.protocol.HttpMethod;
+import com.alibaba.dashscope.protocol.RetryBudget;
+import com.alibaba.dashscope.protocol.RetryPolicy;
+import com.alibaba.dashscope.protocol.StreamingMode;
+import com.alibaba.dashscope.utils.Constants;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestRetryPolicy {
+  private static final String RESULT = "{\"request_id\":\"1\",\"output\":{\"text\":\"ok\"}}";
+  private MockWebServer mockServer;
+  private GeneralApi<HalfDuplexParamBase> api;
+  private TimeoutTestParam param;
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    Constants.baseHttpApiUrl = String.format("http://127.0.0.1:%s/api/v1/", mockServer.getPort());
+    Constants.apiKey = "1234";
+    RetryPolicy retryPolicy =
+        RetryPolicy.builder()
+            .maxRetries(2)
+            .initialBackoff(Duration.ofMillis(10))
+            .maxBackoff(Duration.ofSeconds(2))
+            .budget(new RetryBudget(100, 0.1))
+            .build();
+    api = new GeneralApi<>(ConnectionOptions.builder().retryPolicy(retryPolicy).build());
+    param = TimeoutTestParam.builder().model("model").name("test").build();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  private static GeneralServiceOption serviceOption(HttpMethod method) {
+    GeneralServiceOption serviceOption = GeneralServiceOption.builder().build();
+    serviceOption.setHttpMethod(method);
+    serviceOption.setPath("retry/test");
+    return serviceOption;
+  }
+
+  private static MockResponse jsonResponse(int code, String body) {
+    return new MockResponse()
+        .setResponseCode(code)
+        .setHeader("Content-Type", "application/json")
+        .setBody(body);
+  }
+
+  // the general api result is flattened, the output is the whole response.
+  private static String text(DashScopeResult result) {
+    return ((JsonObject) result.getOutput()).getAsJsonObject("output").get("text").getAsString();
+  }
+
+  @Test
+  public void testRetryAfter() throws ApiException, NoApiKeyException {
+    mockServer.enqueue(
+        jsonResponse(429, "{\"code\":\"Throttling\",\"message\":\"slow down\"}")
+            .setHeader("Retry-After", "1"));
+    mockServer.enqueue(jsonResponse(200, RESULT));
+    long start = System.currentTimeMillis();
+    DashScopeResult result = api.call(param, serviceOption(HttpMethod.POST));
+    assertTrue(System.currentTimeMillis() - start >= 1000);
+    assertEquals("ok", text(result));
+    assertEquals(2, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testRetryAfterBeyondMaxBackoff() {
+    mockServer.enqueue(
+        jsonResponse(503, "{\"code\":\"Unavailable\",\"message\":\"busy\"}")
+            .setHeader("Retry-After", "60"));
+    ApiException e =
+        assertThrows(ApiException.class, () -> api.call(param, serviceOption(HttpMethod.POST)));
+    assertEquals(503, e.getStatus().getStatusCode());
+    assertEquals(1, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testInterruptedBackoff() throws InterruptedException {
+    mockServer.enqueue(
+        jsonResponse(429, "{\"code\":\"Throttling\",\"message\":\"slow down\"}")
+            .setHeader("Retry-After", "2"));
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    AtomicReference<Boolean> interrupted = new AtomicReference<>();
+    Thread caller =
+        new Thread(
+            () -> {
+              try {
+                api.call(param, serviceOption(HttpMethod.POST));
+              } catch (Throwable e) {
+                error.set(e);
+                interrupted.set(Thread.currentThread().isInterrupted());
+              }
+            });
+    caller.start();
+    mockServer.takeRequest(5, TimeUnit.SECONDS);
+    Thread.sleep(200);
+    caller.interrupt();
+    caller.join(5000);
+    assertTrue(error.get() instanceof ApiException);
+    assertTrue(error.get().getCause() instanceof InterruptedException);
+    assertTrue(interrupted.get());
+  }
+
+  @Test
+  public void testIdempotency() throws ApiException, NoApiKeyException {
+    // a POST may have been processed, the server error is not retried.
+    mockServer.enqueue(jsonResponse(500, "{\"code\":\"InternalError\",\"message\":\"error\"}"));
+    ApiException e =
+        assertThrows(ApiException.class, () -> api.call(param, serviceOption(HttpMethod.POST)));
+    assertEquals(500, e.getStatus().getStatusCode());
+    assertEquals(1, mockServer.getRequestCount());
+    // a GET is retried.
+    mockServer.enqueue(jsonResponse(502, "{\"code\":\"BadGateway\",\"message\":\"error\"}"));
+    mockServer.enqueue(jsonResponse(200, RESULT));
+    DashScopeResult result = api.get(param, serviceOption(HttpMethod.GET));
+    assertEquals("ok", text(result));
+    assertEquals(3, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testMaxRetries() {
+    for (int i = 0; i < 3; ++i) {
+      mockServer.enqueue(jsonResponse(503, "{\"code\":\"Unavailable\",\"message\":\"busy\"}"));
+    }
+    mockServer.enqueue(jsonResponse(200, RESULT));
+    ApiException e =
+        assertThrows(ApiException.class, () -> api.call(param, serviceOption(HttpMethod.POST)));
+    assertEquals(503, e.getStatus().getStatusCode());
+    assertEquals(3, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testCallbackRetry() throws ApiException, NoApiKeyException, InterruptedException {
+    mockServer.enqueue(jsonResponse(503, "{\"code\":\"Unavailable\",\"message\":\"busy\"}"));
+    mockServer.enqueue(jsonResponse(200, RESULT));
+    CountDownLatch latch = new CountDownLatch(1);
+    AtomicReference<DashScopeResult> result = new AtomicReference<>();
+    api.call(
+        param,
+        serviceOption(HttpMethod.POST),
+        new ResultCallback<DashScopeResult>() {
+          @Override
+          public void onEvent(DashScopeResult message) {
+            result.set(message);
+          }
+
+          @Override
+          public void onComplete() {
+            latch.countDown();
+          }
+
+          @Override
+          public void onError(Exception e) {
+            latch.countDown();
+          }
+        });
+    assertTrue(latch.await(10, TimeUnit.SECONDS));
+    assertEquals("ok", text(result.get()));
+    assertEquals(2, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testStreamRetryBeforeOpen() throws ApiException, NoApiKeyException {
+    mockServer.enqueue(jsonResponse(503, "{\"code\":\"Unavailable\",\"message\":\"busy\"}"));
+    mockServer.enqueue(
+        TestUtils.createStreamMockResponse(
+            Arrays.asList(
+                "{\"request_id\":\"1\",\"output\":{\"text\":\"o\"}}",
+                "{\"request_id\":\"1\",\"output\":{\"text\":\"ok\"}}"),
+            200));
+    GeneralServiceOption serviceOption = serviceOption(HttpMethod.POST);
+    serviceOption.setIsSSE(true);
+    serviceOption.setStreamingMode(StreamingMode.OUT);
+    List<String> texts = new ArrayList<>();
+    api.streamCall(param, serviceOption).blockingForEach(result -> texts.add(text(result)));
+    assertEquals(Arrays.asList("o", "ok"), texts);
+    assertEquals(2, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testCancelAsync() throws ApiException, NoApiKeyException, InterruptedException {
+    RetryPolicy retryPolicy =
+        RetryPolicy.builder()
+            .maxRetries(2)
+            .initialBackoff(Duration.ofMillis(500))
+            .jitter(0)
+            .budget(new RetryBudget(100, 0.1))
+            .build();
+    GeneralApi<HalfDuplexParamBase> api =
+        new GeneralApi<>(ConnectionOptions.builder().retryPolicy(retryPolicy).build());
+    mockServer.enqueue(jsonResponse(503, "{\"code\":\"Unavailable\",\"message\":\"busy\"}"));
+    mockServer.enqueue(jsonResponse(200, RESULT));
+    CompletableFuture<DashScopeResult> future =
+        api.callAsync(param, serviceOption(HttpMethod.POST));
+    mockServer.takeRequest();
+    // cancel in the backoff, the retry is not sent.
+    assertTrue(future.cancel(false));
+    Thread.sleep(1000);
+    assertEquals(1, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testBackoff() {
+    RetryPolicy policy =
+        RetryPolicy.builder()
+            .initialBackoff(Duration.ofMillis(100))
+            .maxBackoff(Duration.ofMillis(350))
+            .jitter(0)
+            .build();
+    assertEquals(100, policy.getBackoffMillis(1));
+    assertEquals(200, policy.getBackoffMillis(2));
+    assertEquals(350, policy.getBackoffMillis(3));
+    RetryPolicy jittered = policy.toBuilder().jitter(0.5).build();
+    for (int i = 0; i < 100; ++i) {
+      long backoff = jittered.getBackoffMillis(2);
+      assertTrue(backoff >= 100 && backoff <= 200);
+    }
+    assertEquals(-1, RetryPolicy.NONE.getRetryDelayMillis(1, HttpMethod.GET, 503, null));
+    // opt-in, a retried POST may be billed twice.
+    assertEquals(0, RetryPolicy.getDefault().getMaxRetries());
+    assertEquals(-1, RetryPolicy.getDefault().getRetryDelayMillis(1, HttpMethod.POST, 429, null));
+  }
+
+  @Test
+  public void testRetryBudget() {
+    RetryBudget budget = new RetryBudget(4, 0.5);
+    RetryPolicy policy = RetryPolicy.builder().maxRetries(10).budget(budget).jitter(0).build();
+    // the retries stop when half of the tokens are taken.
+    assertTrue(policy.getRetryDelayMillis(1, HttpMethod.POST, 503, null) >= 0);
+    assertEquals(-1, policy.getRetryDelayMillis(2, HttpMethod.POST, 503, null));
+    assertFalse(budget.getTokens() > 2);
+    policy.onSuccess();
+    policy.onSuccess();
+    assertEquals(3, budget.getTokens(), 1e-9);
+    assertTrue(policy.getRetryDelayMillis(1, HttpMethod.POST, 429, null) < 0);
+    policy.onSuccess();
+    policy.onSuccess();
+    policy.onSuccess();
+    assertTrue(policy.getRetryDelayMillis(1, HttpMethod.POST, 429, null) >= 0);
+  }
+}
@@ -0,0 +1,48 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.protocol.ConnectionConfigurations;
+import com.alibaba.dashscope.utils.SdkThreads;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class TestSdkThreads {
+  @Test
+  public void testPlatformThreads() throws Exception {
+    ThreadFactory threadFactory = SdkThreads.newThreadFactory("test-", false);
+    Thread first = threadFactory.newThread(() -> {});
+    Thread second = threadFactory.newThread(() -> {});
+    assertEquals("test-0", first.getName());
+    assertEquals("test-1", second.getName());
+    assertTrue(first.isDaemon());
+    ExecutorService executor = SdkThreads.newExecutor("test-", 1, false);
+    assertEquals("test-0", executor.submit(() -> Thread.currentThread().getName()).get());
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    Thread started = SdkThreads.start("test", () -> {});
+    assertFalse(started.isDaemon());
+    started.join();
+  }
+
+  @Test
+  public void testVirtualThreadsEnabled() throws Exception {
+    ConnectionConfigurations enabled =
+        ConnectionConfigurations.builder().virtualThreadsEnabled(true).build();
+    ConnectionConfigurations disabled =
+        ConnectionConfigurations.builder().virtualThreadsEnabled(false).build();
+    assertFalse(SdkThreads.isVirtualThreadsEnabled(disabled));
+    assertEquals(
+        SdkThreads.isVirtualThreadsSupported(), SdkThreads.isVirtualThreadsEnabled(enabled));
+    // falls back to platform threads if not supported.
+    ExecutorService executor = SdkThreads.newExecutor("test-", 1, true);
+    assertTrue(executor.submit(() -> true).get());
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.common.ErrorType;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.StreamingExecutor;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+
+public class TestStreamingExecutor {
+  private static Runnable await(CountDownLatch started, CountDownLatch latch) {
+    return () -> {
+      started.countDown();
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+  }
+
+  @Test
+  public void testFailFast() throws Exception {
+    StreamingExecutor executor =
+        StreamingExecutor.builder()
+            .maxThreads(1)
+            .rejectionPolicy(StreamingExecutor.RejectionPolicy.FAIL_FAST)
+            .virtualThreads(false)
+            .build();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(1);
+    CompletableFuture<Void> first = executor.execute(await(started, latch));
+    assertTrue(started.await(1, TimeUnit.SECONDS));
+    ApiException e = assertThrows(ApiException.class, () -> executor.execute(() -> {}));
+    assertEquals(ErrorType.REQUEST_REJECTED.getValue(), e.getStatus().getCode());
+    assertTrue(e.getStatus().getMessage().contains("1 active sessions"));
+    assertEquals(1, executor.getStats().getRejectedSessions());
+    latch.countDown();
+    first.get(1, TimeUnit.SECONDS);
+    assertEquals(0, executor.getStats().getActiveSessions());
+    assertEquals(1, executor.getStats().getCompletedSessions());
+    executor.shutdown();
+  }
+
+  @Test
+  public void testQueue() throws Exception {
+    StreamingExecutor executor =
+        StreamingExecutor.builder().maxThreads(1).maxQueueSize(2).virtualThreads(false).build();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch latch = new CountDownLatch(1);
+    CompletableFuture<Void> first = executor.execute(await(started, latch));
+    assertTrue(started.await(1, TimeUnit.SECONDS));
+    AtomicBoolean cancelledRun = new AtomicBoolean();
+    CompletableFuture<Void> cancelled = executor.execute(() -> cancelledRun.set(true));
+    CompletableFuture<Void> second = executor.execute(() -> {});
+    assertEquals(2, executor.getStats().getQueueDepth());
+    assertThrows(ApiException.class, () -> executor.execute(() -> {}));
+    // a cancelled session is skipped.
+    assertTrue(cancelled.cancel(false));
+    latch.countDown();
+    first.get(1, TimeUnit.SECONDS);
+    second.get(1, TimeUnit.SECONDS);
+    assertFalse(cancelledRun.get());
+    assertEquals(0, executor.getStats().getQueueDepth());
+    executor.shutdown();
+  }
+
+  @Test
+  public void testUserExecutor() throws Exception {
+    ExecutorService userExecutor =
+        Executors.newSingleThreadExecutor(r -> new Thread(r, "user-sender"));
+    StreamingExecutor executor = StreamingExecutor.builder().executor(userExecutor).build();
+    CompletableFuture<String> name = new CompletableFuture<>();
+    executor.execute(() -> name.complete(Thread.currentThread().getName()));
+    assertEquals("user-sender", name.get(1, TimeUnit.SECONDS));
+    // the user executor is not shut down.
+    executor.shutdown();
+    assertFalse(userExecutor.isShutdown());
+    userExecutor.shutdown();
+  }
+}
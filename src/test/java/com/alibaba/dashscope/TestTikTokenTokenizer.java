@@ -3,9 +3,16 @@ package com.alibaba.dashscope;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import com.alibaba.dashscope.common.Message;
+import com.alibaba.dashscope.common.Role;
 import com.alibaba.dashscope.exception.NoSpecialTokenExists;
 import com.alibaba.dashscope.exception.UnSupportedSpecialTokenMode;
+import com.alibaba.dashscope.tokenizers.ChunkCacheStats;
+import com.alibaba.dashscope.tokenizers.IncrementalEncoder;
+import com.alibaba.dashscope.tokenizers.QwenTokenizer;
+import com.alibaba.dashscope.tokenizers.StreamingDecoder;
 import com.alibaba.dashscope.tokenizers.Tokenizer;
 import com.alibaba.dashscope.tokenizers.TokenizerFactory;
 import com.alibaba.dashscope.utils.JsonUtils;
@@ -16,12 +23,14 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.nio.BufferOverflowException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.junit.Ignore;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -84,6 +93,126 @@ public class TestTikTokenTokenizer {
     assertTrue(decodedString.equals(prompt));
   }
 
+  @Test
+  public void testPreload() throws Exception {
+    TokenizerFactory.preloadQwen().get(30, TimeUnit.SECONDS);
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    assertTrue(tokenizer.decode(Arrays.asList(2610, 525, 264)).equals("You are a"));
+  }
+
+  @Test
+  public void testEncodeLongChunk() {
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100000; ++i) {
+      sb.append('a');
+    }
+    // one regex chunk, merged to the longest "a" tokens.
+    String prompt = sb.toString();
+    List<Integer> ids = tokenizer.encodeOrdinary(prompt);
+    assertTrue(ids.size() < prompt.length() / 4);
+    assertTrue(tokenizer.decode(ids).equals(prompt));
+  }
+
+  @Test
+  public void testCountTokens() {
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    String prompt =
+        "<|im_start|>system\nYour are a helpful assistant.<|im_end|>\n<|im_start|>user\nSanFrancisco is a<|im_end|>\n<|im_start|>assistant\n";
+    assertEquals(24, tokenizer.countTokens(prompt));
+    List<Message> messages =
+        Arrays.asList(
+            Message.builder()
+                .role(Role.SYSTEM.getValue())
+                .content("Your are a helpful assistant.")
+                .build(),
+            Message.builder().role(Role.USER.getValue()).content("SanFrancisco is a").build());
+    assertEquals(24, tokenizer.countTokens(messages));
+
+    int[] ids = new int[32];
+    assertEquals(24, tokenizer.encodeInto(prompt, ids));
+    assertEquals(151644, ids[0]);
+    assertEquals(198, ids[23]);
+    assertThrows(BufferOverflowException.class, () -> tokenizer.encodeInto(prompt, new int[8]));
+
+    List<String> texts = new ArrayList<>();
+    for (int i = 0; i < 100; ++i) {
+      texts.add(i % 2 == 0 ? prompt : "You are a helpful assistant.");
+    }
+    int[] counts = tokenizer.countTokensParallel(texts);
+    assertEquals(100, counts.length);
+    assertEquals(24, counts[0]);
+    assertEquals(6, counts[99]);
+  }
+
+  @Test
+  public void testChunkCache() {
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    QwenTokenizer.clearChunkCache();
+    String prompt = "You are a helpful assistant. You are a helpful assistant.";
+    List<Integer> first = tokenizer.encodeOrdinary(prompt);
+    ChunkCacheStats stats = QwenTokenizer.getChunkCacheStats();
+    // the second sentence hits the chunks of the first, except " You".
+    assertEquals(5, stats.getHitCount());
+    assertEquals(7, stats.getMissCount());
+    assertEquals(7, stats.getSize());
+    List<Integer> second = tokenizer.encodeOrdinary(prompt);
+    assertEquals(first, second);
+    assertEquals(17, QwenTokenizer.getChunkCacheStats().getHitCount());
+  }
+
+  @Test
+  public void testIncrementalEncoder() throws NoSpecialTokenExists, UnSupportedSpecialTokenMode {
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    String text = "Hello world, it's 2024.\n  \n\n  你好，世界！😀 <|im_end|>  done ";
+    IncrementalEncoder encoder = TokenizerFactory.qwenIncremental();
+    for (int i = 0; i < text.length(); ) {
+      int end = Math.min(text.length(), i + 3);
+      if (Character.isHighSurrogate(text.charAt(end - 1)) && end < text.length()) {
+        end++;
+      }
+      int count = encoder.append(text.substring(i, end));
+      assertEquals(tokenizer.encode(text.substring(0, end), "none").size(), count);
+      i = end;
+    }
+    assertEquals(tokenizer.encode(text, "none"), encoder.getTokens());
+    encoder.reset();
+    assertEquals(0, encoder.getTokenCount());
+    assertEquals(tokenizer.encodeOrdinary(text).size(), encoder.append(text));
+  }
+
+  @Test
+  public void testStreamingDecoder() throws NoSpecialTokenExists, UnSupportedSpecialTokenMode {
+    Tokenizer tokenizer = TokenizerFactory.qwen();
+    String text = "你好😀🫠 world<|im_end|>";
+    List<Integer> ids = tokenizer.encode(text, "all");
+    StreamingDecoder decoder = TokenizerFactory.qwenStreamingDecoder();
+    StringBuilder sb = new StringBuilder();
+    for (Integer id : ids) {
+      String delta = decoder.decode(id);
+      // never emit a broken surrogate pair or U+FFFD.
+      assertTrue(delta.indexOf('\uFFFD') < 0);
+      assertTrue(delta.isEmpty() || !Character.isHighSurrogate(delta.charAt(delta.length() - 1)));
+      sb.append(delta);
+    }
+    assertEquals(0, decoder.flush(sb));
+    assertEquals(text, sb.toString());
+    assertEquals(text, tokenizer.decode(ids));
+
+    // the emoji is split into 3 tokens.
+    List<Integer> emoji = tokenizer.encodeOrdinary("🫠");
+    assertEquals(3, emoji.size());
+    sb.setLength(0);
+    assertEquals(0, decoder.decode(emoji.get(0), sb));
+    assertTrue(decoder.hasPending());
+    assertEquals(1, decoder.flush(sb));
+    assertEquals("\uFFFD", sb.toString());
+    sb.setLength(0);
+    int[] batch = emoji.stream().mapToInt(Integer::intValue).toArray();
+    assertEquals(2, decoder.decode(batch, 0, batch.length, sb));
+    assertEquals("🫠", sb.toString());
+  }
+
   @Test
   public void testEncodeExceptions() {
     Tokenizer tokenizer = TokenizerFactory.qwen();
@@ -0,0 +1,144 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.audio.asr.recognition.Recognition;
+import com.alibaba.dashscope.audio.asr.recognition.RecognitionParam;
+import com.alibaba.dashscope.audio.asr.recognition.RecognitionResult;
+import com.alibaba.dashscope.audio.tts.SpeechSynthesisResult;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisAudioFormat;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisParam;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesizer;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestWebSocketBackpressure {
+  private MockWebServer mockServer;
+  private final AtomicInteger receivedFrames = new AtomicInteger();
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    // the handshake is slow, the audio waits in the send queue meanwhile.
+    mockServer.enqueue(
+        new MockResponse()
+            .setHeadersDelay(500, TimeUnit.MILLISECONDS)
+            .withWebSocketUpgrade(
+                new WebSocketListener() {
+                  @Override
+                  public void onMessage(WebSocket webSocket, String text) {
+                    String taskId =
+                        JsonUtils.parse(text)
+                            .get("header")
+                            .getAsJsonObject()
+                            .get("task_id")
+                            .getAsString();
+                    if (text.contains("run-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-started', 'attributes': {}}, 'payload': {}}");
+                    } else if (text.contains("finish-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-finished', 'attributes': {}}, 'payload': {}}");
+                    }
+                  }
+
+                  @Override
+                  public void onMessage(WebSocket webSocket, ByteString bytes) {
+                    receivedFrames.incrementAndGet();
+                  }
+
+                  @Override
+                  public void onClosing(WebSocket webSocket, int code, String reason) {
+                    webSocket.close(code, null);
+                  }
+                }));
+    Constants.baseWebsocketApiUrl = String.format("http://127.0.0.1:%s", mockServer.getPort());
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  @Test
+  public void testHighWaterMark() throws NoApiKeyException, InterruptedException {
+    ConnectionOptions options = ConnectionOptions.builder().sendQueueHighWaterMark(4000L).build();
+    options.setUseDefaultClient(false);
+    Recognition recognizer = new Recognition(options);
+    RecognitionParam param =
+        RecognitionParam.builder()
+            .apiKey("1234")
+            .model("paraformer-realtime-v2")
+            .format("pcm")
+            .sampleRate(16000)
+            .build();
+    AtomicInteger producedFrames = new AtomicInteger();
+    Flowable<ByteBuffer> audio =
+        Flowable.range(0, 100)
+            .map(i -> ByteBuffer.allocate(1000))
+            .doOnNext(buffer -> producedFrames.incrementAndGet());
+    Flowable<RecognitionResult> results = recognizer.streamCall(param, audio);
+    Thread.sleep(300);
+    // only the frames under the high-water mark are taken while connecting.
+    assertTrue(producedFrames.get() <= 5, "produced " + producedFrames.get());
+    long queued = recognizer.getDuplexApi().getSendQueueSize();
+    assertTrue(queued > 0 && queued < 5000, "queued " + queued);
+    results.blockingSubscribe();
+    assertEquals(100, producedFrames.get());
+    assertEquals(100, receivedFrames.get());
+    assertEquals(0, recognizer.getDuplexApi().getSendQueueSize());
+    recognizer.getDuplexApi().close(1000, "bye");
+  }
+
+  @Test
+  public void testTextCountedInUtf8Bytes() throws NoApiKeyException, InterruptedException {
+    ConnectionOptions options = ConnectionOptions.builder().build();
+    options.setUseDefaultClient(false);
+    SpeechSynthesisParam param =
+        SpeechSynthesisParam.builder()
+            .apiKey("1234")
+            .model("cosyvoice-v1")
+            .voice("longxiaochun")
+            .format(SpeechSynthesisAudioFormat.PCM_16000HZ_MONO_16BIT)
+            .build();
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(param, null, null, options);
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; ++i) {
+      text.append('\u4f60');
+    }
+    Flowable<SpeechSynthesisResult> results =
+        synthesizer.streamingCallAsFlowable(Flowable.just(text.toString()));
+    results.test();
+    Thread.sleep(300);
+    // a chinese character is 3 bytes in utf-8, as the websocket counts it.
+    long queued = synthesizer.getDuplexApi().getSendQueueSize();
+    assertTrue(queued >= 3000, "queued " + queued);
+    synthesizer.getDuplexApi().close(1000, "bye");
+  }
+}
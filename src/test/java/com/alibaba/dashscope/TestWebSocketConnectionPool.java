@@ -0,0 +1,120 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisAudioFormat;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisParam;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesizer;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketConnectionPool;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestWebSocketConnectionPool {
+  private MockWebServer mockServer;
+  private SpeechSynthesisParam param;
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    // the server runs the tasks of a connection one by one, only one connection is accepted.
+    mockServer.enqueue(
+        new MockResponse()
+            .withWebSocketUpgrade(
+                new WebSocketListener() {
+                  @Override
+                  public void onMessage(WebSocket webSocket, String text) {
+                    String taskId =
+                        JsonUtils.parse(text)
+                            .get("header")
+                            .getAsJsonObject()
+                            .get("task_id")
+                            .getAsString();
+                    if (text.contains("run-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-started', 'attributes': {}}, 'payload': {}}");
+                    } else if (text.contains("continue-task")) {
+                      webSocket.send(ByteString.of((byte) 1, (byte) 2, (byte) 3));
+                    } else if (text.contains("finish-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-finished', 'attributes': {}}, 'payload': {}}");
+                    }
+                  }
+
+                  @Override
+                  public void onClosing(WebSocket webSocket, int code, String reason) {
+                    webSocket.close(code, null);
+                  }
+                }));
+    Constants.baseWebsocketApiUrl = String.format("http://127.0.0.1:%s", mockServer.getPort());
+    param =
+        SpeechSynthesisParam.builder()
+            .apiKey("1234")
+            .model("cosyvoice-v1")
+            .voice("longxiaochun")
+            .format(SpeechSynthesisAudioFormat.PCM_16000HZ_MONO_16BIT)
+            .build();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  private ByteBuffer synthesize(WebSocketConnectionPool pool) {
+    ConnectionOptions options = ConnectionOptions.builder().webSocketConnectionPool(pool).build();
+    options.setUseDefaultClient(false);
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(param, null, null, options);
+    ByteBuffer audio = synthesizer.call("hello", 5000);
+    // the connection is back to the pool, closing the synthesizer does not close it.
+    synthesizer.getDuplexApi().close(1000, "bye");
+    return audio;
+  }
+
+  @Test
+  public void testReuse() {
+    WebSocketConnectionPool pool = WebSocketConnectionPool.builder().build();
+    for (int i = 0; i < 3; ++i) {
+      assertEquals(3, synthesize(pool).remaining());
+    }
+    assertEquals(1, mockServer.getRequestCount());
+    WebSocketConnectionPool.Stats stats = pool.getStats();
+    assertEquals(1, stats.getCreated());
+    assertEquals(2, stats.getReused());
+    assertEquals(1, stats.getIdle());
+    pool.evictAll();
+    assertEquals(0, pool.getStats().getIdle());
+  }
+
+  @Test
+  public void testIdleEviction() throws InterruptedException {
+    WebSocketConnectionPool pool =
+        WebSocketConnectionPool.builder().maxIdleTime(Duration.ofMillis(100)).build();
+    synthesize(pool);
+    assertEquals(1, pool.getStats().getIdle());
+    Thread.sleep(500);
+    assertEquals(0, pool.getStats().getIdle());
+    assertEquals(1, pool.getStats().getEvicted());
+  }
+}
@@ -0,0 +1,303 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.audio.asr.recognition.Recognition;
+import com.alibaba.dashscope.audio.asr.recognition.RecognitionParam;
+import com.alibaba.dashscope.audio.tts.SpeechSynthesisResult;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisAudioFormat;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisParam;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesizer;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.exception.NoApiKeyException;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketConnectionPool;
+import com.alibaba.dashscope.protocol.okhttp.WebSocketMultiplexer;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import io.reactivex.Flowable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestWebSocketMultiplexer {
+  private MockWebServer mockServer;
+  private SpeechSynthesisParam param;
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    // only one connection is accepted, the tasks share it.
+    mockServer.enqueue(
+        new MockResponse()
+            .withWebSocketUpgrade(
+                new WebSocketListener() {
+                  @Override
+                  public void onMessage(WebSocket webSocket, String text) {
+                    String taskId =
+                        JsonUtils.parse(text)
+                            .get("header")
+                            .getAsJsonObject()
+                            .get("task_id")
+                            .getAsString();
+                    if (text.contains("run-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-started', 'attributes': {}}, 'payload': {}}");
+                    } else if (text.contains("continue-task")) {
+                      webSocket.send(ByteString.of((byte) 1, (byte) 2, (byte) 3));
+                    } else if (text.contains("finish-task")) {
+                      webSocket.send(
+                          "{'header': {'task_id': '"
+                              + taskId
+                              + "', 'event': 'task-finished', 'attributes': {}}, 'payload': {}}");
+                    }
+                  }
+
+                  @Override
+                  public void onClosing(WebSocket webSocket, int code, String reason) {
+                    webSocket.close(code, null);
+                  }
+                }));
+    Constants.baseWebsocketApiUrl = String.format("http://127.0.0.1:%s", mockServer.getPort());
+    param =
+        SpeechSynthesisParam.builder()
+            .apiKey("1234")
+            .model("cosyvoice-v1")
+            .voice("longxiaochun")
+            .format(SpeechSynthesisAudioFormat.PCM_16000HZ_MONO_16BIT)
+            .build();
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  private ByteBuffer synthesize(WebSocketMultiplexer multiplexer) {
+    ConnectionOptions options =
+        ConnectionOptions.builder().webSocketMultiplexer(multiplexer).build();
+    options.setUseDefaultClient(false);
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(param, null, null, options);
+    ByteBuffer audio = synthesizer.call("hello", 5000);
+    // the task is detached, closing the synthesizer does not close the shared socket.
+    synthesizer.getDuplexApi().close(1000, "bye");
+    return audio;
+  }
+
+  @Test
+  public void testSequentialTasks() {
+    WebSocketMultiplexer multiplexer = WebSocketMultiplexer.builder().build();
+    for (int i = 0; i < 3; ++i) {
+      assertEquals(3, synthesize(multiplexer).remaining());
+    }
+    assertEquals(1, mockServer.getRequestCount());
+    WebSocketMultiplexer.Stats stats = multiplexer.getStats();
+    assertEquals(1, stats.getSockets());
+    assertEquals(0, stats.getTasks());
+    multiplexer.closeIdle();
+    assertEquals(0, multiplexer.getStats().getSockets());
+  }
+
+  private void recognize(WebSocketMultiplexer multiplexer) throws NoApiKeyException {
+    ConnectionOptions options =
+        ConnectionOptions.builder().webSocketMultiplexer(multiplexer).build();
+    options.setUseDefaultClient(false);
+    Recognition recognizer = new Recognition(options);
+    RecognitionParam recognitionParam =
+        RecognitionParam.builder()
+            .apiKey("1234")
+            .model("paraformer-realtime-v2")
+            .format("pcm")
+            .sampleRate(16000)
+            .build();
+    recognizer
+        .streamCall(recognitionParam, Flowable.just(ByteBuffer.allocate(1000)))
+        .blockingSubscribe();
+    recognizer.getDuplexApi().close(1000, "bye");
+  }
+
+  @Test
+  public void testConcurrentTasks() {
+    // the text frames are routed by task_id.
+    WebSocketMultiplexer multiplexer = WebSocketMultiplexer.builder().maxTasksPerSocket(4).build();
+    CompletableFuture<?>[] tasks = new CompletableFuture<?>[4];
+    for (int i = 0; i < tasks.length; ++i) {
+      tasks[i] =
+          CompletableFuture.runAsync(
+              () -> {
+                try {
+                  recognize(multiplexer);
+                } catch (NoApiKeyException e) {
+                  throw new RuntimeException(e);
+                }
+              });
+    }
+    CompletableFuture.allOf(tasks).join();
+    assertEquals(1, mockServer.getRequestCount());
+    assertEquals(1, multiplexer.getStats().getSockets());
+    multiplexer.closeIdle();
+  }
+
+  @Test
+  public void testConcurrentBinaryOutputRejected() {
+    // the audio frames carry no task_id, they can not be routed between concurrent tasks.
+    WebSocketMultiplexer multiplexer = WebSocketMultiplexer.builder().maxTasksPerSocket(4).build();
+    assertThrows(ApiException.class, () -> synthesize(multiplexer));
+    assertEquals(0, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testPoolAndMultiplexerRejected() {
+    ConnectionOptions options =
+        ConnectionOptions.builder()
+            .webSocketConnectionPool(WebSocketConnectionPool.builder().build())
+            .webSocketMultiplexer(WebSocketMultiplexer.builder().build())
+            .build();
+    options.setUseDefaultClient(false);
+    assertThrows(
+        IllegalArgumentException.class, () -> new SpeechSynthesizer(param, null, null, options));
+  }
+
+  /**
+   * The server of an abandoned task test: the audio of the first task is not finished until the
+   * socket gets another run-task, or until the test ends it.
+   */
+  private static final class SlowFirstTaskServer extends WebSocketListener {
+    private final AtomicInteger taskCount;
+    private volatile WebSocket webSocket;
+    private volatile String pendingTaskId;
+
+    SlowFirstTaskServer(AtomicInteger taskCount) {
+      this.taskCount = taskCount;
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+      this.webSocket = webSocket;
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+      String taskId =
+          JsonUtils.parse(text).get("header").getAsJsonObject().get("task_id").getAsString();
+      if (text.contains("run-task")) {
+        finishPending();
+        webSocket.send(event(taskId, "task-started"));
+        if (taskCount.incrementAndGet() == 1) {
+          pendingTaskId = taskId;
+        }
+      } else if (text.contains("continue-task")) {
+        byte b = (byte) (taskId.equals(pendingTaskId) ? 1 : 2);
+        webSocket.send(ByteString.of(b, b, b));
+      } else if (text.contains("finish-task")) {
+        webSocket.send(event(taskId, "task-finished"));
+      }
+    }
+
+    /** Send the rest of the audio of the first task and finish it. */
+    void finishPending() {
+      String taskId = pendingTaskId;
+      if (taskId != null) {
+        pendingTaskId = null;
+        webSocket.send(ByteString.of((byte) 1, (byte) 1, (byte) 1));
+        webSocket.send(event(taskId, "task-finished"));
+      }
+    }
+
+    private static String event(String taskId, String event) {
+      return "{'header': {'task_id': '"
+          + taskId
+          + "', 'event': '"
+          + event
+          + "', 'attributes': {}}, 'payload': {}}";
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+      webSocket.close(code, null);
+    }
+  }
+
+  @Test
+  public void testClosedTaskAudioNotRouted() throws InterruptedException {
+    AtomicInteger taskCount = new AtomicInteger();
+    List<SlowFirstTaskServer> servers = new CopyOnWriteArrayList<>();
+    mockServer.setDispatcher(
+        new Dispatcher() {
+          @Override
+          public MockResponse dispatch(RecordedRequest request) {
+            SlowFirstTaskServer server = new SlowFirstTaskServer(taskCount);
+            servers.add(server);
+            return new MockResponse().withWebSocketUpgrade(server);
+          }
+        });
+    WebSocketMultiplexer multiplexer = WebSocketMultiplexer.builder().build();
+    ConnectionOptions options =
+        ConnectionOptions.builder().webSocketMultiplexer(multiplexer).build();
+    options.setUseDefaultClient(false);
+    CountDownLatch firstAudio = new CountDownLatch(1);
+    SpeechSynthesizer first =
+        new SpeechSynthesizer(
+            param,
+            new ResultCallback<SpeechSynthesisResult>() {
+              @Override
+              public void onEvent(SpeechSynthesisResult result) {
+                if (result.getAudioFrame() != null) {
+                  firstAudio.countDown();
+                }
+              }
+
+              @Override
+              public void onComplete() {}
+
+              @Override
+              public void onError(Exception e) {}
+            },
+            null,
+            options);
+    first.streamingCall("hello");
+    assertTrue(firstAudio.await(5, TimeUnit.SECONDS));
+    // closed mid-stream, the server keeps sending the audio of the first task.
+    first.getDuplexApi().close(1000, "bye");
+
+    ByteBuffer audio = synthesize(multiplexer);
+    assertEquals(ByteBuffer.wrap(new byte[] {2, 2, 2}), audio);
+    // the second task waits on another socket, the first is reused when the abandoned task ends.
+    assertEquals(2, servers.size());
+    servers.get(0).finishPending();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (multiplexer.getStats().getTasks() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, multiplexer.getStats().getTasks());
+    assertEquals(2, multiplexer.getStats().getSockets());
+    multiplexer.closeIdle();
+  }
+}
@@ -0,0 +1,167 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.alibaba.dashscope.audio.tts.SpeechSynthesisResult;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisAudioFormat;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesisParam;
+import com.alibaba.dashscope.audio.ttsv2.SpeechSynthesizer;
+import com.alibaba.dashscope.common.ResultCallback;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.ConnectionOptions;
+import com.alibaba.dashscope.protocol.RetryBudget;
+import com.alibaba.dashscope.protocol.RetryPolicy;
+import com.alibaba.dashscope.utils.Constants;
+import com.alibaba.dashscope.utils.JsonUtils;
+import io.reactivex.processors.PublishProcessor;
+import io.reactivex.subscribers.TestSubscriber;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+
+@Execution(ExecutionMode.SAME_THREAD)
+public class TestWebSocketReconnect {
+  private MockWebServer mockServer;
+  private SpeechSynthesisParam param;
+  private ConnectionOptions options;
+
+  @BeforeEach
+  public void before() throws IOException {
+    mockServer = new MockWebServer();
+    mockServer.start();
+    Constants.baseWebsocketApiUrl = String.format("http://127.0.0.1:%s", mockServer.getPort());
+    param =
+        SpeechSynthesisParam.builder()
+            .apiKey("1234")
+            .model("cosyvoice-v1")
+            .voice("longxiaochun")
+            .format(SpeechSynthesisAudioFormat.PCM_16000HZ_MONO_16BIT)
+            .build();
+    RetryPolicy retryPolicy =
+        RetryPolicy.builder()
+            .maxRetries(2)
+            .initialBackoff(Duration.ofMillis(50))
+            .budget(new RetryBudget(100, 0.1))
+            .build();
+    options = ConnectionOptions.builder().retryPolicy(retryPolicy).build();
+    options.setUseDefaultClient(false);
+  }
+
+  @AfterEach
+  public void after() throws IOException {
+    mockServer.close();
+  }
+
+  private MockResponse upgrade() {
+    return new MockResponse()
+        .withWebSocketUpgrade(
+            new WebSocketListener() {
+              @Override
+              public void onMessage(WebSocket webSocket, String text) {
+                String taskId =
+                    JsonUtils.parse(text)
+                        .get("header")
+                        .getAsJsonObject()
+                        .get("task_id")
+                        .getAsString();
+                if (text.contains("run-task")) {
+                  webSocket.send(
+                      "{'header': {'task_id': '"
+                          + taskId
+                          + "', 'event': 'task-started', 'attributes': {}}, 'payload': {}}");
+                } else if (text.contains("continue-task")) {
+                  webSocket.send(ByteString.of((byte) 1, (byte) 2, (byte) 3));
+                } else if (text.contains("finish-task")) {
+                  webSocket.send(
+                      "{'header': {'task_id': '"
+                          + taskId
+                          + "', 'event': 'task-finished', 'attributes': {}}, 'payload': {}}");
+                }
+              }
+
+              @Override
+              public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(code, null);
+              }
+            });
+  }
+
+  @Test
+  public void testReconnect() {
+    // the first handshake fails, the frames queued meanwhile are sent on the second connection.
+    mockServer.enqueue(
+        new MockResponse().setResponseCode(503).setSocketPolicy(SocketPolicy.DISCONNECT_AT_END));
+    mockServer.enqueue(upgrade());
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(param, null, null, options);
+    assertEquals(3, synthesizer.call("hello", 5000).remaining());
+    synthesizer.getDuplexApi().close(1000, "bye");
+    assertEquals(2, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testUnauthorized() throws InterruptedException {
+    // not retried, the error is returned to the callback.
+    mockServer.enqueue(
+        new MockResponse().setResponseCode(401).setStatus("HTTP/1.1 401 Unauthorized"));
+    CountDownLatch latch = new CountDownLatch(1);
+    AtomicReference<Exception> error = new AtomicReference<>();
+    SpeechSynthesizer synthesizer =
+        new SpeechSynthesizer(
+            param,
+            new ResultCallback<SpeechSynthesisResult>() {
+              @Override
+              public void onEvent(SpeechSynthesisResult message) {}
+
+              @Override
+              public void onComplete() {
+                latch.countDown();
+              }
+
+              @Override
+              public void onError(Exception e) {
+                error.set(e);
+                latch.countDown();
+              }
+            },
+            null,
+            options);
+    synthesizer.call("hello");
+    assertTrue(latch.await(5, TimeUnit.SECONDS));
+    assertTrue(error.get() instanceof ApiException, String.valueOf(error.get()));
+    assertEquals(1, mockServer.getRequestCount());
+  }
+
+  @Test
+  public void testLateSendAfterConnectFailure() throws Exception {
+    // the handshake fails for good, the later text of the task does not connect again.
+    mockServer.enqueue(
+        new MockResponse().setResponseCode(401).setStatus("HTTP/1.1 401 Unauthorized"));
+    mockServer.enqueue(upgrade());
+    PublishProcessor<String> text = PublishProcessor.create();
+    SpeechSynthesizer synthesizer = new SpeechSynthesizer(param, null, null, options);
+    TestSubscriber<SpeechSynthesisResult> results =
+        synthesizer.streamingCallAsFlowable(text).test();
+    text.onNext("hello");
+    assertTrue(results.await(5, TimeUnit.SECONDS));
+    results.assertError(ApiException.class);
+    text.onNext("world");
+    Thread.sleep(300);
+    assertEquals(1, mockServer.getRequestCount());
+  }
+}
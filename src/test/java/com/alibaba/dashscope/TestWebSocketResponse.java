@@ -0,0 +1,69 @@
+// Copyright (c) Alibaba, Inc. and its affiliates.
+
+package com.alibaba.dashscope;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.alibaba.dashscope.common.DashScopeResult;
+import com.alibaba.dashscope.exception.ApiException;
+import com.alibaba.dashscope.protocol.NetworkResponse;
+import com.alibaba.dashscope.protocol.Protocol;
+import com.alibaba.dashscope.protocol.WebSocketEventType;
+import com.alibaba.dashscope.protocol.WebSocketResponse;
+import com.alibaba.dashscope.utils.JsonUtils;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.Test;
+
+public class TestWebSocketResponse {
+  private static final String[] FRAMES = {
+    "{\"header\":{\"task_id\":\"t1\",\"event\":\"task-started\",\"attributes\":{}},"
+        + "\"payload\":{}}",
+    "{\"header\":{\"task_id\":\"t1\",\"event\":\"result-generated\",\"attributes\":{\"a\":[1]}},"
+        + "\"payload\":{\"output\":{\"sentence\":{\"text\":\"你好\",\"end_time\":null}},"
+        + "\"usage\":{\"duration\":3}}}",
+    "{\"header\":{\"task_id\":\"t1\",\"event\":\"task-finished\",\"status_code\":200},"
+        + "\"payload\":{\"output\":null,\"usage\":null}}",
+    "{\"header\":{\"task_id\":\"t1\",\"event\":\"task-failed\",\"error_code\":\"InvalidParameter\","
+        + "\"error_message\":\"bad\",\"status_code\":44},\"payload\":{}}",
+    "{\"payload\":{\"output\":[1,2]},\"header\":{\"event\":\"unknown-event\",\"task_id\":\"t3\"}}",
+    "{'header': {'event': 'result-generated', 'task_id': 't2'}, 'payload': {'output': {'a': 1}}}",
+  };
+
+  @Test
+  public void testFromJsonSameAsGson() {
+    for (String frame : FRAMES) {
+      WebSocketResponse expected = JsonUtils.fromJson(frame, WebSocketResponse.class);
+      WebSocketResponse response = WebSocketResponse.fromJson(frame);
+      assertEquals(JsonUtils.toJson(expected), JsonUtils.toJson(response));
+      assertEquals(expected.payload.output, response.payload.output);
+      assertEquals(expected.payload.usage, response.payload.usage);
+    }
+    WebSocketResponse response = WebSocketResponse.fromJson(FRAMES[1]);
+    assertEquals(WebSocketEventType.RESULT_GENERATED, response.header.event);
+    assertEquals("t1", response.header.taskId);
+    assertNull(WebSocketResponse.fromJson(FRAMES[4]).header.event);
+    assertNull(WebSocketResponse.fromJson("{}").payload);
+  }
+
+  @Test
+  public void testFromWebSocketResponseSameAsFromResponse() throws ApiException {
+    for (String frame : FRAMES) {
+      DashScopeResult expected =
+          new DashScopeResult()
+              .fromResponse(
+                  Protocol.WEBSOCKET, NetworkResponse.builder().message(frame).build(), false);
+      DashScopeResult result =
+          new DashScopeResult().fromWebSocketResponse(WebSocketResponse.fromJson(frame));
+      assertEquals(expected, result);
+    }
+  }
+
+  @Test
+  public void testInvalidFrame() {
+    assertThrows(JsonSyntaxException.class, () -> WebSocketResponse.fromJson("{\"header\" 1}"));
+    assertThrows(JsonSyntaxException.class, () -> WebSocketResponse.fromJson("[]"));
+    assertThrows(JsonSyntaxException.class, () -> WebSocketResponse.fromJson(""));
+  }
+}
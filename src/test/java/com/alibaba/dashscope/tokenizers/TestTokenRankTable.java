@@ -0,0 +1,67 @@
+package com.alibaba.dashscope.tokenizers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class TestTokenRankTable {
+  /**
+   * The shipped qwen.tiktoken.bin must be built from qwen.tiktoken, regenerate it with
+   * TokenRankTable.main when the vocabulary changes.
+   */
+  @Test
+  public void testBinaryVocabularyMatchesTiktoken() throws IOException {
+    ClassLoader classLoader = getClass().getClassLoader();
+    TokenRankTable expect;
+    try (InputStream in = classLoader.getResourceAsStream("qwen.tiktoken")) {
+      expect = TokenRankTable.readTiktoken(in);
+    }
+    TokenRankTable actual;
+    try (InputStream in = classLoader.getResourceAsStream("qwen.tiktoken.bin")) {
+      actual = TokenRankTable.read(in);
+    }
+    assertEquals(151643, actual.size());
+    assertEquals(expect, actual);
+    byte[] you = "You".getBytes(StandardCharsets.UTF_8);
+    assertEquals(2610, actual.rank(you, 0, you.length));
+
+    // byte for byte what the generator writes.
+    ByteArrayOutputStream generated = new ByteArrayOutputStream();
+    expect.write(generated);
+    ByteArrayOutputStream shipped = new ByteArrayOutputStream();
+    try (InputStream in = classLoader.getResourceAsStream("qwen.tiktoken.bin")) {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        shipped.write(buffer, 0, n);
+      }
+    }
+    assertArrayEquals(generated.toByteArray(), shipped.toByteArray());
+  }
+
+  @Test
+  public void testWriteAndRead() throws IOException {
+    String tiktoken = "YQ== 0\nYg== 1\nYWI= 2\n";
+    TokenRankTable table =
+        TokenRankTable.readTiktoken(
+            new ByteArrayInputStream(tiktoken.getBytes(StandardCharsets.UTF_8)));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    table.write(out);
+    TokenRankTable read = TokenRankTable.read(new ByteArrayInputStream(out.toByteArray()));
+    assertEquals(table, read);
+    byte[] ab = "abc".getBytes(StandardCharsets.UTF_8);
+    assertEquals(2, read.rank(ab, 0, 2));
+    assertEquals(1, read.rank(ab, 1, 1));
+    assertEquals(-1, read.rank(ab, 0, 3));
+    assertThrows(
+        IOException.class,
+        () -> TokenRankTable.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4})));
+  }
+}
@@ -1,9 +1,14 @@
 // Copyright (c) Alibaba, Inc. and its affiliates.
 package com.alibaba.dashscope.utils;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
 import com.alibaba.dashscope.common.Message;
 import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
+import java.io.IOException;
+import java.io.StringWriter;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
@@ -63,4 +68,19 @@ public class TestJson {
     Message deserializeMsg = JsonUtils.fromJson(msgJson, Message.class);
     System.out.println(deserializeMsg);
   }
+
+  @Test
+  public void testWriteJson() throws IOException {
+    JsonObject body =
+        JsonUtils.parse(
+            "{\"model\":\"qwen\",\"input\":{\"prompt\":\"<a href='x'>你好</a> \\u2028 😀\"},"
+                + "\"parameters\":{\"seed\":null,\"top_p\":0.8,\"stop\":[null,\"x\"]}}");
+    StringWriter withNulls = new StringWriter();
+    JsonUtils.writeJson(body, withNulls, true);
+    assertEquals(body.toString(), withNulls.toString());
+    StringWriter withoutNulls = new StringWriter();
+    JsonUtils.writeJson(body, withoutNulls, false);
+    assertEquals(JsonUtils.toJson(body), withoutNulls.toString());
+    assertFalse(withoutNulls.toString().contains("seed"));
+  }
 }